@@ -1,27 +1,39 @@
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.stream.IntStream;
 
 /**
- * The BottomUp Class represents the Bottom Up construction of an R* tree data structure.
+ * The BottomUp Class represents the Bottom Up construction of an R* tree data structure. The records are packed into
+ * the leaves in the order of the Hilbert curve, or in the Sort-Tile-Recursive order, in which case the MBRs of every
+ * upper level are packed in the Sort-Tile-Recursive order of their centers as well.
  */
 public class BottomUp {
-    Queue<Record> subset_recs;
     ArrayList<Record> records;
     int leafLevelFINAL;
     int blockID;
+    boolean str;
 
     /**
-     * Constructor for the BottomUp class. It initializes several class variables.
+     * Constructor for the BottomUp class that packs the records in the order of the Hilbert curve.
      */
     public BottomUp() {
+        this(false);
+    }
+
+    /**
+     * Constructor for the BottomUp class. It initializes several class variables.
+     *
+     * @param str true to pack the nodes in the Sort-Tile-Recursive order instead of the order of the Hilbert curve
+     */
+    public BottomUp(boolean str) {
+        this.str = str;
         // Get records from the FileHandler and assign them to the records variable
         this.records = FileHandler.getRecords();
-        // Initialize subset_recs as a new LinkedList
-        this.subset_recs = new LinkedList<>();
         // Calculate the levels of the tree based on the size of the records and assign the result to leafLevelFINAL
         this.leafLevelFINAL = getLevelsOfTree(records.size());
         // Initialize blockID to 2
@@ -29,213 +41,215 @@ public class BottomUp {
     }
 
     /**
-     * This method constructs the structure.
+     * This method constructs the structure. The block ids of every level are known before the level is built, the
+     * leaves take the blocks from 2 onwards, the upper levels follow in the order they are built and the root is block
+     * 1, so the nodes of a level are built in parallel on the common ForkJoin pool. A level is kept in memory until the
+     * level above it is planned, its parent pointers are filled in, and then its blocks are written in parallel with
+     * positional writes to the channel of the index file, without a seek for every block or parent pointer.
      */
     public void construct() {
         // Set the BottomUp flag in FileHandler
         FileHandler.setBottomUp(true);
         // Set the current object in the FileHandler
         FileHandler.setBtm(this);
-        // Initialize the maximum latitude and longitude values
-        double maxLAT = Double.MIN_VALUE;
-        double maxLON = Double.MIN_VALUE;
-        // Find the maximum latitude and longitude values from the records
-        for (Record record : records) {
-            subset_recs.add(record.copyRecord());
-            maxLAT = Math.max(maxLAT, record.getLAT());
-            maxLON = Math.max(maxLON, record.getLON());
-        }
-        // Initialize the HilbertSort with the subset of records and the maximum latitude or longitude
-        HilbertSort sort = new HilbertSort(subset_recs, Math.max(maxLAT, maxLON));
-        // Get the sorted list of records from the HilbertSort
-        Queue<Record> sortedList = sort.hilbertHelper();
-        // Initialize the list of IDs
-        ArrayList<Integer> IDs = new ArrayList<>();
-        while (!sortedList.isEmpty()) IDs.add(sortedList.remove().getId());
+        //calculate needed leaf nodes to fit records
+        int max_records = FileHandler.calculateMaxBlockNodes();
+        // Sort the records along the Hilbert curve or in tiles
+        int[] sortedIndexes = str ? strSort(records, max_records) : HilbertSort.sort(records);
         try {
-            RandomAccessFile indexfile = new RandomAccessFile("indexfile.dat", "rw");
-            //calculate needed leaf nodes to fit records
-            int max_records = FileHandler.calculateMaxBlockNodes();
+            BufferPool.reset();
             int blockSize = FileHandler.getBlockSize();
-            //pre-calculate the levels needed to fit all the records and rectangles
-            int leaflevel = getLevelsOfTree(IDs.size());
-            int iterations = (int) Math.ceil((double) IDs.size() / max_records);
-            double[][][] MBRs = new double[iterations][4][2];
-            int[] MBRs_ID = new int[iterations];
-            //number of records that each leaf node will contain
-            ArrayList<Integer> leaf_sizes = new ArrayList<>();
-            for (int i = 0; i < iterations; i++) {
-                if (i == iterations - 1) {
-                    if (IDs.size() - (i * max_records) < Math.floor(max_records * Split.getM())) {
-                        int need = (int) (Math.floor(max_records * Split.getM()) - (IDs.size() - (i * max_records)));
-                        leaf_sizes.add((int) Math.floor(max_records * Split.getM()));
-                        leaf_sizes.set(i - 1, leaf_sizes.get(i - 1) - need);
-                    } else leaf_sizes.add(IDs.size() - (i * max_records));
-                } else leaf_sizes.add(max_records);
+            int max_rectangles = FileHandler.calculateMaxBlockRectangles();
+            //number of records that each leaf node will contain, and the first record of every leaf
+            int[] leaf_sizes = nodeSizes(records.size(), max_records);
+            int[] leaf_starts = new int[leaf_sizes.length];
+            for (int k = 1; k < leaf_sizes.length; k++) {
+                leaf_starts[k] = leaf_starts[k - 1] + leaf_sizes[k - 1];
             }
-            //iterate through every leaf node needed to be filled
-            for (int k = 0; k < iterations; k++) {
+            //a tree of one leaf has the leaf as its root
+            blockID = leaf_sizes.length == 1 ? 1 : 2;
+            int firstLeafID = blockID;
+            int leafLevel = leafLevelFINAL;
+            double[][] leafMBRs = new double[leaf_sizes.length][];
+            int[] leafIDs = new int[leaf_sizes.length];
+            byte[][] leafBlocks = new byte[leaf_sizes.length][];
+            IntStream.range(0, leaf_sizes.length).parallel().forEach(k -> {
                 byte[] block = new byte[blockSize];
-                System.arraycopy(ConversionToBytes.intToBytes(leaflevel), 0, block, 0, Integer.BYTES);
-                System.arraycopy(ConversionToBytes.intToBytes(leaf_sizes.get(k)), 0, block, Integer.BYTES, Integer.BYTES);
-                int counter = 3 * Integer.BYTES;
+                System.arraycopy(ConversionToBytes.intToBytes(leafLevel), 0, block, 0, Integer.BYTES);
+                System.arraycopy(ConversionToBytes.intToBytes(leaf_sizes[k]), 0, block, Integer.BYTES, Integer.BYTES);
+                System.arraycopy(ConversionToBytes.intToBytes(-1), 0, block, 2 * Integer.BYTES, Integer.BYTES);
+                double[] mbr = new double[2 * FileHandler.getDimensions()];
                 //add records
-                for (int i = 0; i < leaf_sizes.get(k); i++) {
-                    Record temp = records.get(IDs.remove(0));
-                    System.arraycopy(ConversionToBytes.doubleToBytes(temp.getLAT()), 0, block, counter, Double.BYTES);
-                    counter += Double.BYTES;
-                    System.arraycopy(ConversionToBytes.doubleToBytes(temp.getLON()), 0, block, counter, Double.BYTES);
-                    counter += Double.BYTES;
-                    System.arraycopy(ConversionToBytes.intToBytes(temp.getId()), 0, block, counter, Integer.BYTES);
-                    counter += Integer.BYTES;
-                    Split.calculateMBRpointbypoint(MBRs[k], temp, i == 0, false);
-                }
-                MBRs_ID[k] = blockID;
-                try {
-                    indexfile.seek(blockID * blockSize);
-                    indexfile.write(block);
-                    blockID++;
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            //in case there's only one level, set root.
-            if (leafLevelFINAL < 1) FileHandler.setRootMBR(MBRs[0]);
-            int max_rectangles = FileHandler.calculateMaxBlockRectangles();
-            iterations = (int) Math.ceil((double) MBRs.length / max_rectangles);
-            ArrayList<Integer> nonleaf_sizes;
-            double[][][] newMBR;
-            int[] newMBR_ID;
-            FileHandler.setRoot(1);
-            //for levels that contain rectangles as entries (>leaf level)
-            while (iterations > 1) {
-                nonleaf_sizes = new ArrayList<>();
-                leaflevel--;
-                newMBR = new double[iterations][][];
-                newMBR_ID = new int[iterations];
-                //calculate amount of blocks needed to contain the entries of the previous level
-                for (int i = 0; i < iterations; i++) {
-                    if (i == iterations - 1) {
-                        if (MBRs.length - (i * max_rectangles) < Math.floor(max_rectangles * Split.getM())) {
-                            int need = (int) (Math.floor(max_rectangles * Split.getM()) - (MBRs.length - (i * max_rectangles)));
-                            nonleaf_sizes.add((int) Math.floor(max_rectangles * Split.getM()));
-                            nonleaf_sizes.set(i - 1, nonleaf_sizes.get(i - 1) - need);
-                        } else nonleaf_sizes.add(MBRs.length - (i * max_rectangles));
-                    } else nonleaf_sizes.add(max_rectangles);
+                for (int i = 0; i < leaf_sizes[k]; i++) {
+                    Record temp = records.get(sortedIndexes[leaf_starts[k] + i]);
+                    NodeView.putLeafEntry(block, i, temp.getLAT(), temp.getLON(), temp.getId());
+                    Split.calculateMBRpointbypoint(mbr, temp, i == 0, false);
                 }
-                int MBR_ID_counter = 0;
-                for (int z = 0; z < iterations; z++) {
-                    byte[] block = new byte[blockSize];
-                    System.arraycopy(ConversionToBytes.intToBytes(leaflevel), 0, block, 0, Integer.BYTES);
-                    System.arraycopy(ConversionToBytes.intToBytes(nonleaf_sizes.get(z)), 0, block, Integer.BYTES, Integer.BYTES);
-                    int counter = 3 * Integer.BYTES;
-                    ArrayList<Double[][]> tempmbr = new ArrayList<>();
-                    for (int i = 0; i < nonleaf_sizes.get(z); i++) {
-                        Double[][] temp = Split.rectangle_to_points(MBRs[MBR_ID_counter]);
-                        try {
-                            //since parent is decided, go to entries and fill in the metadata parent pointer
-                            indexfile.seek(MBRs_ID[MBR_ID_counter] * blockSize + 2 * Integer.BYTES);
-                            indexfile.write(ConversionToBytes.intToBytes(blockID));
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        //write mbr of children
-                        for (int j = 0; j < FileHandler.getDimensions(); j++) {
-                            for (int k = 0; k < FileHandler.getDimensions(); k++) {
-                                System.arraycopy(ConversionToBytes.doubleToBytes(temp[j][k]), 0, block, counter, Double.BYTES);
-                                counter += Double.BYTES;
-                            }
+                leafBlocks[k] = block;
+                leafMBRs[k] = mbr;
+                leafIDs[k] = firstLeafID + k;
+            });
+            blockID += leaf_sizes.length;
+            int level = leafLevel;
+            double[][] MBRs = leafMBRs;
+            int[] MBRs_ID = leafIDs;
+            byte[][] blocks = leafBlocks;
+            try (FileChannel channel = FileChannel.open(Path.of(FileHandler.getIndexfilePath()), StandardOpenOption.WRITE)) {
+                //for levels that contain rectangles as entries (>leaf level)
+                while (MBRs.length > 1) {
+                    int[] nonleaf_sizes = nodeSizes(MBRs.length, max_rectangles);
+                    boolean root = nonleaf_sizes.length == 1;
+                    if (str && !root) {
+                        int[] order = strSort(MBRs, max_rectangles);
+                        double[][] sortedMBRs = new double[MBRs.length][];
+                        int[] sortedMBRs_ID = new int[MBRs.length];
+                        byte[][] sortedBlocks = new byte[MBRs.length][];
+                        for (int i = 0; i < order.length; i++) {
+                            sortedMBRs[i] = MBRs[order[i]];
+                            sortedMBRs_ID[i] = MBRs_ID[order[i]];
+                            sortedBlocks[i] = blocks[order[i]];
                         }
-                        tempmbr.add(temp);
-                        System.arraycopy(ConversionToBytes.intToBytes(MBRs_ID[MBR_ID_counter]), 0, block, counter, Integer.BYTES);
-
-                        MBR_ID_counter++;
-                        counter += Integer.BYTES;
-                    }
-                    newMBR[z] = Split.calculateMBROfRectangles(tempmbr);
-                    newMBR_ID[z] = blockID;
-                    try {
-                        indexfile.seek(blockID * blockSize);
-                        indexfile.write(block);
-                        blockID++;
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-                MBRs = newMBR;
-                MBRs_ID = newMBR_ID;
-                iterations = (int) Math.ceil((double) MBRs.length / max_rectangles);
-            }
-            //if tree has more than one level (this takes care of the first level and sets the root mbr)
-            if (leafLevelFINAL >= 1) {
-                leaflevel--;
-                ArrayList<Double[][]> tempmbr = new ArrayList<>();
-                byte[] block = new byte[blockSize];
-                System.arraycopy(ConversionToBytes.intToBytes(leaflevel), 0, block, 0, Integer.BYTES);
-                System.arraycopy(ConversionToBytes.intToBytes(MBRs.length), 0, block, Integer.BYTES, Integer.BYTES);
-                System.arraycopy(ConversionToBytes.intToBytes(-1), 0, block, Integer.BYTES * 2, Integer.BYTES);
-                int counter = 3 * Integer.BYTES;
-                for (int i = 0; i < MBRs.length; i++) {
-                    Double[][] temp = Split.rectangle_to_points(MBRs[i]);
-                    try {
-                        //sets parent pointer in children
-                        indexfile.seek(MBRs_ID[i] * blockSize + 2 * Integer.BYTES);
-                        indexfile.write(ConversionToBytes.intToBytes(1));
-                    } catch (IOException e) {
-                        e.printStackTrace();
+                        MBRs = sortedMBRs;
+                        MBRs_ID = sortedMBRs_ID;
+                        blocks = sortedBlocks;
                     }
-                    //write mbr of children
-                    for (int j = 0; j < FileHandler.getDimensions(); j++) {
-                        for (int k = 0; k < FileHandler.getDimensions(); k++) {
-                            System.arraycopy(ConversionToBytes.doubleToBytes(temp[j][k]), 0, block, counter, Double.BYTES);
-                            counter += Double.BYTES;
+                    //since the parents are decided, fill in the parent pointers of the entries and write them
+                    int firstParentID = root ? 1 : blockID;
+                    int[] nonleaf_starts = new int[nonleaf_sizes.length];
+                    for (int z = 0; z < nonleaf_sizes.length; z++) {
+                        if (z > 0) nonleaf_starts[z] = nonleaf_starts[z - 1] + nonleaf_sizes[z - 1];
+                        for (int i = 0; i < nonleaf_sizes[z]; i++) {
+                            System.arraycopy(ConversionToBytes.intToBytes(firstParentID + z), 0, blocks[nonleaf_starts[z] + i], 2 * Integer.BYTES, Integer.BYTES);
                         }
                     }
-                    System.arraycopy(ConversionToBytes.intToBytes(MBRs_ID[i]), 0, block, counter, Integer.BYTES);
-                    counter += Integer.BYTES;
-                    tempmbr.add(temp);
-                }
-                //write file
-                try {
-                    indexfile.seek(blockSize);
-                    indexfile.write(block);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                FileHandler.setRootMBR(Split.calculateMBROfRectangles(tempmbr));
-            } else {
-                try {
-                    indexfile.seek(2 * blockSize + 2 * Integer.BYTES);
-                    indexfile.write(ConversionToBytes.intToBytes(-1));
-                    byte[] block = new byte[blockSize];
-                    indexfile.seek(2 * blockSize);
-                    indexfile.read(block, 0, blockSize);
-                    indexfile.seek(blockSize);
-                    indexfile.write(block);
-                    blockID = 2;
-                } catch (IOException e) {
-                    e.printStackTrace();
+                    writeBlocks(channel, blocks, MBRs_ID);
+                    int parentLevel = level - 1;
+                    double[][] childMBRs = MBRs;
+                    int[] childMBRs_ID = MBRs_ID;
+                    double[][] newMBR = new double[nonleaf_sizes.length][];
+                    int[] newMBR_ID = new int[nonleaf_sizes.length];
+                    byte[][] newBlocks = new byte[nonleaf_sizes.length][];
+                    IntStream.range(0, nonleaf_sizes.length).parallel().forEach(z -> {
+                        byte[] block = new byte[blockSize];
+                        System.arraycopy(ConversionToBytes.intToBytes(parentLevel), 0, block, 0, Integer.BYTES);
+                        System.arraycopy(ConversionToBytes.intToBytes(nonleaf_sizes[z]), 0, block, Integer.BYTES, Integer.BYTES);
+                        System.arraycopy(ConversionToBytes.intToBytes(-1), 0, block, 2 * Integer.BYTES, Integer.BYTES);
+                        int counter = 3 * Integer.BYTES;
+                        ArrayList<double[]> tempmbr = new ArrayList<>();
+                        for (int i = nonleaf_starts[z]; i < nonleaf_starts[z] + nonleaf_sizes[z]; i++) {
+                            //write mbr of children
+                            counter = NodeView.putRectangle(block, counter, childMBRs[i]);
+                            tempmbr.add(childMBRs[i]);
+                            System.arraycopy(ConversionToBytes.intToBytes(childMBRs_ID[i]), 0, block, counter, Integer.BYTES);
+                            counter += Integer.BYTES;
+                        }
+                        newBlocks[z] = block;
+                        newMBR[z] = Split.calculateMBROfRectangles(tempmbr);
+                        newMBR_ID[z] = firstParentID + z;
+                    });
+                    if (!root) blockID += nonleaf_sizes.length;
+                    level = parentLevel;
+                    MBRs = newMBR;
+                    MBRs_ID = newMBR_ID;
+                    blocks = newBlocks;
                 }
+                //write the root, whose parent pointer stays -1
+                writeBlocks(channel, blocks, MBRs_ID);
             }
+            FileHandler.setRoot(1);
+            FileHandler.setRootMBR(MBRs[0]);
             FileHandler.setNoOfIndexfileBlocks(blockID - 1);
             FileHandler.setLeafLevel(leafLevelFINAL);
-            int[] metadata = new int[3];
-            int counter = 0;
-            metadata[0] = blockSize;
-            metadata[1] = FileHandler.getNoOfIndexfileBlocks();
-            metadata[2] = leafLevelFINAL;
-            for (int i = 0; i < 3; i++) {
+            Superblock.writeIndexfile();
+            BufferPool.flush();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method returns the number of entries of every node of a level with the given number of entries. Every node
+     * is full except the last two, the last node takes the entries it needs to reach the minimum fill from the node
+     * before it.
+     *
+     * @param noOfEntries the number of entries of the level
+     * @param capacity    the maximum number of entries of a node
+     * @return the number of entries of every node of the level
+     */
+    static int[] nodeSizes(int noOfEntries, int capacity) {
+        int iterations = (int) Math.ceil((double) noOfEntries / capacity);
+        int[] sizes = new int[iterations];
+        int minimum = (int) Math.floor(capacity * Split.getM());
+        for (int i = 0; i < iterations; i++) {
+            if (i == iterations - 1) {
+                if (i > 0 && noOfEntries - (i * capacity) < minimum) {
+                    sizes[i] = minimum;
+                    sizes[i - 1] -= minimum - (noOfEntries - (i * capacity));
+                } else sizes[i] = noOfEntries - (i * capacity);
+            } else sizes[i] = capacity;
+        }
+        return sizes;
+    }
+
+    /**
+     * This method writes the given blocks in parallel, each to the position of its block id in the index file.
+     *
+     * @param channel  the channel of the index file
+     * @param blocks   the blocks to write
+     * @param blockIDs the block ids of the blocks
+     * @throws IOException if a block cannot be written
+     */
+    private static void writeBlocks(FileChannel channel, byte[][] blocks, int[] blockIDs) throws IOException {
+        int blockSize = FileHandler.getBlockSize();
+        try {
+            IntStream.range(0, blocks.length).parallel().forEach(k -> {
+                ByteBuffer block = ByteBuffer.wrap(blocks[k]);
                 try {
-                    indexfile.seek(counter);
-                    indexfile.write(ConversionToBytes.intToBytes(metadata[i]));
-                    counter += Integer.BYTES;
+                    while (block.hasRemaining()) {
+                        channel.write(block, (long) blockIDs[k] * blockSize + block.position());
+                    }
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    throw new UncheckedIOException(e);
                 }
-            }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * This method returns the indexes of the given records in the Sort-Tile-Recursive order.
+     *
+     * @param records  the records
+     * @param capacity the number of entries of a leaf
+     * @return the indexes of the records in the order of the tiles
+     */
+    private static int[] strSort(ArrayList<Record> records, int capacity) {
+        double[] lats = new double[records.size()];
+        double[] lons = new double[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            lats[i] = records.get(i).getLAT();
+            lons[i] = records.get(i).getLON();
+        }
+        return StrSort.sort(lats, lons, capacity);
+    }
+
+    /**
+     * This method returns the indexes of the given rectangles in the Sort-Tile-Recursive order of their centers.
+     *
+     * @param rectangles the rectangles, in the layout of the Geometry kernels
+     * @param capacity   the number of entries of an internal node
+     * @return the indexes of the rectangles in the order of the tiles
+     */
+    private static int[] strSort(double[][] rectangles, int capacity) {
+        double[] lats = new double[rectangles.length];
+        double[] lons = new double[rectangles.length];
+        for (int i = 0; i < rectangles.length; i++) {
+            int dimensions = rectangles[i].length / 2;
+            lats[i] = (rectangles[i][0] + rectangles[i][dimensions]) / 2;
+            lons[i] = (rectangles[i][1] + rectangles[i][1 + dimensions]) / 2;
         }
+        return StrSort.sort(lats, lons, capacity);
     }
 
     /**
@@ -0,0 +1,411 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class implements a page buffer pool for the index file. Every block of the index file is cached in a frame that
+ * is looked up by its block id, so a node access costs one block read instead of a read of the whole file. The number
+ * of frames is bounded by a configurable memory budget and frames are recycled with the CLOCK (second chance)
+ * replacement policy. A frame can be pinned while a caller works directly on its page and pinned frames are never
+ * evicted.
+ * <p>
+ * Writes go through the pool and are written back lazily. A written block is read into a frame like a pinned one and
+ * the frame is marked dirty, so the frame holds the only copy of the new data, repeated writes to the same block
+ * during an insert or a split are coalesced into one write of the block, and the dirty pages count against the memory
+ * budget like every other page. The dirty pages are flushed in the order of their block ids, when the transaction of
+ * the WriteAheadLog that wrote them is forced to the disk, at a checkpoint, at the end of a build, when the pool is
+ * reset, or when their number exceeds a quarter of the frames outside a transaction. A dirty frame that the CLOCK hand
+ * evicts outside a transaction is written back first. While a transaction runs its writes are also passed to the log
+ * and its dirty frames are neither flushed nor evicted before the log is forced, so the index file never holds a write
+ * that is not in the log, and the blocks a transaction writes have to fit into the frames of the pool.
+ */
+public class BufferPool {
+    private static long memoryBudget = 64L * 1024 * 1024; // 64MB
+    private static final HashMap<Integer, Integer> pageTable = new HashMap<>();
+    private static int[] frameBlockIds = new int[0];
+    private static byte[][] framePages = new byte[0][];
+    private static ByteBuffer[] frameBuffers = new ByteBuffer[0];
+    private static int[] pinCounts = new int[0];
+    private static boolean[] referenced = new boolean[0];
+    private static boolean[] dirty = new boolean[0];
+    private static int noOfDirtyFrames = 0;
+    private static int usedFrames = 0;
+    private static int clockHand = 0;
+    private static RandomAccessFile indexfile = null;
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long pageWrites = 0;
+
+    /**
+     * This method pins the block with the given id and returns its cached page. If the block is not in the pool, a
+     * frame is chosen with the CLOCK policy and the block is read into it. The returned page is shared with the pool,
+     * so the caller must not modify it and must call unpin when it is done with it.
+     *
+     * @param blockId the id of the block to pin
+     * @return the cached page of the block
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public static byte[] pin(int blockId) throws IOException {
+        int frame = pinFrame(blockId);
+        return framePages[frame];
+    }
+
+    /**
+     * This method pins the block with the given id like pin does, but returns a read-only ByteBuffer over the cached
+     * page. The buffer is created once per frame, so pinning a block this way allocates nothing. The caller must call
+     * unpin when it is done with the buffer.
+     *
+     * @param blockId the id of the block to pin
+     * @return a read-only ByteBuffer over the cached page of the block
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public static ByteBuffer pinBuffer(int blockId) throws IOException {
+        int frame = pinFrame(blockId);
+        return frameBuffers[frame];
+    }
+
+    /**
+     * This method pins the block with the given id and returns the index of its frame. If the block is not in the pool,
+     * a frame is chosen with the CLOCK policy and the block is read into it.
+     *
+     * @param blockId the id of the block to pin
+     * @return the index of the frame that holds the block
+     * @throws IOException if the block cannot be read from the index file
+     */
+    private static int pinFrame(int blockId) throws IOException {
+        Integer frame = pageTable.get(blockId);
+        if (frame == null) {
+            misses++;
+            frame = loadFrame(blockId, true);
+        } else {
+            hits++;
+        }
+        pinCounts[frame]++;
+        referenced[frame] = true;
+        return frame;
+    }
+
+    /**
+     * This method chooses a frame with the CLOCK policy for the block with the given id and reads the block into it.
+     *
+     * @param blockId the id of the block
+     * @param read    false if the block is written as a whole, so its old content is not needed
+     * @return the index of the frame that holds the block
+     * @throws IOException if the block cannot be read from the index file or an evicted dirty page cannot be written
+     */
+    private static int loadFrame(int blockId, boolean read) throws IOException {
+        int frame = chooseVictim();
+        // the frame holds no block until the read succeeds, so a failed read leaves no stale id to evict later
+        frameBlockIds[frame] = -1;
+        if (read) readPage(blockId, framePages[frame]);
+        frameBlockIds[frame] = blockId;
+        pageTable.put(blockId, frame);
+        return frame;
+    }
+
+    /**
+     * This method releases a pin of the block with the given id, so its frame can be evicted again.
+     *
+     * @param blockId the id of the block to unpin
+     */
+    public static void unpin(int blockId) {
+        Integer frame = pageTable.get(blockId);
+        if (frame != null && pinCounts[frame] > 0) pinCounts[frame]--;
+    }
+
+    /**
+     * This method returns a private copy of the block with the given id. The copy can be modified freely and written
+     * back with writeBlock.
+     *
+     * @param blockId the id of the block to read
+     * @return a copy of the block
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public static byte[] readBlock(int blockId) throws IOException {
+        byte[] page = pin(blockId);
+        byte[] block = new byte[page.length];
+        System.arraycopy(page, 0, block, 0, page.length);
+        unpin(blockId);
+        return block;
+    }
+
+    /**
+     * This method reads an integer of the index file at the given byte position.
+     *
+     * @param position the byte position of the integer in the index file
+     * @return the integer stored at the position
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public static int readInt(long position) throws IOException {
+        int blockSize = FileHandler.getBlockSize();
+        int blockId = (int) (position / blockSize);
+        byte[] page = pin(blockId);
+        int value = ByteBuffer.wrap(page).getInt((int) (position % blockSize));
+        unpin(blockId);
+        return value;
+    }
+
+    /**
+     * This method writes a whole block to the index file and to its cached page.
+     *
+     * @param blockId the id of the block to write
+     * @param block   the data of the block
+     * @throws IOException if the block cannot be written to the index file
+     */
+    public static void writeBlock(int blockId, byte[] block) throws IOException {
+        write((long) blockId * FileHandler.getBlockSize(), block);
+    }
+
+    /**
+     * This method writes the given bytes at the given byte position of the index file. The bytes are copied into the
+     * frame of every block that overlaps the written range, which is read into the pool on the first write of the
+     * block if it is not cached, and the frame is marked dirty, so later reads through the pool see the new data. The
+     * dirty pages are written to the index file when they are flushed. If a transaction of the WriteAheadLog
+     * runs, the bytes are also logged. A write to a node of the tree marks the compressed copy of the index file stale.
+     *
+     * @param position the byte position in the index file
+     * @param data     the bytes to write
+     * @throws IOException if the data cannot be written to the index file
+     */
+    public static void write(long position, byte[] data) throws IOException {
+        boolean logged = WriteAheadLog.isActive();
+        if (logged) WriteAheadLog.log(position, data);
+        int blockSize = FileHandler.getBlockSize();
+        if (position + data.length > blockSize) CompressedIndex.invalidate();
+        int firstBlock = (int) (position / blockSize);
+        int lastBlock = (int) ((position + data.length - 1) / blockSize);
+        for (int blockId = firstBlock; blockId <= lastBlock; blockId++) {
+            Integer frame = pageTable.get(blockId);
+            long blockStart = (long) blockId * blockSize;
+            long from = Math.max(position, blockStart);
+            long to = Math.min(position + data.length, blockStart + blockSize);
+            // a write of the whole block does not need the old content of the block
+            if (frame == null) frame = loadFrame(blockId, to - from < blockSize);
+            System.arraycopy(data, (int) (from - position), framePages[frame], (int) (from - blockStart), (int) (to - from));
+            if (!dirty[frame]) {
+                dirty[frame] = true;
+                noOfDirtyFrames++;
+            }
+        }
+        if (!logged && noOfDirtyFrames > getCapacity() / 4) flush();
+    }
+
+    /**
+     * This method writes the dirty pages to the index file. If committed transactions of the WriteAheadLog wait for
+     * their group, the log is forced first, because their pages may only reach the index file after the log. It must
+     * not be called while a transaction runs.
+     *
+     * @throws IOException if a page cannot be written to the index file
+     */
+    public static void flush() throws IOException {
+        if (WriteAheadLog.hasPendingCommits()) {
+            WriteAheadLog.sync();
+        } else {
+            flushDirtyPages();
+        }
+    }
+
+    /**
+     * This method writes the dirty pages to the index file in the order of their block ids and drops them. It is called
+     * by the WriteAheadLog once the transactions that wrote the pages are forced to the disk.
+     *
+     * @throws IOException if a page cannot be written to the index file
+     */
+    public static void flushDirtyPages() throws IOException {
+        if (noOfDirtyFrames == 0) return;
+        TreeMap<Integer, Integer> dirtyFrames = new TreeMap<>();
+        for (int frame = 0; frame < usedFrames; frame++) {
+            if (dirty[frame]) dirtyFrames.put(frameBlockIds[frame], frame);
+        }
+        for (Map.Entry<Integer, Integer> dirtyFrame : dirtyFrames.entrySet()) {
+            writePage(dirtyFrame.getValue());
+        }
+    }
+
+    /**
+     * This method writes the page of the given dirty frame to the index file and marks the frame clean.
+     *
+     * @param frame the index of the frame
+     * @throws IOException if the page cannot be written to the index file
+     */
+    private static void writePage(int frame) throws IOException {
+        RandomAccessFile file = getIndexfile();
+        file.seek((long) frameBlockIds[frame] * framePages[frame].length);
+        file.write(framePages[frame]);
+        pageWrites++;
+        dirty[frame] = false;
+        noOfDirtyFrames--;
+    }
+
+    /**
+     * This method forces the writes of the index file to the disk.
+     *
+     * @throws IOException if the index file cannot be forced
+     */
+    public static void force() throws IOException {
+        getIndexfile().getFD().sync();
+    }
+
+    /**
+     * This method checks if the block with the given id has a dirty page that is not written to the index file yet.
+     *
+     * @param blockId the id of the block
+     * @return true if the block has a dirty page
+     */
+    public static boolean isDirty(int blockId) {
+        Integer frame = pageTable.get(blockId);
+        return frame != null && dirty[frame];
+    }
+
+    /**
+     * This method drops every cached page and closes the index file. It has to be called whenever the index file is
+     * recreated or truncated outside the pool. The committed transactions of the WriteAheadLog are synced first, so no
+     * dirty page is lost. The memory mapping of the file is dropped as well.
+     */
+    public static void reset() {
+        if (noOfDirtyFrames > 0 || WriteAheadLog.hasPendingCommits()) WriteAheadLog.sync();
+        MappedIndexFile.reset();
+        pageTable.clear();
+        frameBlockIds = new int[0];
+        framePages = new byte[0][];
+        frameBuffers = new ByteBuffer[0];
+        pinCounts = new int[0];
+        referenced = new boolean[0];
+        dirty = new boolean[0];
+        noOfDirtyFrames = 0;
+        usedFrames = 0;
+        clockHand = 0;
+        try {
+            if (indexfile != null) indexfile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        indexfile = null;
+    }
+
+    /**
+     * This method sets the memory budget of the pool. The pool is emptied, so the new number of frames is used from
+     * the next access onwards.
+     *
+     * @param bytes the maximum number of bytes the cached pages may take
+     */
+    public static void setMemoryBudget(long bytes) {
+        memoryBudget = bytes;
+        reset();
+    }
+
+    public static long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+
+    public static long getPageWrites() {
+        return pageWrites;
+    }
+
+    /**
+     * This method returns the number of frames the memory budget allows for the current block size. The pool always
+     * keeps a few frames, so a descent that pins a node and its parent can never run out of frames.
+     *
+     * @return the maximum number of frames
+     */
+    private static int getCapacity() {
+        return (int) Math.max(8, memoryBudget / FileHandler.getBlockSize());
+    }
+
+    /**
+     * This method returns a free frame. While the pool has not reached its capacity a new frame is allocated, otherwise
+     * the CLOCK hand sweeps over the frames, gives every referenced frame a second chance and evicts the first frame
+     * that is neither referenced nor pinned. A dirty frame is skipped while a transaction runs and written back before
+     * it is evicted otherwise, after the committed transactions that wait for their group are forced to the log.
+     *
+     * @return the index of the free frame
+     * @throws IOException if the page of an evicted dirty frame cannot be written to the index file
+     */
+    private static int chooseVictim() throws IOException {
+        int capacity = getCapacity();
+        if (usedFrames < capacity) {
+            if (usedFrames == framePages.length) growFrames(Math.min(capacity, Math.max(16, 2 * usedFrames)));
+            framePages[usedFrames] = new byte[FileHandler.getBlockSize()];
+            frameBuffers[usedFrames] = ByteBuffer.wrap(framePages[usedFrames]).asReadOnlyBuffer();
+            return usedFrames++;
+        }
+        for (int sweeps = 0; sweeps < 2 * usedFrames; sweeps++) {
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % usedFrames;
+            if (pinCounts[frame] > 0 || (dirty[frame] && WriteAheadLog.isActive())) continue;
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+            if (dirty[frame]) {
+                if (WriteAheadLog.hasPendingCommits()) WriteAheadLog.sync();
+                else writePage(frame);
+            }
+            if (frameBlockIds[frame] != -1) pageTable.remove(frameBlockIds[frame]);
+            return frame;
+        }
+        throw new IllegalStateException("All " + usedFrames + " buffer pool frames are pinned or hold writes of the running transaction");
+    }
+
+    /**
+     * This method enlarges the frame arrays to the given number of frames.
+     *
+     * @param frames the new number of frames
+     */
+    private static void growFrames(int frames) {
+        int[] newBlockIds = new int[frames];
+        byte[][] newPages = new byte[frames][];
+        ByteBuffer[] newBuffers = new ByteBuffer[frames];
+        int[] newPinCounts = new int[frames];
+        boolean[] newReferenced = new boolean[frames];
+        boolean[] newDirty = new boolean[frames];
+        System.arraycopy(frameBlockIds, 0, newBlockIds, 0, usedFrames);
+        System.arraycopy(framePages, 0, newPages, 0, usedFrames);
+        System.arraycopy(frameBuffers, 0, newBuffers, 0, usedFrames);
+        System.arraycopy(pinCounts, 0, newPinCounts, 0, usedFrames);
+        System.arraycopy(referenced, 0, newReferenced, 0, usedFrames);
+        System.arraycopy(dirty, 0, newDirty, 0, usedFrames);
+        frameBlockIds = newBlockIds;
+        framePages = newPages;
+        frameBuffers = newBuffers;
+        pinCounts = newPinCounts;
+        referenced = newReferenced;
+        dirty = newDirty;
+    }
+
+    /**
+     * This method reads a block of the index file into the given page. The part of the block that lies after the end of
+     * the file is filled with zeros.
+     *
+     * @param blockId the id of the block to read
+     * @param page    the page to fill
+     * @throws IOException if the block cannot be read from the index file
+     */
+    private static void readPage(int blockId, byte[] page) throws IOException {
+        RandomAccessFile file = getIndexfile();
+        long position = (long) blockId * page.length;
+        int available = (int) Math.max(0, Math.min(page.length, file.length() - position));
+        if (available > 0) {
+            file.seek(position);
+            file.readFully(page, 0, available);
+        }
+        for (int i = available; i < page.length; i++) page[i] = 0;
+    }
+
+    private static RandomAccessFile getIndexfile() throws IOException {
+        if (indexfile == null) indexfile = new RandomAccessFile(FileHandler.getIndexfilePath(), "rw");
+        return indexfile;
+    }
+
+}
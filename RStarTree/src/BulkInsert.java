@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * This class inserts a batch of new records into the data file and into an existing tree at once. The batch is sorted
+ * along the Hilbert curve and packed into new leaves, as in the bottom-up construction, and every new leaf is grafted
+ * into the tree as an entry of the node one level above the leaves that needs the least enlargement to hold its MBR. A
+ * node that overflows is split like the nodes of the point by point construction and the MBRs on the path of the leaf
+ * are enlarged up to the root, so the cost of a batch grows with the number of its leaves instead of its records.
+ * <p>
+ * A batch that cannot fill a leaf to the minimum is inserted record by record. A tree that is a single leaf, or a
+ * batch that is at least as large as the tree, is not grafted: the tree is rebuilt bottom-up from all the records
+ * instead, which costs about as much as packing the batch and gives the better tree.
+ */
+public class BulkInsert {
+
+    /**
+     * This method inserts the given records into the data file and into the tree. The records are appended to the data
+     * file and to the record table, and the tree is then extended by grafting, by single inserts or by a rebuild. Every
+     * grafted leaf and every single insert is one transaction of the write-ahead log. If an exception occurs during this
+     * process, it is caught and the stack trace is printed.
+     *
+     * @param batch the new records, with their coordinates, node ids and names
+     */
+    public static void insert(ArrayList<Record> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            int noOfTreeRecords = RecordTable.size();
+            ArrayList<Record> records = appendToDatafile(batch, noOfTreeRecords);
+            int minimum = (int) Math.floor(FileHandler.calculateMaxBlockNodes() * Split.getM());
+            if (FileHandler.getRoot() == -1 || FileHandler.getLeafLevel() < 1 || records.size() >= noOfTreeRecords) {
+                FileHandler.createIndexFile(false);
+                new BottomUp().construct();
+            } else if (records.size() < minimum) {
+                for (Record record : records) {
+                    WriteAheadLog.begin();
+                    try {
+                        Insert.insert(record);
+                        Superblock.writeIndexfile();
+                    } finally {
+                        WriteAheadLog.commit();
+                    }
+                }
+            } else {
+                graftLeaves(records);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method appends the given records to the data file and to the record table and adds them to the loaded
+     * records.
+     *
+     * @param batch   the new records
+     * @param firstId the id of the first new record
+     * @return the new records with their ids and their locations in the data file
+     * @throws IOException if the record table cannot be read
+     */
+    private static ArrayList<Record> appendToDatafile(ArrayList<Record> batch, int firstId) throws IOException {
+        Insert.datafileMassInsert(batch);
+        ArrayList<Record> records = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int id = firstId + i;
+            RecordLocation location = RecordTable.location(id);
+            double[] coords = batch.get(i).getCoords();
+            Record record = new Record(coords[0], coords[1], location.getBlock(), location.getSlot(), id, batch.get(i).getNodeId());
+            FileHandler.addRecord(record);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * This method packs the given records into leaves in the order of the Hilbert curve, with the sizes of the leaves
+     * of the bottom-up construction, and grafts the leaves into the tree one after the other.
+     *
+     * @param records the new records
+     * @throws IOException if the index file cannot be read or written
+     */
+    private static void graftLeaves(ArrayList<Record> records) throws IOException {
+        int[] sortedIndexes = HilbertSort.sort(records);
+        int[] leafSizes = BottomUp.nodeSizes(records.size(), FileHandler.calculateMaxBlockNodes());
+        int next = 0;
+        for (int leafSize : leafSizes) {
+            WriteAheadLog.begin();
+            try {
+                graftLeaf(records, sortedIndexes, next, leafSize);
+                Superblock.writeIndexfile();
+            } finally {
+                WriteAheadLog.commit();
+            }
+            next += leafSize;
+        }
+    }
+
+    /**
+     * This method writes a new leaf with the given records and adds it as an entry to the node above the leaves that
+     * needs the least enlargement to hold it. The MBRs on the path are enlarged up to the root before the leaf is added,
+     * while the blocks of the path are current, so a split of a full node climbs up a path whose entries already hold
+     * the leaf.
+     *
+     * @param records       the new records
+     * @param sortedIndexes the indexes of the records in the order of the Hilbert curve
+     * @param first         the position of the first record of the leaf in the order
+     * @param size          the number of records of the leaf
+     * @throws IOException if the index file cannot be read or written
+     */
+    private static void graftLeaf(ArrayList<Record> records, int[] sortedIndexes, int first, int size) throws IOException {
+        int blockSize = FileHandler.getBlockSize();
+        int dimensions = FileHandler.getDimensions();
+        int leafLevel = FileHandler.getLeafLevel();
+        byte[] block = new byte[blockSize];
+        double[] mbr = new double[2 * dimensions];
+        for (int i = 0; i < size; i++) {
+            Record record = records.get(sortedIndexes[first + i]);
+            NodeView.putLeafEntry(block, i, record.getLAT(), record.getLON(), record.getId());
+            Split.calculateMBRpointbypoint(mbr, record, i == 0, false);
+        }
+        InsertPath path = new InsertPath();
+        int parent = chooseParent(mbr, leafLevel - 1, path);
+        FileHandler.setNoOfIndexfileBlocks(FileHandler.getNoOfIndexfileBlocks() + 1);
+        int blockId = FileHandler.hasFreeIndexBlocks() ? FileHandler.takeFreeIndexBlock() : FileHandler.getNoOfIndexfileBlocks();
+        System.arraycopy(ConversionToBytes.intToBytes(leafLevel), 0, block, 0, Integer.BYTES);
+        System.arraycopy(ConversionToBytes.intToBytes(size), 0, block, Integer.BYTES, Integer.BYTES);
+        System.arraycopy(ConversionToBytes.intToBytes(parent), 0, block, 2 * Integer.BYTES, Integer.BYTES);
+        BufferPool.writeBlock(blockId, block);
+        ReadjustMBR.reAdjustRectangleBounds(path, path.depth() - 1, mbr, false);
+        int noOfEntries = path.entryCount(path.depth() - 1);
+        if (noOfEntries < FileHandler.calculateMaxBlockRectangles()) {
+            int entrySize = NodeView.internalEntrySize(dimensions);
+            byte[] entry = new byte[entrySize];
+            int counter = NodeView.putRectangle(entry, 0, mbr);
+            System.arraycopy(ConversionToBytes.intToBytes(blockId), 0, entry, counter, Integer.BYTES);
+            BufferPool.write((long) parent * blockSize + 3 * Integer.BYTES + (long) noOfEntries * entrySize, entry);
+            BufferPool.write((long) parent * blockSize + Integer.BYTES, ConversionToBytes.intToBytes(noOfEntries + 1));
+        } else {
+            Split.splitRectangle(parent, mbr, blockId, path, path.depth() - 1);
+        }
+    }
+
+    /**
+     * This method descends from the root to the node of the given level whose entry needs the least area enlargement to
+     * hold the given rectangle, ties broken by the smaller area. The nodes on the way are kept in the given path, so a
+     * split of the node climbs back up the path.
+     *
+     * @param rectangle the rectangle
+     * @param level     the level of the node
+     * @param path      the path that receives the nodes from the root to the chosen node
+     * @return the block id of the node
+     * @throws IOException if a node cannot be read
+     */
+    private static int chooseParent(double[] rectangle, int level, InsertPath path) throws IOException {
+        NodeView node = new NodeView();
+        double[] entry = new double[rectangle.length];
+        double[] enlarged = new double[rectangle.length];
+        int blockId = 1;
+        path.clear();
+        while (true) {
+            node.wrap(ByteBuffer.wrap(path.push(blockId)), 0);
+            if (node.level() >= level) {
+                return blockId;
+            }
+            int chosen = 0;
+            double leastEnlargement = Double.MAX_VALUE;
+            double leastArea = Double.MAX_VALUE;
+            for (int i = 0; i < node.entryCount(); i++) {
+                node.rectangle(i, entry);
+                System.arraycopy(entry, 0, enlarged, 0, entry.length);
+                Geometry.include(enlarged, rectangle);
+                double area = Geometry.area(entry);
+                double enlargement = Geometry.area(enlarged) - area;
+                if (enlargement < leastEnlargement || (enlargement == leastEnlargement && area < leastArea)) {
+                    leastEnlargement = enlargement;
+                    leastArea = area;
+                    chosen = i;
+                }
+            }
+            path.follow(chosen);
+            blockId = node.child(chosen);
+        }
+    }
+
+}
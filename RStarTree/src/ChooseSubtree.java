@@ -1,26 +1,46 @@
-import java.io.File;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * This class provides methods to handle the process of choosing a subtree to insert a given record. It also provides
  * methods to determine the best insertion for rectangles and records.
+ * <p>
+ * Above the leaves the entry is chosen by the least overlap with its siblings, which compares every entry with every
+ * other one. In a node with more entries than the overlap candidates, only the candidates with the least area
+ * enlargement are compared with their siblings, the nearly minimum overlap of the R* tree, so the cost of the choice
+ * grows linearly with the entries of the node instead of quadratically.
  */
 public class ChooseSubtree {
+    private static int overlapCandidates = 32;
 
     /**
-     * Chooses a subtree to insert a given record. If the tree is empty, a new root is created.
+     * This method sets the number of entries with the least area enlargement whose overlap is calculated when the
+     * entry above the leaves is chosen. A number at least as large as the entries of a node calculates the overlap of
+     * every entry.
      *
-     * @param record       the record to be inserted
-     * @param currentBlock the current block in the tree where we are considering to insert the record
+     * @param candidates the number of candidates, at least 1
+     */
+    public static void setOverlapCandidates(int candidates) {
+        overlapCandidates = Math.max(1, candidates);
+    }
+
+    public static int getOverlapCandidates() {
+        return overlapCandidates;
+    }
+
+    /**
+     * Chooses a subtree to insert a given record. If the tree is empty, a new root is created. The tree is descended
+     * from the root and every node on the way is kept in the given path with the index of the entry that was followed,
+     * so the insert climbs back up the path without reading the ancestors again.
+     *
+     * @param record the record to be inserted
+     * @param path   the path that receives the nodes from the root to the chosen leaf
      * @return the block where the record should be inserted
      */
-    public static int chooseSubtree(Record record, int currentBlock) {
+    public static int chooseSubtree(Record record, InsertPath path) {
         try {
             int root = FileHandler.getRoot();
-            String IndexfilePath = FileHandler.getIndexfilePath();
             int blockSize = FileHandler.getBlockSize();
             int leafLevel = FileHandler.getLeafLevel();
             int noOfIndexfileBlocks = FileHandler.getNoOfIndexfileBlocks();
@@ -30,80 +50,37 @@ public class ChooseSubtree {
                 leafLevel++;
                 FileHandler.setNoOfIndexfileBlocks(noOfIndexfileBlocks);
                 FileHandler.setLeafLevel(leafLevel);
-                RandomAccessFile indexfile = new RandomAccessFile(IndexfilePath, "rw");
-                indexfile.seek(4);
-                indexfile.write(ConversionToBytes.intToBytes(noOfIndexfileBlocks));
-                indexfile.seek(8);
-                indexfile.write(ConversionToBytes.intToBytes(leafLevel));
+                Superblock.writeIndexfile();
                 byte[] block = new byte[blockSize];
                 System.arraycopy(ConversionToBytes.intToBytes(leafLevel), 0, block, 0, Integer.BYTES);
                 System.arraycopy(ConversionToBytes.intToBytes(0), 0, block, Integer.BYTES, Integer.BYTES);
                 System.arraycopy(ConversionToBytes.intToBytes(-1), 0, block, 2 * Integer.BYTES, Integer.BYTES);
-                indexfile.seek((long) blockSize * noOfIndexfileBlocks);
-                indexfile.write(block);
-                indexfile.close();
+                BufferPool.writeBlock(noOfIndexfileBlocks, block);
             }
-            File file = new File(IndexfilePath);
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] dataBlock = new byte[blockSize];
-            System.arraycopy(bytes, currentBlock * blockSize, dataBlock, 0, blockSize);
-            byte[] level = new byte[Integer.BYTES];
-            byte[] currentNoOfEntries = new byte[Integer.BYTES];
-            byte[] parentPointer = new byte[Integer.BYTES];
-            System.arraycopy(dataBlock, 0, level, 0, Integer.BYTES);
-            System.arraycopy(dataBlock, Integer.BYTES, currentNoOfEntries, 0, Integer.BYTES);
-            System.arraycopy(dataBlock, 2 * Integer.BYTES, parentPointer, 0, Integer.BYTES);
-            int tempLevel = ByteBuffer.wrap(level).getInt();
-            int tempCurrentNoOfEntries = ByteBuffer.wrap(currentNoOfEntries).getInt();
-            ByteBuffer.wrap(parentPointer).getInt();
-            if (tempLevel == leafLevel) {
-                return currentBlock;
-            } else if (tempLevel + 1 == leafLevel) {
-                ArrayList<double[][]> rectangles = new ArrayList<>();
-                double[][] temp = new double[dimensions][dimensions];
-                int[] IDs = new int[tempCurrentNoOfEntries];
-                int counter = 12;
-                byte[] tempSave = new byte[Double.BYTES];
-                byte[] tempSaveID = new byte[Integer.BYTES];
-                for (int i = 0; i < tempCurrentNoOfEntries; i++) {
-                    for (int j = 0; j < 2; j++) {
-                        for (int k = 0; k < dimensions; k++) {
-                            System.arraycopy(dataBlock, counter, tempSave, 0, Double.BYTES);
-                            temp[j][k] = ByteBuffer.wrap(tempSave).getDouble();
-                            counter += Double.BYTES;
-                        }
-                    }
-                    rectangles.add(temp);
-                    System.arraycopy(dataBlock, counter, tempSaveID, 0, Integer.BYTES);
-                    IDs[i] = ByteBuffer.wrap(tempSaveID).getInt();
-                    counter += Integer.BYTES;
-                    temp = new double[dimensions][dimensions];
+            path.clear();
+            NodeView node = new NodeView();
+            int currentBlock = 1;
+            while (true) {
+                node.wrap(ByteBuffer.wrap(path.push(currentBlock)), 0);
+                int tempLevel = node.level();
+                int tempCurrentNoOfEntries = node.entryCount();
+                if (tempLevel == leafLevel) {
+                    return currentBlock;
                 }
-                int result = determine_best_insertion(rectangles, record);
-                return chooseSubtree(record, IDs[result]);
-            } else {
-                ArrayList<double[][]> rectangles = new ArrayList<>();
-                double[][] temp = new double[dimensions][dimensions];
+                ArrayList<double[]> rectangles = new ArrayList<>();
                 int[] IDs = new int[tempCurrentNoOfEntries];
-                int counter = 12;
-                byte[] tempSave = new byte[Double.BYTES];
-                byte[] tempSaveID = new byte[Integer.BYTES];
                 for (int i = 0; i < tempCurrentNoOfEntries; i++) {
-                    for (int j = 0; j < 2; j++) {
-                        for (int k = 0; k < dimensions; k++) {
-                            System.arraycopy(dataBlock, counter, tempSave, 0, Double.BYTES);
-                            temp[j][k] = ByteBuffer.wrap(tempSave).getDouble();
-                            counter += Double.BYTES;
-                        }
-                    }
-                    rectangles.add(temp);
-                    System.arraycopy(dataBlock, counter, tempSaveID, 0, Integer.BYTES);
-                    IDs[i] = ByteBuffer.wrap(tempSaveID).getInt();
-                    counter += Integer.BYTES;
-                    temp = new double[dimensions][dimensions];
+                    rectangles.add(node.rectangle(i, new double[2 * dimensions]));
+                    IDs[i] = node.child(i);
+                }
+                int result;
+                if (tempLevel + 1 == leafLevel) {
+                    result = determine_best_insertion(rectangles, record);
+                } else {
+                    result = determine_best_insertion_forRectangles(rectangles, record);
                 }
-                int result = determine_best_insertion_forRectangles(rectangles, record);
-                return chooseSubtree(record, IDs[result]);
+                path.follow(result);
+                currentBlock = IDs[result];
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -112,32 +89,26 @@ public class ChooseSubtree {
     }
 
     /**
-     * Calculates the least overlap with siblings, among siblings.
+     * Calculates the least area enlargement, among siblings.
      *
-     * @param rectangles the rectangles to calculate the least overlap with
-     * @param record     the record for which the least overlap is calculated
-     * @return the index of the rectangle with the least overlap
+     * @param rectangles the rectangles to calculate the least area enlargement with
+     * @param record     the record for which the least area enlargement is calculated
+     * @return the index of the rectangle with the least area enlargement
      */
-    public static int determine_best_insertion_forRectangles(ArrayList<double[][]> rectangles, Record record) {
-        int dimensions = FileHandler.getDimensions();
-        double[][] temp1 = new double[(int) Math.pow(2, dimensions)][dimensions];
-        double[][] temp3 = new double[(int) Math.pow(2, dimensions)][dimensions];
+    public static int determine_best_insertion_forRectangles(ArrayList<double[]> rectangles, Record record) {
+        double[] enlarged = new double[2 * FileHandler.getDimensions()];
         double area_diff;
         double area = 0;
         double least_diff = Double.MAX_VALUE;
         int result = 0;
         for (int i = 0; i < rectangles.size(); i++) {
-            Split.points_to_rectangle(rectangles.get(i), temp1);
-            for (int b = 0; b < temp1.length; b++)
-                System.arraycopy(temp1[b], 0, temp3[b], 0, temp1[0].length);
-            Split.calculateMBRpointbypoint(temp1, record, false, false);
-            area_diff = Split.calcAreaDiff(temp1, temp3);
+            area_diff = Geometry.enlargement(rectangles.get(i), record.getLAT(), record.getLON());
             if (area_diff < least_diff) {
                 least_diff = area_diff;
                 result = i;
-                area = Split.calcArea(temp1);
+                area = enlargedArea(rectangles.get(i), record, enlarged);
             } else if (area_diff == least_diff) {
-                double b = Split.calcArea(temp1);
+                double b = enlargedArea(rectangles.get(i), record, enlarged);
                 if (b < area) {
                     area = b;
                     result = i;
@@ -148,47 +119,57 @@ public class ChooseSubtree {
     }
 
     /**
-     * Calculates the least overlap with siblings, among siblings.
+     * Calculates the least overlap with siblings, among the entries with the least area enlargement. If the rectangles
+     * are more than the overlap candidates, they are sorted by their area enlargement and only the first candidates are
+     * compared with all their siblings, in the order of the rectangles, so ties are broken as if all were compared.
      *
      * @param rectangles the rectangles to calculate the least overlap with
      * @param record     the record for which the least overlap is calculated
      * @return the index of the rectangle with the least overlap
      */
-    public static int determine_best_insertion(ArrayList<double[][]> rectangles, Record record) {
-        int dimensions = FileHandler.getDimensions();
-        double[][] temp1 = new double[(int) Math.pow(2, dimensions)][dimensions];
-        double[][] temp2 = new double[(int) Math.pow(2, dimensions)][dimensions];
-        double[][] temp3 = new double[(int) Math.pow(2, dimensions)][dimensions];
+    public static int determine_best_insertion(ArrayList<double[]> rectangles, Record record) {
+        double[] enlarged = new double[2 * FileHandler.getDimensions()];
+        double[] enlargements = new double[rectangles.size()];
+        for (int i = 0; i < rectangles.size(); i++) {
+            enlargements[i] = Geometry.enlargement(rectangles.get(i), record.getLAT(), record.getLON());
+        }
+        int[] candidates;
+        if (rectangles.size() > overlapCandidates) {
+            candidates = Arrays.copyOf(IndexSort.ascending(enlargements), overlapCandidates);
+            Arrays.sort(candidates);
+        } else {
+            candidates = new int[rectangles.size()];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = i;
+            }
+        }
         double temp_overlap = 0;
         double area_diff = 0;
         double area = 0;
         double least_overlap = Double.MAX_VALUE;
         int result = 0;
-        for (int i = 0; i < rectangles.size(); i++) {
-            Split.points_to_rectangle(rectangles.get(i), temp1);
-            for (int b = 0; b < temp1.length; b++)
-                System.arraycopy(temp1[b], 0, temp3[b], 0, temp1[0].length);
-            Split.calculateMBRpointbypoint(temp1, record, false, false);
+        for (int i : candidates) {
+            System.arraycopy(rectangles.get(i), 0, enlarged, 0, enlarged.length);
+            Geometry.include(enlarged, record.getLAT(), record.getLON());
             for (int j = 0; j < rectangles.size(); j++) {
                 if (j != i) {
-                    Split.points_to_rectangle(rectangles.get(j), temp2);
-                    temp_overlap += Split.calcOverlap(temp1, temp2);
+                    temp_overlap += Split.calcOverlap(enlarged, rectangles.get(j));
                 }
             }
             if (temp_overlap < least_overlap) {
                 least_overlap = temp_overlap;
                 result = i;
-                area_diff = Split.calcAreaDiff(temp1, temp3);
-                area = Split.calcArea(temp1);
+                area_diff = enlargements[i];
+                area = Geometry.area(enlarged);
             } else if (temp_overlap == least_overlap) {
-                double b = Split.calcAreaDiff(temp1, temp3);
+                double b = enlargements[i];
                 if (b < area_diff) {
                     area_diff = b;
                     result = i;
-                    area = Split.calcArea(temp1);
+                    area = Geometry.area(enlarged);
                 }
                 if (b == area_diff) {
-                    double c = Split.calcArea(temp1);
+                    double c = Geometry.area(enlarged);
                     if (c < area) {
                         result = i;
                         area = c;
@@ -200,4 +181,18 @@ public class ChooseSubtree {
         return result;
     }
 
-}
\ No newline at end of file
+    /**
+     * Calculates the area of a rectangle after it is enlarged to contain the given record.
+     *
+     * @param rectangle the rectangle
+     * @param record    the record
+     * @param enlarged  the array that receives the enlarged rectangle
+     * @return the area of the enlarged rectangle
+     */
+    private static double enlargedArea(double[] rectangle, Record record, double[] enlarged) {
+        System.arraycopy(rectangle, 0, enlarged, 0, enlarged.length);
+        Geometry.include(enlarged, record.getLAT(), record.getLON());
+        return Geometry.area(enlarged);
+    }
+
+}
@@ -0,0 +1,247 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * This class keeps the compressed copy of the index file. Every node of the tree is written to the copy in the
+ * compressed format of the NodeView, which delta-encodes the coordinates against the lower corner of the node MBR and
+ * stores them and the pointers as varints, so the copy is a few times smaller than the index file and stays in the OS
+ * page cache on trees whose index file does not. With compressed reads on, the NodeView decodes the nodes from the
+ * mapped copy straight into its primitive arrays, so the queries run on the copy without any change.
+ * <p>
+ * The copy is written by build from a traversal of the tree. It starts with a header of a magic number, the format
+ * version, the number of dimensions, the number of entries of the node directory, the generation of the index file the
+ * copy was built from and the position of the node directory, followed by the nodes and the directory, which holds the
+ * position of every node by its block id. A node never crosses the boundary of a 1GB segment, so every node can be read
+ * from one mapping.
+ * <p>
+ * The tree is still modified in the index file only. The first write of a block after the copy was built marks the copy
+ * stale and increases the generation of the index file, which is stored in its superblock, so a stale copy is also
+ * detected when the files are opened again. The NodeView reads a stale copy never, it reads the index file until the
+ * copy is built again by update.
+ */
+public class CompressedIndex {
+    public static final int magic = 0x52535443; // "RSTC"
+    public static final int version = 1;
+    private static final String CompressedIndexPath = "indexfile.cdat";
+    private static final int headerSize = 4 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int segmentSize = 1 << 30;
+    private static boolean current = false;
+    private static long[] directory = new long[0];
+    private static long directoryPosition = 0;
+    private static FileChannel channel = null;
+    private static MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * This method builds the compressed copy again if compressed reads are on, the tree has been built and the copy is
+     * missing or stale. If an exception occurs during this process, it is caught and the stack trace is printed.
+     */
+    public static void update() {
+        if (!FileHandler.isCompressed() || current || FileHandler.getNoOfIndexfileBlocks() < 1) return;
+        try {
+            build();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method writes the compressed copy of the index file. The nodes are read with a breadth-first traversal from
+     * the root, so the nodes of a level lie next to each other in the copy, and the copy is current once it is written.
+     * The dirty pages are flushed first, so the copy never holds a write that the index file of its generation lacks.
+     * It must not be called while a transaction runs.
+     *
+     * @throws IOException if the index file cannot be read or the copy cannot be written
+     */
+    public static void build() throws IOException {
+        reset();
+        BufferPool.flush();
+        long[] positions = new long[FileHandler.getNoOfIndexfileBlocks() + 1];
+        Arrays.fill(positions, -1);
+        ByteBuffer encoded = ByteBuffer.allocate(2 * FileHandler.getBlockSize() + 1024);
+        byte[] padding = new byte[4096];
+        long position = headerSize;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(CompressedIndexPath), 1 << 20)) {
+            out.write(new byte[headerSize]);
+            ArrayDeque<Integer> pointers = new ArrayDeque<>();
+            if (FileHandler.getRoot() >= 1) pointers.add(FileHandler.getRoot());
+            NodeView node = new NodeView();
+            while (!pointers.isEmpty()) {
+                int blockId = pointers.poll();
+                try {
+                    node.pin(blockId);
+                    encoded.clear();
+                    NodeView.encode(node, encoded);
+                    if (node.level() != FileHandler.getLeafLevel()) {
+                        for (int i = 0; i < node.entryCount(); i++) {
+                            pointers.add(node.child(i));
+                        }
+                    }
+                } finally {
+                    node.release();
+                }
+                // a node that would cross the end of a segment starts the next segment
+                if (position / segmentSize != (position + encoded.position() - 1) / segmentSize) {
+                    long next = (position / segmentSize + 1) * segmentSize;
+                    for (; position < next; position += Math.min(padding.length, next - position)) {
+                        out.write(padding, 0, (int) Math.min(padding.length, next - position));
+                    }
+                }
+                if (blockId >= positions.length) {
+                    int length = positions.length;
+                    positions = Arrays.copyOf(positions, Math.max(blockId + 1, 2 * length));
+                    Arrays.fill(positions, length, positions.length, -1);
+                }
+                positions[blockId] = position;
+                out.write(encoded.array(), 0, encoded.position());
+                position += encoded.position();
+            }
+            ByteBuffer directoryBytes = ByteBuffer.allocate(positions.length * Long.BYTES);
+            for (long p : positions) {
+                directoryBytes.putLong(p);
+            }
+            out.write(directoryBytes.array());
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(magic);
+        header.putInt(version);
+        header.putInt(FileHandler.getDimensions());
+        header.putInt(positions.length);
+        header.putLong(FileHandler.getGeneration());
+        header.putLong(position);
+        try (RandomAccessFile file = new RandomAccessFile(CompressedIndexPath, "rw")) {
+            file.write(header.array());
+        }
+        directory = positions;
+        directoryPosition = position;
+        current = true;
+    }
+
+    /**
+     * This method opens the compressed copy of the index file. The header and the node directory are read, the nodes
+     * are mapped when they are first read. The copy is current only if it was built from the generation of the index
+     * file that is open.
+     *
+     * @throws IOException if the copy cannot be read
+     */
+    public static void open() throws IOException {
+        reset();
+        Path path = Path.of(CompressedIndexPath);
+        if (!Files.exists(path) || Files.size(path) < headerSize) return;
+        try (RandomAccessFile file = new RandomAccessFile(CompressedIndexPath, "r")) {
+            byte[] bytes = new byte[headerSize];
+            file.readFully(bytes);
+            ByteBuffer header = ByteBuffer.wrap(bytes);
+            if (header.getInt() != magic || header.getInt() != version || header.getInt() != FileHandler.getDimensions()) return;
+            int noOfEntries = header.getInt();
+            if (header.getLong() != FileHandler.getGeneration()) return;
+            long position = header.getLong();
+            if (file.length() < position + (long) noOfEntries * Long.BYTES) return;
+            byte[] directoryBytes = new byte[noOfEntries * Long.BYTES];
+            file.seek(position);
+            file.readFully(directoryBytes);
+            long[] positions = new long[noOfEntries];
+            ByteBuffer.wrap(directoryBytes).asLongBuffer().get(positions);
+            directory = positions;
+            directoryPosition = position;
+            current = true;
+        }
+    }
+
+    /**
+     * This method returns a view of the compressed node of the given block, positioned at the first byte of the node.
+     *
+     * @param blockId the id of the block
+     * @return the compressed node, or null if the copy is stale or holds no node for the block
+     * @throws IOException if the copy cannot be mapped
+     */
+    public static ByteBuffer getNode(int blockId) throws IOException {
+        if (!current || blockId < 0 || blockId >= directory.length || directory[blockId] < 0) return null;
+        long position = directory[blockId];
+        int segment = (int) (position / segmentSize);
+        MappedByteBuffer mapped = segment < segments.length ? segments[segment] : null;
+        if (mapped == null) mapped = map(segment);
+        return mapped.duplicate().position((int) (position % segmentSize));
+    }
+
+    /**
+     * This method marks the copy stale. It is called by the BufferPool before a block of the tree is written, and the
+     * generation of the index file is increased on the first write after the copy was built.
+     */
+    public static void invalidate() {
+        if (!current) return;
+        current = false;
+        FileHandler.setGeneration(FileHandler.getGeneration() + 1);
+    }
+
+    public static boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * This method returns the size of the compressed copy of the index file.
+     *
+     * @return the size of the copy in bytes, or 0 if the copy is stale
+     */
+    public static long size() {
+        return current ? directoryPosition + (long) directory.length * Long.BYTES : 0;
+    }
+
+    /**
+     * This method deletes the compressed copy. It is called whenever the index file is created again.
+     *
+     * @throws IOException if the copy cannot be deleted
+     */
+    public static void delete() throws IOException {
+        reset();
+        Files.deleteIfExists(Path.of(CompressedIndexPath));
+    }
+
+    /**
+     * This method drops the mappings and the node directory and closes the copy.
+     */
+    public static void reset() {
+        current = false;
+        directory = new long[0];
+        directoryPosition = 0;
+        segments = new MappedByteBuffer[0];
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * This method maps the given segment of the copy up to the position of the node directory.
+     *
+     * @param segment the number of the segment
+     * @return the new mapping of the segment
+     * @throws IOException if the copy cannot be mapped
+     */
+    private static MappedByteBuffer map(int segment) throws IOException {
+        if (channel == null) channel = FileChannel.open(Path.of(CompressedIndexPath), StandardOpenOption.READ);
+        long start = (long) segment * segmentSize;
+        long length = Math.max(0, Math.min(segmentSize, directoryPosition - start));
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (segment >= segments.length) {
+            MappedByteBuffer[] newSegments = new MappedByteBuffer[segment + 1];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            segments = newSegments;
+        }
+        segments[segment] = mapped;
+        return mapped;
+    }
+
+}
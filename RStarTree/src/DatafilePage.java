@@ -0,0 +1,157 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is the codec of the blocks of the data file. Every block after the superblock is a slotted page. The page
+ * starts with a header of the number of slots and the offset where the free space of the page ends, followed by the
+ * slot directory, one offset per slot. The records are written from the end of the page towards the slot directory, so
+ * the free space lies between the two. A record holds the node id, one coordinate per dimension, the length of the
+ * name and the UTF-8 bytes of the name.
+ * <p>
+ * A record is found by its RecordLocation, the block and the number of its slot, with one look-up in the slot
+ * directory, so neither a fetch nor an append has to scan the page. Names are length-prefixed, so they may hold any
+ * byte. A DatafilePage is a flyweight over the bytes of a block and is meant to be reused for every block it reads.
+ */
+public class DatafilePage {
+    public static final int headerSize = 2 * Integer.BYTES;
+    public static final int slotSize = Integer.BYTES;
+    private ByteBuffer buffer;
+    private int dimensions;
+
+    /**
+     * This method returns the number of bytes a record takes in a page, without its slot.
+     *
+     * @param dimensions the number of dimensions
+     * @param nameLength the number of bytes of the UTF-8 name, 0 if the record has no name
+     * @return the size of the record in bytes
+     */
+    public static int recordSize(int dimensions, int nameLength) {
+        return Long.BYTES + dimensions * Double.BYTES + Short.BYTES + nameLength;
+    }
+
+    /**
+     * This method points the page to the given block bytes.
+     *
+     * @param block the bytes of the block
+     * @return this page
+     */
+    public DatafilePage wrap(byte[] block) {
+        return wrap(ByteBuffer.wrap(block));
+    }
+
+    /**
+     * This method points the page to the block that starts at the position 0 of the given buffer.
+     *
+     * @param buffer the buffer that holds the block
+     * @return this page
+     */
+    public DatafilePage wrap(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.dimensions = FileHandler.getDimensions();
+        return this;
+    }
+
+    /**
+     * This method formats the block as an empty page, with no slots and the whole block as free space.
+     *
+     * @return this page
+     */
+    public DatafilePage init() {
+        buffer.putInt(0, 0);
+        buffer.putInt(Integer.BYTES, buffer.capacity());
+        return this;
+    }
+
+    public int noOfSlots() {
+        return buffer.getInt(0);
+    }
+
+    public int freeSpaceEnd() {
+        return buffer.getInt(Integer.BYTES);
+    }
+
+    /**
+     * This method returns the number of free bytes between the slot directory and the records of the page.
+     *
+     * @return the free space of the page in bytes
+     */
+    public int freeSpace() {
+        return freeSpaceEnd() - headerSize - noOfSlots() * slotSize;
+    }
+
+    /**
+     * This method checks if a record with a name of the given length and its slot fit in the free space of the page.
+     *
+     * @param nameLength the number of bytes of the UTF-8 name
+     * @return true if the record fits in the page
+     */
+    public boolean fits(int nameLength) {
+        return recordSize(dimensions, nameLength) + slotSize <= freeSpace();
+    }
+
+    /**
+     * This method adds a record to the page. The record is written in front of the records already in the page and a
+     * new slot that points to it is added to the slot directory. The caller must check with fits that the record fits.
+     *
+     * @param nodeId the node id of the record
+     * @param coords the coordinates of the record
+     * @param name   the UTF-8 bytes of the name, or null if the record has no name
+     * @return the number of the slot of the record
+     */
+    public int add(long nodeId, double[] coords, byte[] name) {
+        int nameLength = name != null ? name.length : 0;
+        int slot = noOfSlots();
+        int offset = freeSpaceEnd() - recordSize(dimensions, nameLength);
+        buffer.putLong(offset, nodeId);
+        for (int i = 0; i < dimensions; i++) {
+            buffer.putDouble(offset + Long.BYTES + i * Double.BYTES, coords[i]);
+        }
+        buffer.putShort(offset + Long.BYTES + dimensions * Double.BYTES, (short) nameLength);
+        if (nameLength > 0) buffer.put(offset + Long.BYTES + dimensions * Double.BYTES + Short.BYTES, name);
+        buffer.putInt(headerSize + slot * slotSize, offset);
+        buffer.putInt(0, slot + 1);
+        buffer.putInt(Integer.BYTES, offset);
+        return slot;
+    }
+
+    /**
+     * This method returns the offset of the record of the given slot in the page.
+     *
+     * @param slot the number of the slot
+     * @return the offset of the record in the page
+     */
+    public int offset(int slot) {
+        return buffer.getInt(headerSize + slot * slotSize);
+    }
+
+    public long nodeId(int slot) {
+        return buffer.getLong(offset(slot));
+    }
+
+    /**
+     * This method returns a coordinate of the record of the given slot.
+     *
+     * @param slot      the number of the slot
+     * @param dimension the dimension of the coordinate
+     * @return the coordinate of the record in the dimension
+     */
+    public double coordinate(int slot, int dimension) {
+        return buffer.getDouble(offset(slot) + Long.BYTES + dimension * Double.BYTES);
+    }
+
+    /**
+     * This method returns the name of the record of the given slot.
+     *
+     * @param slot the number of the slot
+     * @return the name of the record, or null if the record has no name
+     */
+    public String name(int slot) {
+        int lengthOffset = offset(slot) + Long.BYTES + dimensions * Double.BYTES;
+        int nameLength = Short.toUnsignedInt(buffer.getShort(lengthOffset));
+        if (nameLength == 0) return null;
+        byte[] name = new byte[nameLength];
+        buffer.get(lengthOffset + Short.BYTES, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+}
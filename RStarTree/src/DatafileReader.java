@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class fetches single records from the data file by their RecordLocation. The pages of the data file are kept in
+ * a small cache of recently used blocks that evicts the least recently used block, so records that lie in the same block
+ * are fetched with one read of the block. The batch variant of fetch sorts the requested locations by block first, so
+ * every block is read at most once per batch. The records are decoded with a DatafilePage, names included, so queries
+ * can return full records without keeping every record on the heap.
+ */
+public class DatafileReader {
+    private static final int cacheCapacity = 64; // blocks, 2MB with blocks of 32KB
+    private static final LinkedHashMap<Integer, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > cacheCapacity;
+        }
+    };
+    private static final DatafilePage page = new DatafilePage();
+    private static RandomAccessFile datafile = null;
+    private static long hits = 0;
+    private static long misses = 0;
+
+    /**
+     * This method fetches the record at the given location of the data file. The location alone does not tell the id
+     * of the record, so the returned record has the id -1.
+     *
+     * @param location the location of the record
+     * @return the record at the location
+     * @throws IOException if the block of the record cannot be read from the data file
+     */
+    public static Record fetch(RecordLocation location) throws IOException {
+        return fetch(location, -1);
+    }
+
+    /**
+     * This method fetches the record with the given id at the given location of the data file.
+     *
+     * @param location the location of the record
+     * @param id       the id of the record
+     * @return the record at the location
+     * @throws IOException if the block of the record cannot be read from the data file
+     */
+    public static Record fetch(RecordLocation location, int id) throws IOException {
+        page.wrap(getBlock(location.getBlock()));
+        return decode(location.getBlock(), (int) location.getSlot(), id);
+    }
+
+    /**
+     * This method fetches the records at the given locations of the data file. The locations are visited in the order
+     * of their blocks and slots, so every block is read at most once, but the records are returned in the order of the
+     * locations.
+     *
+     * @param locations the locations of the records
+     * @param ids       the ids of the records, in the order of the locations
+     * @return the records at the locations, in the order of the locations
+     * @throws IOException if a block cannot be read from the data file
+     */
+    public static Record[] fetch(RecordLocation[] locations, int[] ids) throws IOException {
+        Integer[] order = new Integer[locations.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> locations[i].getBlock()).thenComparingLong(i -> locations[i].getSlot()));
+        Record[] records = new Record[locations.length];
+        int currentBlock = -1;
+        for (int i : order) {
+            int block = locations[i].getBlock();
+            if (block != currentBlock) {
+                page.wrap(getBlock(block));
+                currentBlock = block;
+            }
+            records[i] = decode(block, (int) locations[i].getSlot(), ids[i]);
+        }
+        return records;
+    }
+
+    /**
+     * This method drops the cached copy of the block with the given id. It has to be called whenever the block is
+     * written to the data file.
+     *
+     * @param blockId the id of the block that was written
+     */
+    public static void invalidate(int blockId) {
+        cache.remove(blockId);
+    }
+
+    /**
+     * This method drops every cached block and closes the data file. It has to be called whenever the data file is
+     * recreated or another data file is opened.
+     */
+    public static void reset() {
+        cache.clear();
+        try {
+            if (datafile != null) datafile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        datafile = null;
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+
+    /**
+     * This method decodes the record of the given slot of the page the reader points to.
+     *
+     * @param block the block of the page
+     * @param slot  the slot of the record
+     * @param id    the id of the record
+     * @return the decoded record
+     */
+    private static Record decode(int block, int slot, int id) {
+        String name = page.name(slot);
+        if (name == null) {
+            return new Record(page.coordinate(slot, 0), page.coordinate(slot, 1), block, slot, id, page.nodeId(slot));
+        }
+        return new Record(page.coordinate(slot, 0), page.coordinate(slot, 1), block, slot, id, name, page.nodeId(slot));
+    }
+
+    /**
+     * This method returns the block with the given id from the cache, or reads it from the data file into the cache.
+     *
+     * @param blockId the id of the block
+     * @return the bytes of the block
+     * @throws IOException if the block cannot be read from the data file
+     */
+    private static byte[] getBlock(int blockId) throws IOException {
+        byte[] block = cache.get(blockId);
+        if (block != null) {
+            hits++;
+            return block;
+        }
+        misses++;
+        if (datafile == null) datafile = new RandomAccessFile(FileHandler.getDatafilePath(), "r");
+        block = new byte[FileHandler.getBlockSizedatafile()];
+        datafile.seek((long) blockId * block.length);
+        datafile.readFully(block);
+        cache.put(blockId, block);
+        return block;
+    }
+
+}
@@ -1,10 +1,4 @@
-import java.io.File;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * This class provides methods for deleting a point from a tree. The tree is represented using a B-tree structure.
@@ -17,13 +11,21 @@ public class Delete {
     private static final int minEntries = FileHandler.calculateMaxBlockNodes() * 40 / 100; // 670 | FileHandler.calculateMaxBlockNodes() * 40 / 100 | 969
 
     /**
-     * This method deletes a point from the tree.
+     * This method deletes a point from the tree. The delete, with the reinsertion of an underflowing leaf, runs as one
+     * transaction of the write-ahead log.
      *
      * @param LAT the latitude of the point to be deleted
      * @param LON the longitude of the point to be deleted
      */
     public static void delete(double LAT, double LON) {
-        boolean result = deletePoint(LAT, LON);
+        WriteAheadLog.begin();
+        boolean result;
+        try {
+            result = deletePoint(LAT, LON);
+            if (result) Superblock.writeIndexfile();
+        } finally {
+            WriteAheadLog.commit();
+        }
         if (result) {
             System.out.println("The node with LAT: " + LAT + ", and LON: " + LON + ", was successfully deleted.");
         } else {
@@ -32,119 +34,106 @@ public class Delete {
     }
 
     /**
-     * This method deletes a point from the tree.
+     * This method deletes a point from the tree. The nodes are searched depth first, entry by entry, so the leaves are
+     * visited from left to right like a search level by level would visit them. The search keeps the block id and the
+     * next entry of every node from the root down, and the path of the leaf that holds the point is recorded from them.
      *
      * @param LAT the latitude of the point to be deleted
      * @param LON the longitude of the point to be deleted
      * @return true if the point was successfully deleted, false otherwise
      */
     private static boolean deletePoint(double LAT, double LON) {
+        NodeView node = new NodeView();
         try {
             int leafLevel = FileHandler.getLeafLevel();
-            Queue<Integer> pointers = new LinkedList<>();
             if (FileHandler.getNoOfIndexfileBlocks() >= 1) {
-                pointers.add(1);
-                int level;
-                while (!pointers.isEmpty()) {
-                    int blockId = pointers.peek();
-                    level = FileHandler.getMetaDataOfRectangle(blockId).get(0);
-                    if (level != leafLevel) {
-                        ArrayList<Rectangle> rectangles = FileHandler.getRectangleEntries(blockId);
-                        for (Rectangle rectangle : rectangles) {
-                            pointers.add(rectangle.getChildPointer());
+                ArrayList<Integer> blockIds = new ArrayList<>();
+                ArrayList<Integer> nextEntries = new ArrayList<>();
+                blockIds.add(1);
+                nextEntries.add(0);
+                while (!blockIds.isEmpty()) {
+                    int depth = blockIds.size() - 1;
+                    node.pin(blockIds.get(depth));
+                    int noOfEntries = node.entryCount();
+                    if (node.level() != leafLevel) {
+                        int entry = nextEntries.get(depth);
+                        if (entry < noOfEntries) {
+                            nextEntries.set(depth, entry + 1);
+                            blockIds.add(node.child(entry));
+                            nextEntries.add(0);
+                            node.release();
+                            continue;
                         }
                     } else {
-                        ArrayList<Record> records = FileHandler.getRecords(blockId);
-                        for (Record record : records) {
-                            if (LAT == record.getLAT() && LON == record.getLON()) {
-                                if (deletePointFromBlock(LAT, LON, blockId)) {
-                                    return true;
+                        for (int entry = 0; entry < noOfEntries; entry++) {
+                            if (LAT == node.lat(entry) && LON == node.lon(entry)) {
+                                node.release();
+                                InsertPath path = new InsertPath();
+                                for (int d = 0; d <= depth; d++) {
+                                    path.push(blockIds.get(d));
+                                    if (d < depth) path.follow(nextEntries.get(d) - 1);
                                 }
+                                return deletePointFromBlock(LAT, LON, path);
                             }
                         }
                     }
-                    pointers.remove();
+                    node.release();
+                    blockIds.remove(depth);
+                    nextEntries.remove(depth);
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
         return false;
     }
 
     /**
-     * This method deletes a point from a specific block in the tree.
+     * This method deletes a point from the leaf at the end of a path. The bounds of the leaf, or the removal of an
+     * underflowing leaf, are carried up the path to the root.
      *
-     * @param LAT     the latitude of the point to be deleted
-     * @param LON     the longitude of the point to be deleted
-     * @param blockId the id of the block from which the point will be deleted
+     * @param LAT  the latitude of the point to be deleted
+     * @param LON  the longitude of the point to be deleted
+     * @param path the path from the root to the leaf from which the point will be deleted
      * @return true if the point was successfully deleted, false otherwise
      */
-    private static boolean deletePointFromBlock(double LAT, double LON, int blockId) {
+    private static boolean deletePointFromBlock(double LAT, double LON, InsertPath path) {
         try {
             int blockSize = FileHandler.getBlockSize();
-            int leafLevel = FileHandler.getLeafLevel();
-            String IndexfilePath = FileHandler.getIndexfilePath();
-            File file = new File(IndexfilePath);
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] dataBlock = new byte[blockSize];
-            System.arraycopy(bytes, blockId * blockSize, dataBlock, 0, blockSize);
-            byte[] noOfEntries = new byte[Integer.BYTES];
-            byte[] parentPointer = new byte[Integer.BYTES];
-            System.arraycopy(dataBlock, Integer.BYTES, noOfEntries, 0, Integer.BYTES);
-            System.arraycopy(dataBlock, 2 * Integer.BYTES, parentPointer, 0, Integer.BYTES);
-            int tempNoOfEntries = ByteBuffer.wrap(noOfEntries).getInt();
-            int tempParentPointer = ByteBuffer.wrap(parentPointer).getInt();
-            // NoOfEntries + block level + parent pointer
-            int bytecounter = 3 * Integer.BYTES;
-            byte[] LatArray = new byte[Double.BYTES];
-            byte[] LonArray = new byte[Double.BYTES];
+            int depth = path.depth() - 1;
+            int blockId = path.blockId(depth);
+            byte[] dataBlock = path.block(depth);
+            int tempNoOfEntries = path.entryCount(depth);
             for (int i = 0; i < tempNoOfEntries; i++) {
-                System.arraycopy(dataBlock, bytecounter, LatArray, 0, Double.BYTES);
-                System.arraycopy(dataBlock, bytecounter + Double.BYTES, LonArray, 0, Double.BYTES);
-                if (LAT == ByteBuffer.wrap(LatArray).getDouble() && LON == ByteBuffer.wrap(LonArray).getDouble()) {
-                    int tempBytecounter = bytecounter + (tempNoOfEntries - i - 1) * (2 * Double.BYTES + Integer.BYTES);
+                if (LAT == NodeView.getLat(dataBlock, i) && LON == NodeView.getLon(dataBlock, i)) {
+                    int last = tempNoOfEntries - 1;
                     // copy the data from the last entry into the space of the entry that gets deleted
-                    System.arraycopy(dataBlock, tempBytecounter, dataBlock, bytecounter, Double.BYTES);
-                    System.arraycopy(dataBlock, tempBytecounter + Double.BYTES, dataBlock, bytecounter + Double.BYTES, Double.BYTES);
-                    System.arraycopy(dataBlock, tempBytecounter + 2 * Double.BYTES, dataBlock, bytecounter + 2 * Double.BYTES, Integer.BYTES);
+                    NodeView.putLeafEntry(dataBlock, i, NodeView.getLat(dataBlock, last), NodeView.getLon(dataBlock, last), NodeView.getRecordId(dataBlock, last));
                     // empty the data from the entry copied
-                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, tempBytecounter, Double.BYTES);
-                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, tempBytecounter + Double.BYTES, Double.BYTES);
-                    System.arraycopy(new byte[Integer.BYTES], 0, dataBlock, tempBytecounter + 2 * Double.BYTES, Integer.BYTES);
+                    NodeView.putLeafEntry(dataBlock, last, 0, 0, 0);
                     // decrease the noOfEntries
                     tempNoOfEntries--;
                     System.arraycopy(ConversionToBytes.intToBytes(tempNoOfEntries), 0, dataBlock, Integer.BYTES, Integer.BYTES);
-                    RandomAccessFile indexfile = new RandomAccessFile(IndexfilePath, "rw");
-                    indexfile.seek((long) blockSize * blockId);
-                    indexfile.write(dataBlock);
-                    indexfile.close();
+                    BufferPool.writeBlock(blockId, dataBlock);
                     // If the entry was not in the root and the minimum number of entries wasn't reached, the
                     // rectangle bounds are readjusted
                     // else delete the rectangle and reinsert the nodes
                     if (blockId != 1 && tempNoOfEntries >= minEntries) {
-                        ReAdjustRectangleBounds.reAdjustRectangleBounds(blockId, tempParentPointer);
+                        ReAdjustRectangleBounds.reAdjustRectangleBounds(path, depth);
                     } else if (blockId != 1) {
-                        byte[] idArray = new byte[Integer.BYTES];
                         // Arraylist that will hold the nodes' data of the rectangle that will be deleted
                         ArrayList<Record> nodesToReInsert = new ArrayList<>();
-                        // Start from the first node after the metadata
                         // Loop until the number of nodes is reached
-                        // Increment by the size of each node
-                        for (int j = 3 * Integer.BYTES; j < tempNoOfEntries * (2 * Double.BYTES + Integer.BYTES) + 3 * Integer.BYTES; j += 2 * Double.BYTES + Integer.BYTES) {
-                            System.arraycopy(dataBlock, j, LatArray, 0, Double.BYTES);
-                            System.arraycopy(dataBlock, j + Double.BYTES, LonArray, 0, Double.BYTES);
-                            System.arraycopy(dataBlock, j + 2 * Double.BYTES, idArray, 0, Integer.BYTES);
-                            Record record = new Record(ByteBuffer.wrap(LatArray).getDouble(), ByteBuffer.wrap(LonArray).getDouble(), ByteBuffer.wrap(idArray).getInt());
+                        for (int j = 0; j < tempNoOfEntries; j++) {
+                            Record record = new Record(NodeView.getLat(dataBlock, j), NodeView.getLon(dataBlock, j), NodeView.getRecordId(dataBlock, j));
                             nodesToReInsert.add(record);
                         }
                         // delete the block
                         System.arraycopy(new byte[blockSize], 0, dataBlock, 0, blockSize);
-                        indexfile = new RandomAccessFile(IndexfilePath, "rw");
-                        indexfile.seek((long) blockSize * blockId);
-                        indexfile.write(dataBlock);
-                        indexfile.close();
-                        ReAdjustRectangleBounds.reAdjustRectangleBounds(blockId, tempParentPointer);
+                        BufferPool.writeBlock(blockId, dataBlock);
+                        ReAdjustRectangleBounds.removeRectangle(path, depth);
                         // Reinsert the entries from the deleted rectangle
                         for (Record record : nodesToReInsert) {
                             Insert.insert(record);
@@ -152,7 +141,6 @@ public class Delete {
                     }
                     return true;
                 }
-                bytecounter += 2 * Double.BYTES + Integer.BYTES;
             }
             return false;
         } catch (Exception e) {
@@ -161,4 +149,4 @@ public class Delete {
         return false;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,330 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * This class implements the bottom-up construction for data sets that do not fit in the heap. The records are never
+ * loaded as a whole: the points are streamed from the record table, cut into runs of a bounded size and every run is
+ * sorted by the Hilbert keys of its points in memory and spilled to a temporary file as entries of the key, the id, the
+ * LAT and the LON of a record. The runs are merged with a k-way merge and the merged stream is packed into the leaves,
+ * which are written straight to the index file.
+ * <p>
+ * The upper levels are built while the leaves are written. The number of nodes of every level follows from the number
+ * of records, so the block ids and the parent pointers of all nodes are known before the first leaf is written. Every
+ * level keeps one open node, which receives the MBR of each child when the child is complete, so the memory of the
+ * construction is one run and one block per level, whatever the size of the data set. The nodes are packed like the
+ * nodes of the BottomUp, full nodes and at least m entries in the last one, with the root in block 1.
+ * <p>
+ * The keys of a run are packed with the index of their point into one long for the sort, so the stored keys are cut by
+ * the number of bits of that index. All runs cut their keys the same way and points with the same cut key are ordered
+ * by their ids, which makes the order of the merge the order of every run.
+ */
+public class ExternalBulkLoad {
+    private static final int runEntrySize = Long.BYTES + Integer.BYTES + 2 * Double.BYTES;
+    private static final int streamBufferSize = 1 << 20;
+    private static int runSize = 1 << 22;
+
+    /**
+     * This method builds the tree of the records of the record table. The temporary run files are deleted at the end.
+     * If an exception occurs during this process, it is caught and the stack trace is printed.
+     */
+    public static void construct() {
+        ArrayList<Path> runs = new ArrayList<>();
+        try {
+            FileHandler.setBottomUp(false);
+            BufferPool.reset();
+            int noOfRecords = RecordTable.size();
+            if (noOfRecords == 0) return;
+            double[] mbr = dataMBR(noOfRecords);
+            writeRuns(noOfRecords, mbr, runs);
+            writeTree(noOfRecords, runs);
+            Superblock.writeIndexfile();
+            BufferPool.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (Path run : runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * This method sets the number of records of a run, which bounds the memory of the construction.
+     *
+     * @param size the number of records of a run, at least 2
+     */
+    public static void setRunSize(int size) {
+        runSize = Math.max(2, size);
+    }
+
+    public static int getRunSize() {
+        return runSize;
+    }
+
+    /**
+     * This method calculates the MBR of the points of the record table with one scan.
+     *
+     * @param noOfRecords the number of records
+     * @return the MBR of the points
+     * @throws IOException if the record table cannot be read
+     */
+    private static double[] dataMBR(int noOfRecords) throws IOException {
+        double[] mbr = Geometry.emptyRectangle(2);
+        int batchSize = Math.min(runSize, noOfRecords);
+        double[] lats = new double[batchSize];
+        double[] lons = new double[batchSize];
+        for (int first = 0; first < noOfRecords; first += batchSize) {
+            int count = Math.min(batchSize, noOfRecords - first);
+            RecordTable.getPoints(first, count, lats, lons);
+            for (int i = 0; i < count; i++) {
+                Geometry.include(mbr, lats[i], lons[i]);
+            }
+        }
+        return mbr;
+    }
+
+    /**
+     * This method cuts the points of the record table into runs, sorts every run by the Hilbert keys of its points and
+     * writes it to a temporary file.
+     *
+     * @param noOfRecords the number of records
+     * @param mbr         the MBR of the points, the grid of the Hilbert keys
+     * @param runs        the list that receives the paths of the run files
+     * @throws IOException if the record table cannot be read or a run cannot be written
+     */
+    private static void writeRuns(int noOfRecords, double[] mbr, ArrayList<Path> runs) throws IOException {
+        int batchSize = Math.min(runSize, noOfRecords);
+        int indexBits = HilbertSort.indexBits(batchSize);
+        double[] lats = new double[batchSize];
+        double[] lons = new double[batchSize];
+        for (int first = 0; first < noOfRecords; first += batchSize) {
+            int count = Math.min(batchSize, noOfRecords - first);
+            RecordTable.getPoints(first, count, lats, lons);
+            long[] pairs = HilbertSort.sort(lats, lons, count, mbr);
+            Path run = Files.createTempFile(Path.of(FileHandler.getIndexfilePath()).toAbsolutePath().getParent(), "bulkload", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), streamBufferSize))) {
+                for (int i = 0; i < count; i++) {
+                    int index = HilbertSort.index(pairs[i], indexBits);
+                    out.writeLong(HilbertSort.cutKey(pairs[i], indexBits));
+                    out.writeInt(first + index);
+                    out.writeDouble(lats[index]);
+                    out.writeDouble(lons[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method merges the runs and writes the nodes of the tree to the index file. The leaves are filled from the
+     * merged stream, and every complete node is written at its block id and added to the open node of the level above.
+     *
+     * @param noOfRecords the number of records
+     * @param runs        the paths of the run files
+     * @throws IOException if a run cannot be read or a node cannot be written
+     */
+    private static void writeTree(int noOfRecords, ArrayList<Path> runs) throws IOException {
+        LevelPlan plan = new LevelPlan(noOfRecords);
+        PriorityQueue<Run> merge = new PriorityQueue<>(Comparator.comparingLong((Run run) -> run.key).thenComparingInt(run -> run.id));
+        try (FileChannel channel = FileChannel.open(Path.of(FileHandler.getIndexfilePath()), StandardOpenOption.WRITE)) {
+            for (Path path : runs) {
+                Run run = new Run(path);
+                if (run.next()) merge.add(run);
+                else run.close();
+            }
+            while (!merge.isEmpty()) {
+                Run run = merge.poll();
+                plan.addPoint(run.lat, run.lon, run.id, channel);
+                if (run.next()) merge.add(run);
+                else run.close();
+            }
+        } finally {
+            for (Run run : merge) {
+                run.close();
+            }
+        }
+        FileHandler.setRoot(1);
+        FileHandler.setRootMBR(plan.rootMBR);
+        FileHandler.setLeafLevel(plan.leafLevel);
+        FileHandler.setNoOfIndexfileBlocks(plan.lastBlockId);
+    }
+
+    /**
+     * This class holds the shape of the tree that is built and the open node of every level. Level 0 is the level of
+     * the leaves and the last level is the level of the root.
+     */
+    private static class LevelPlan {
+        final int leafLevel;
+        final int lastBlockId;
+        final int[] noOfNodes;
+        final int[] noOfEntries;
+        final int[] capacity;
+        final int[] firstBlockId;
+        final byte[][] blocks;
+        final double[][] mbrs;
+        final int[] filled;
+        final int[] completed;
+        double[] rootMBR;
+
+        /**
+         * This constructor calculates the number of nodes of every level, the way the BottomUp packs them, and the
+         * block ids of the first node of every level. The leaves start at block 2 and every level follows the one
+         * below it, the root is block 1.
+         *
+         * @param noOfRecords the number of records
+         */
+        LevelPlan(int noOfRecords) {
+            int maxRecords = FileHandler.calculateMaxBlockNodes();
+            int maxRectangles = FileHandler.calculateMaxBlockRectangles();
+            ArrayList<Integer> nodes = new ArrayList<>();
+            nodes.add((int) Math.ceil((double) noOfRecords / maxRecords));
+            if (nodes.get(0) > 1) {
+                while (nodes.get(nodes.size() - 1) > maxRectangles) {
+                    nodes.add((int) Math.ceil((double) nodes.get(nodes.size() - 1) / maxRectangles));
+                }
+                nodes.add(1);
+            }
+            int noOfLevels = nodes.size();
+            leafLevel = noOfLevels - 1;
+            noOfNodes = new int[noOfLevels];
+            noOfEntries = new int[noOfLevels];
+            capacity = new int[noOfLevels];
+            firstBlockId = new int[noOfLevels];
+            blocks = new byte[noOfLevels][FileHandler.getBlockSize()];
+            mbrs = new double[noOfLevels][];
+            filled = new int[noOfLevels];
+            completed = new int[noOfLevels];
+            int blockId = 2;
+            for (int k = 0; k < noOfLevels; k++) {
+                noOfNodes[k] = nodes.get(k);
+                noOfEntries[k] = k == 0 ? noOfRecords : noOfNodes[k - 1];
+                capacity[k] = k == 0 ? maxRecords : maxRectangles;
+                firstBlockId[k] = k == noOfLevels - 1 ? 1 : blockId;
+                if (k < noOfLevels - 1) blockId += noOfNodes[k];
+                mbrs[k] = Geometry.emptyRectangle(2);
+            }
+            lastBlockId = noOfLevels == 1 ? 1 : blockId - 1;
+        }
+
+        /**
+         * This method returns the number of entries of the given node of the given level. Every node is full, except
+         * for the last one, which gets at least m entries from the one before it.
+         *
+         * @param k the level
+         * @param j the index of the node in the level
+         * @return the number of entries of the node
+         */
+        int nodeSize(int k, int j) {
+            int last = noOfEntries[k] - (noOfNodes[k] - 1) * capacity[k];
+            int minimum = (int) Math.floor(capacity[k] * Split.getM());
+            if (noOfNodes[k] < 2 || last >= minimum) return j == noOfNodes[k] - 1 ? last : capacity[k];
+            if (j == noOfNodes[k] - 1) return minimum;
+            if (j == noOfNodes[k] - 2) return capacity[k] - (minimum - last);
+            return capacity[k];
+        }
+
+        /**
+         * This method adds a point to the open leaf and writes the leaf once it is complete.
+         *
+         * @param lat     the LAT of the point
+         * @param lon     the LON of the point
+         * @param id      the id of the record
+         * @param channel the channel of the index file
+         * @throws IOException if a node cannot be written
+         */
+        void addPoint(double lat, double lon, int id, FileChannel channel) throws IOException {
+            NodeView.putLeafEntry(blocks[0], filled[0]++, lat, lon, id);
+            Geometry.include(mbrs[0], lat, lon);
+            if (filled[0] == nodeSize(0, completed[0])) complete(0, channel);
+        }
+
+        /**
+         * This method writes the open node of the given level with its header at its block id. Its MBR and its block
+         * id are added to the open node of the level above, which is written as well if that completes it.
+         *
+         * @param k       the level
+         * @param channel the channel of the index file
+         * @throws IOException if a node cannot be written
+         */
+        void complete(int k, FileChannel channel) throws IOException {
+            boolean root = k == blocks.length - 1;
+            int blockId = firstBlockId[k] + completed[k];
+            ByteBuffer block = ByteBuffer.wrap(blocks[k]);
+            block.putInt(0, leafLevel - k);
+            block.putInt(Integer.BYTES, filled[k]);
+            block.putInt(2 * Integer.BYTES, root ? -1 : firstBlockId[k + 1] + completed[k + 1]);
+            while (block.hasRemaining()) {
+                channel.write(block, (long) blockId * FileHandler.getBlockSize() + block.position());
+            }
+            if (root) {
+                rootMBR = mbrs[k];
+            } else {
+                int dimensions = FileHandler.getDimensions();
+                int offset = NodeView.headerSize + filled[k + 1] * NodeView.internalEntrySize(dimensions);
+                NodeView.putRectangle(blocks[k + 1], offset, mbrs[k]);
+                ByteBuffer.wrap(blocks[k + 1]).putInt(offset + NodeView.childOffset(dimensions), blockId);
+                Geometry.include(mbrs[k + 1], mbrs[k]);
+                filled[k + 1]++;
+            }
+            Arrays.fill(blocks[k], (byte) 0);
+            mbrs[k] = Geometry.emptyRectangle(2);
+            filled[k] = 0;
+            completed[k]++;
+            if (!root && filled[k + 1] == nodeSize(k + 1, completed[k + 1])) complete(k + 1, channel);
+        }
+    }
+
+    /**
+     * This class reads the entries of a run file one after the other for the merge.
+     */
+    private static class Run {
+        private final DataInputStream in;
+        private long remaining;
+        long key;
+        int id;
+        double lat;
+        double lon;
+
+        Run(Path path) throws IOException {
+            remaining = Files.size(path) / runEntrySize;
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), streamBufferSize));
+        }
+
+        /**
+         * This method reads the next entry of the run.
+         *
+         * @return true if an entry was read, false at the end of the run
+         * @throws IOException if the run cannot be read
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            key = in.readLong();
+            id = in.readInt();
+            lat = in.readDouble();
+            lon = in.readDouble();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
@@ -1,36 +1,40 @@
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class FileHandler {
     private static int root = -1;
     private static int noOfDatafileBlocks = 0;
     private static int noOfIndexfileBlocks = 0;
     private static int leafLevel = -1;
-    private static final String OsmfilePath = "map2.osm";
+    private static String OsmfilePath = "map2.osm";
     private static final String DatafilePath = "datafile.dat";
     private static final String IndexfilePath = "indexfile.dat";
     private static int dimensions;
-    private static double[][] rootMBR;
-    private static final char delimiter = '$';
-    private static final char blockSeparator = '#';
+    private static double[] rootMBR;
     private static boolean bottomUp = false;
+    private static boolean memoryMapped = false;
+    private static boolean compressed = false;
+    private static boolean quantizedMBRs = false;
+    private static boolean columnarLeaves = false;
+    private static SplitStrategy splitStrategy = new RStarSplit();
+    private static long generation = 0;
     private static BottomUp btm = null;
     private static int blockSize = 32768; //32KB (KB=1024B) // 512 | 32768
     private static final int blockSizedatafile = 32768;
-    private static ArrayList<Record> records = new ArrayList<>();
-    private static Queue<Integer> emptyBlocks = new LinkedList<>();
+    private static final int importBatchSize = 100000;
+    private static final int importProgressInterval = 1000000;
+    private static ArrayList<Record> records = null;
+    private static int freeListHead = 0;
+    private static int noOfFreeBlocks = 0;
 
     /**
      * This method creates a data file for the B-tree. The method first checks if the number of dimensions is at least 2.
@@ -54,188 +58,175 @@ public class FileHandler {
      * This method creates the first block of the data file for the B-tree. The method first increments the number of
      * data file blocks. It then creates byte arrays for the dimensions, block size, and the number of blocks. It creates
      * a new byte array for the block data with the size of the data file block size. It initializes a byte counter to 0.
-     * It then copies the dimensions array into the block data starting from the byte counter and increments the byte
-     * counter by the size of the dimensions array. It does the same for the block size array and the number of blocks
-     * array. It then opens the data file in read-write mode and writes the block data to the file. If an exception
-     * occurs during this process, it is caught and the stack trace is printed.
+     * It then opens the data file in read-write mode, writes the empty block and writes the superblock of the data file
+     * with the dimensions, the block size and the number of blocks into it. It also creates an empty record table for
+     * the records of the new data file. If an exception occurs during this process, it is caught and the stack trace is
+     * printed.
      */
     private static void createFirstDatafileBlock() {
         try {
             FileHandler.noOfDatafileBlocks++;
-            byte[] dimensionArray = ConversionToBytes.intToBytes(dimensions);
-            byte[] blocksizeArray = ConversionToBytes.intToBytes(blockSizedatafile);
-            byte[] noOfBlocksArray = ConversionToBytes.intToBytes(noOfDatafileBlocks);
             byte[] blockData = new byte[blockSizedatafile];
-            int bytecounter = 0;
-            // Copies dimensionArray in blockData starting from byte counter(0) then increments by dimensionArray size.
-            // Copies block sizeArray starting from byte counter(dimensionArray.length) then increments by block sizeArray
-            // size etc.
-            System.arraycopy(dimensionArray, 0, blockData, bytecounter, dimensionArray.length);
-            bytecounter += dimensionArray.length;
-            System.arraycopy(blocksizeArray, 0, blockData, bytecounter, blocksizeArray.length);
-            bytecounter += blocksizeArray.length;
-            System.arraycopy(noOfBlocksArray, 0, blockData, bytecounter, noOfBlocksArray.length);
             RandomAccessFile file = new RandomAccessFile(DatafilePath, "rw");
             file.write(blockData);
+            Superblock.writeDatafile(file, dimensions, blockSizedatafile, noOfDatafileBlocks);
             file.close();
+            DatafileReader.reset();
+            RecordTable.create();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * This method retrieves the old file information from the data file and the index file. The method first reads all
-     * bytes from the data file and the index file. It then copies the dimensions and the number of data file blocks from
-     * the data file bytes into byte arrays and deserializes them. It does the same for the number of index file blocks
-     * and the leaf level from the index file bytes. It also retrieves the data file records and initializes the root
-     * minimum bounding rectangle. If an exception occurs during this process, it is caught and the stack trace is
-     * printed.
+     * This method retrieves the old file information from the data file and the index file. The method reads the
+     * dimensions and the number of data file blocks from the superblock of the data file. It then applies the committed
+     * transactions of the write-ahead log to the index file, which repairs an insert or a delete that was interrupted by
+     * a crash, and reads the superblock of the index file, which restores the block size, the number of index file blocks, the leaf level, the root, the
+     * root minimum bounding rectangle and the chain of free blocks. The record table is only opened, so the data file
+     * is not scanned and the records are loaded when they are first needed. The compressed copy of the index file is
+     * opened as well and rebuilt if compressed reads are on and the copy is stale. If an exception occurs during this
+     * process, it is caught and the stack trace is printed.
      */
     static void retrieveOldFileInfo() {
         try {
-            File file = new File(DatafilePath);
-            // byte arrays to save serialized data from datafile inorder to deserialize them afterward and print them
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] dimensionArray = new byte[4];
-            byte[] noOfBlocksArray = new byte[4];
-            System.arraycopy(bytes, 0, dimensionArray, 0, dimensionArray.length);
-            System.arraycopy(bytes, 8, noOfBlocksArray, 0, noOfBlocksArray.length);
-            dimensions = ByteBuffer.wrap(dimensionArray).getInt();
-            noOfDatafileBlocks = ByteBuffer.wrap(noOfBlocksArray).getInt();
-            file = new File(IndexfilePath);
-            // byte arrays to save serialized data from index file inorder to deserialize them afterward and print them
-            bytes = Files.readAllBytes(file.toPath());
-            noOfBlocksArray = new byte[4];
-            byte[] leafLevelArray = new byte[4];
-            System.arraycopy(bytes, 4, noOfBlocksArray, 0, noOfBlocksArray.length);
-            System.arraycopy(bytes, 8, leafLevelArray, 0, leafLevelArray.length);
-            noOfIndexfileBlocks = ByteBuffer.wrap(noOfBlocksArray).getInt();
-            leafLevel = ByteBuffer.wrap(leafLevelArray).getInt();
-            records = getDatafileRecords();
-            rootMBR = new double[(int) Math.pow(2, dimensions)][dimensions];
+            int[] datafileHeader = Superblock.readDatafile(DatafilePath);
+            dimensions = datafileHeader[0];
+            noOfDatafileBlocks = datafileHeader[2];
+            DatafileReader.reset();
+            BufferPool.reset();
+            int noOfTransactions = WriteAheadLog.recover();
+            if (noOfTransactions > 0) {
+                System.out.println("Recovered " + noOfTransactions + " transactions from the write-ahead log.");
+            }
+            Superblock.readIndexfile();
+            openRecordTable();
+            CompressedIndex.open();
+            CompressedIndex.update();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * This method inserts data file nodes into the data file. It first creates a DocumentBuilderFactory and
-     * DocumentBuilder, and uses the builder to parse the .osm file. It then normalizes the document element to remove
-     * white spaces. The method iterates over each node in the .osm file, retrieves its attributes, and adds the node to
-     * a list of records to be inserted. If the node has child nodes, it checks if there is a child node with the
-     * attribute "k" having the value "name:en", and if so, it retrieves the value of the "v" attribute and sets it as
-     * the name of the node. Finally, it calls the datafileMassInsert method to insert the records into the data file.
-     * If an exception occurs during this process, it is caught and the stack trace is printed.
+     * This method inserts data file nodes into the data file. The nodes are read from the .osm file with a StAX reader,
+     * or with the OsmPbfReader if the path of the file ends with ".pbf". Both readers pass every node to a consumer
+     * that collects the records and passes them to the datafileMassInsert method in batches of a bounded size, so the
+     * file is never kept in memory as a whole. The import rate is printed after every progress interval. If an
+     * exception occurs during this process, it is caught and the stack trace is printed.
      */
     private static void insertDatafileNodes() {
+        ArrayList<Record> recordsToInsert = new ArrayList<>(importBatchSize);
+        AtomicLong noOfNodes = new AtomicLong();
+        long startTime = System.nanoTime();
+        Consumer<Record> consumer = record -> {
+            recordsToInsert.add(record);
+            if (recordsToInsert.size() == importBatchSize) {
+                Insert.datafileMassInsert(recordsToInsert, false);
+                recordsToInsert.clear();
+            }
+            if (noOfNodes.incrementAndGet() % importProgressInterval == 0) {
+                printImportProgress(noOfNodes.get(), startTime);
+            }
+        };
         try {
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            Document doc = builder.parse(new File(OsmfilePath));
-            //get rid of white spaces
-            doc.getDocumentElement().normalize();
-            //node block represents the <node> we are currently processing
-            Node block;
-            //noOfNodes is the number of <nodes> in the .osm file
-            long nodeId;
-            String name;
-            ArrayList<Record> recordsToInsert = new ArrayList<>();
-            long noOfNodes = doc.getElementsByTagName("node").getLength();
-            for (int i = 0; i < noOfNodes; i++) {
-                name = "";
-                ArrayList<Double> coords = new ArrayList<>();
-                block = doc.getElementsByTagName("node").item(i);
-                //get its attributes
-                NamedNodeMap attrList = block.getAttributes();
-                nodeId = Long.parseLong(attrList.getNamedItem("id").getNodeValue());
-                coords.add(Double.parseDouble(attrList.getNamedItem("lat").getNodeValue()));
-                coords.add(Double.parseDouble(attrList.getNamedItem("lon").getNodeValue()));
-                if (block.getChildNodes().getLength() > 0) {
-                    NodeList children = block.getChildNodes();
-                    for (int j = 1; j < children.getLength(); j += 2) {
-                        //get its attributes and check if there is one called k with the value name
-                        if (children.item(j).getAttributes().getNamedItem("k").getNodeValue().equals("name:en")) {
-                            //if there is, save the value of attribute v as the name
-                            name = children.item(j).getAttributes().getNamedItem("v").getNodeValue();
-                            break;
-                        }
+            readOsmfile(OsmfilePath, consumer);
+            Insert.datafileMassInsert(recordsToInsert, true);
+            printImportProgress(noOfNodes.get(), startTime);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method passes every node of the given .osm or .pbf file to the consumer, read with the OsmPbfReader if the
+     * path ends with ".pbf" and with a StAX reader otherwise.
+     *
+     * @param path     the path of the file
+     * @param consumer the consumer of the records
+     * @throws Exception if the file cannot be read or parsed
+     */
+    static void readOsmfile(String path, Consumer<Record> consumer) throws Exception {
+        if (path.endsWith(".pbf")) {
+            OsmPbfReader.read(path, consumer);
+        } else {
+            readOsmXml(path, consumer);
+        }
+    }
+
+    /**
+     * This method streams the .osm file with a StAX reader, so the file is read once from start to end. For every node
+     * element it retrieves the id, LAT and LON attributes, and if one of the tag elements of the node has the attribute
+     * "k" with the value "name:en", the value of its "v" attribute is set as the name of the node. The record of the
+     * node is passed to the consumer at the end of the node element.
+     *
+     * @param path     the path of the .osm file
+     * @param consumer the consumer of the records
+     * @throws Exception if the file cannot be read or parsed
+     */
+    private static void readOsmXml(String path, Consumer<Record> consumer) throws Exception {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(path))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+            double[] coords = null;
+            long nodeId = 0;
+            String name = "";
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getLocalName().equals("node")) {
+                        //a new <node> starts, get its attributes
+                        name = "";
+                        nodeId = Long.parseLong(reader.getAttributeValue(null, "id"));
+                        coords = new double[]{Double.parseDouble(reader.getAttributeValue(null, "lat")), Double.parseDouble(reader.getAttributeValue(null, "lon"))};
+                    } else if (coords != null && name.equals("") && reader.getLocalName().equals("tag") && "name:en".equals(reader.getAttributeValue(null, "k"))) {
+                        //if the node has a tag called k with the value name:en, save the value of attribute v as the name
+                        name = reader.getAttributeValue(null, "v");
                     }
+                } else if (event == XMLStreamConstants.END_ELEMENT && coords != null && reader.getLocalName().equals("node")) {
+                    consumer.accept(new Record(coords, nodeId, name));
+                    coords = null;
                 }
-                recordsToInsert.add(new Record(coords, nodeId, name));
             }
-            Insert.datafileMassInsert(recordsToInsert);
-        } catch (Exception e) {
-            e.printStackTrace();
+            reader.close();
         }
     }
 
     /**
-     * This method retrieves the data file records from the data file. It first reads all bytes from the data file. It
-     * then iterates over each block after the first one, and for every node inside the data block, it copies into the
-     * appropriate array, deserializes, and adds the node to a list of records. If the data block has the block separator
-     * at some point, it means the end of the data read in the current block. If an exception occurs during this process,
-     * it is caught and the stack trace is printed.
+     * This method prints the number of nodes imported so far and the import rate in nodes per second.
+     *
+     * @param noOfNodes the number of nodes imported so far
+     * @param startTime the System.nanoTime value at the start of the import
+     */
+    private static void printImportProgress(long noOfNodes, long startTime) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1e9);
+        System.out.printf("Imported %d nodes in %.1f s (%.0f nodes/sec)%n", noOfNodes, seconds, noOfNodes / seconds);
+    }
+
+    /**
+     * This method retrieves the data file records from the data file. It reads every block after the first one and
+     * decodes the records of its page slot by slot, in the order of the slot directory, and adds them to a list of
+     * records. If an exception occurs during this process, it is caught and the stack trace is printed.
      *
      * @return an ArrayList of Record objects, each representing a node in the data file
      */
     static ArrayList<Record> getDatafileRecords() {
         ArrayList<Record> datafileRecords = new ArrayList<>();
-        try {
-            File file = new File(DatafilePath);
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            // byte arrays to store the serialized data from datafile
-            byte[] delimiterArray = new byte[2];
-            byte[] blockSeparatorArray = new byte[2];
-            byte[] NodeIdArray = new byte[8];
-            byte[] LatArray = new byte[8];
-            byte[] LonArray = new byte[8];
-            // variable to store the deserialized data
-            long tempNodeId;
-            double tempLat, tempLon;
-            String tempName = "";
-            char newlinestr;
-            // for each block after the first one copy from the bytes array which contains all the bytes of the datafile
-            // into the dataBlock
+        try (RandomAccessFile file = new RandomAccessFile(DatafilePath, "r")) {
+            byte[] dataBlock = new byte[blockSizedatafile];
+            DatafilePage page = new DatafilePage().wrap(dataBlock);
+            // for each block after the first one read the page and decode the record of every slot
             for (int i = 1; i < noOfDatafileBlocks; i++) {
-                byte[] dataBlock = new byte[blockSizedatafile];
-                System.arraycopy(bytes, i * blockSizedatafile, dataBlock, 0, blockSizedatafile);
-                int bytecounter = 0;
-                boolean flag = true;
-                // for every node inside the dataBlock copy into the appropriate array, deserialize and print the result
-                while (flag) {
-                    System.arraycopy(dataBlock, bytecounter, NodeIdArray, 0, NodeIdArray.length);
-                    System.arraycopy(dataBlock, bytecounter + 8, LatArray, 0, LatArray.length);
-                    System.arraycopy(dataBlock, bytecounter + 16, LonArray, 0, LonArray.length);
-                    System.arraycopy(dataBlock, bytecounter + 24, delimiterArray, 0, delimiterArray.length);
-                    tempNodeId = ByteBuffer.wrap(NodeIdArray).getLong();
-                    tempLat = ByteBuffer.wrap(LatArray).getDouble();
-                    tempLon = ByteBuffer.wrap(LonArray).getDouble();
-                    newlinestr = ByteBuffer.wrap(delimiterArray).getChar();
-                    int tempcounter = 0;
-                    // count bytes until you meet the delimiter if not already met above
-                    while (newlinestr != delimiter) {
-                        tempcounter += 1;
-                        System.arraycopy(dataBlock, bytecounter + 24 + tempcounter, delimiterArray, 0, delimiterArray.length);
-                        newlinestr = ByteBuffer.wrap(delimiterArray).getChar();
-                    }
-                    // read name if there is one
-                    if (tempcounter != 0) {
-                        byte[] nameArray = new byte[tempcounter];
-                        System.arraycopy(dataBlock, bytecounter + 24, nameArray, 0, tempcounter);
-                        tempName = new String(nameArray);
-                    }
+                file.seek((long) i * blockSizedatafile);
+                file.readFully(dataBlock);
+                for (int slot = 0; slot < page.noOfSlots(); slot++) {
+                    String name = page.name(slot);
                     Record record;
-                    if (tempcounter != 0) {
-                        record = new Record(tempLat, tempLon, i, bytecounter, datafileRecords.size(), tempName, tempNodeId);
-                        bytecounter += 26 + tempcounter;
+                    if (name != null) {
+                        record = new Record(page.coordinate(slot, 0), page.coordinate(slot, 1), i, slot, datafileRecords.size(), name, page.nodeId(slot));
                     } else {
-                        record = new Record(tempLat, tempLon, i, bytecounter, datafileRecords.size(), tempNodeId);
-                        bytecounter += 26;
+                        record = new Record(page.coordinate(slot, 0), page.coordinate(slot, 1), i, slot, datafileRecords.size(), page.nodeId(slot));
                     }
                     datafileRecords.add(record);
-                    // if datablock has the blockSeparator (#) at some point it means the end of the data read in the
-                    // current block
-                    System.arraycopy(dataBlock, bytecounter, blockSeparatorArray, 0, 2);
-                    if (ByteBuffer.wrap(blockSeparatorArray).getChar() == blockSeparator) flag = false;
                 }
             }
         } catch (Exception e) {
@@ -244,17 +235,35 @@ public class FileHandler {
         return datafileRecords;
     }
 
+    /**
+     * This method opens the record table of the data file. If the table is missing or was written for another data
+     * file, it is rebuilt from a scan of the data file. The records that were loaded from the previous table are
+     * dropped, so they are loaded again from the opened table when they are first needed.
+     *
+     * @throws IOException if the record table cannot be read or written
+     */
+    private static void openRecordTable() throws IOException {
+        records = null;
+        if (!RecordTable.open(noOfDatafileBlocks)) {
+            RecordTable.rebuild(getDatafileRecords(), noOfDatafileBlocks);
+        }
+    }
 
     /**
-     * This method creates an index file. It first creates the first block of the index file. It then retrieves the data
-     * file records and stores them in an ArrayList. If the boolean parameter pbp is true, it initializes the root minimum
-     * bounding rectangle and inserts the nodes into the index file.
+     * This method creates an index file. It first creates the first block of the index file. It then opens the record
+     * table of the data file. If the boolean parameter pbp is true, it initializes the root minimum bounding rectangle
+     * and inserts the nodes into the index file.
      */
     static void createIndexFile(boolean pbp) {
+        setFreeList(0, 0);
         FileHandler.createFirstIndexfileBlock();
-        records = new ArrayList<>(getDatafileRecords());
+        try {
+            openRecordTable();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         if (pbp) {
-            rootMBR = new double[(int) Math.pow(2, dimensions)][dimensions];
+            rootMBR = new double[2 * dimensions];
             FileHandler.insertIndexfileNodes();
         }
     }
@@ -264,9 +273,9 @@ public class FileHandler {
      * of index file blocks, and the leaf level. It creates a new byte array for the block data with the size of the index
      * file block size. It initializes a byte counter to 0. It then copies the block size array into the block data
      * starting from the byte counter and increments the byte counter by the size of the block size array. It does the
-     * same for the number of index file blocks array and the leaf level array. It then opens the index file in read-write
-     * mode and writes the block data to the file. If an exception occurs during this process, it is caught and the stack
-     * trace is printed.
+     * same for the number of index file blocks array and the leaf level array. It then empties the buffer pool and the
+     * write-ahead log, deletes the compressed copy of the old index file and writes the block data to the file through
+     * the pool. If an exception occurs during this process, it is caught and the stack trace is printed.
      */
     private static void createFirstIndexfileBlock() {
         try {
@@ -284,9 +293,10 @@ public class FileHandler {
             System.arraycopy(noOfBlocksArray, 0, blockData, bytecounter, noOfBlocksArray.length);
             bytecounter += noOfBlocksArray.length;
             System.arraycopy(leafLevelArray, 0, blockData, bytecounter, leafLevelArray.length);
-            RandomAccessFile file = new RandomAccessFile(IndexfilePath, "rw");
-            file.write(blockData);
-            file.close();
+            BufferPool.reset();
+            WriteAheadLog.create();
+            CompressedIndex.delete();
+            BufferPool.writeBlock(0, blockData);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -294,16 +304,20 @@ public class FileHandler {
 
     /**
      * This method inserts nodes into the index file. It first closes and opens the index file, effectively clearing the
-     * file. It then iterates over each record in the records ArrayList and inserts the record into the index file. If a
-     * FileNotFoundException occurs during this process, it is caught and a RuntimeException is thrown.
+     * file, and empties the buffer pool. It then iterates over each record in the records ArrayList and inserts the record into the index file. The
+     * blocks stay dirty in the buffer pool while the records are inserted and are flushed at the end. If an
+     * IOException occurs during this process, it is caught and a RuntimeException is thrown.
      */
     private static void insertIndexfileNodes() {
         try {
             new PrintWriter(IndexfilePath).close();
-            for (Record record : records) {
+            BufferPool.reset();
+            for (Record record : getRecords()) {
                 Insert.insert(record);
             }
-        } catch (FileNotFoundException e) {
+            Superblock.writeIndexfile();
+            BufferPool.flush();
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -335,7 +349,7 @@ public class FileHandler {
                         ArrayList<Rectangle> rectangles = getRectangleEntries(blockId);
                         writer.write("Block No: " + blockId + ", Level: " + level + ", No of rectangles: " + rectangles.size() + ", Leaf level: " + leafLevel + ", Parent block id: " + getMetaDataOfRectangle(blockId).get(2) + "\nRecords: \n");
                         for (Rectangle rectangle : rectangles) {
-                            writer.write("LAT: " + rectangle.getCoordinates().get(0) + ", " + rectangle.getCoordinates().get(dimensions) + ", LON: " + rectangle.getCoordinates().get(1) + ", " + rectangle.getCoordinates().get(1 + dimensions) + "\n");
+                            writer.write("LAT: " + rectangle.getCoordinates()[0] + ", " + rectangle.getCoordinates()[dimensions] + ", LON: " + rectangle.getCoordinates()[1] + ", " + rectangle.getCoordinates()[1 + dimensions] + "\n");
                             pointers.add(rectangle.getChildPointer());
                         }
                     } else {
@@ -365,8 +379,8 @@ public class FileHandler {
     /**
      * This method calculates the maximum number of rectangles that a block can have. It first saves in metadataSize the
      * size of the number of rectangles (Integer), tree level (Integer) and parent pointer (Integer). It then increments
-     * rectangleInfoSize by the size of the LAT (double) and LON (double) for each dimension plus the child-pointer
-     * (Integer). Finally, it returns the number of rectangles that a block can have, which is the total block size minus
+     * rectangleInfoSize by the size of the lower and upper bound (double, or float with quantized MBRs) for each
+     * dimension plus the child-pointer (Integer). Finally, it returns the number of rectangles that a block can have, which is the total block size minus
      * the size of metadata minus the left child-pointer of the first rectangle (the first rectangle is the only one with
      * two child pointers) and all mod with rectangleInfoSize.
      *
@@ -374,7 +388,7 @@ public class FileHandler {
      */
     public static int calculateMaxBlockRectangles() {
         int metadataSize = 3 * Integer.BYTES;
-        int rectangleInfoSize = 2 * dimensions * Double.BYTES + Integer.BYTES;
+        int rectangleInfoSize = NodeView.internalEntrySize(dimensions);
         return (blockSize - metadataSize) / rectangleInfoSize;
     }
 
@@ -394,122 +408,92 @@ public class FileHandler {
     }
 
     /**
-     * This method retrieves the metadata of a rectangle from the index file. It first creates a new ArrayList to store
-     * the metadata. It then creates byte arrays for the level, number of entries, and parent pointer of the rectangle.
-     * It opens the index file and reads all bytes from the file. It then copies the level, number of entries, and parent
-     * pointer from the bytes of the file into their respective arrays. After that, it adds the deserialized values of
-     * the level, number of entries, and parent pointer to the metadata ArrayList. If an exception occurs during this
-     * process, it is caught and the stack trace is printed.
+     * This method retrieves the metadata of a rectangle from the index file. It reads the level, the number of entries
+     * and the parent pointer of the node through a NodeView and adds them to the metadata ArrayList. If an exception
+     * occurs during this process, it is caught and the stack trace is printed.
      *
      * @param id the id of the rectangle for which the metadata is to be retrieved
      * @return an ArrayList of Integers representing the level, number of entries, and parent pointer of the rectangle
      */
     public static ArrayList<Integer> getMetaDataOfRectangle(int id) {
         ArrayList<Integer> metadata = new ArrayList<>();
-        byte[] levelArray = new byte[Integer.BYTES];
-        byte[] noOfEntries = new byte[Integer.BYTES];
-        byte[] parentPointer = new byte[Integer.BYTES];
+        NodeView node = new NodeView();
         try {
-            File file = new File(FileHandler.getIndexfilePath());
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            System.arraycopy(bytes, id * blockSize, levelArray, 0, Integer.BYTES);
-            System.arraycopy(bytes, id * blockSize + Integer.BYTES, noOfEntries, 0, Integer.BYTES);
-            System.arraycopy(bytes, id * blockSize + 2 * Integer.BYTES, parentPointer, 0, Integer.BYTES);
-            metadata.add(ByteBuffer.wrap(levelArray).getInt());
-            metadata.add(ByteBuffer.wrap(noOfEntries).getInt());
-            metadata.add(ByteBuffer.wrap(parentPointer).getInt());
+            node.pin(id);
+            metadata.add(node.level());
+            metadata.add(node.entryCount());
+            metadata.add(node.parent());
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
         return metadata;
     }
 
     /**
-     * This method retrieves the entries of a rectangle from the index file. It first creates a new ArrayList to store
-     * the rectangles. It then opens the index file and reads all bytes from the file. It creates a new byte array for
-     * the block and copies the bytes of the file into the block array. It retrieves the number of entries in the block
-     * and creates byte arrays for the minimum LAT, minimum LON, maximum LAT, maximum LON, and child pointer of each
-     * entry. It enters a loop that iterates over each entry in the block. For each entry, it copies the minimum LAT,
-     * minimum LON, maximum LAT, maximum LON, and child pointer from the block into their respective arrays. It then
-     * creates a list of doubles for the coordinates and a Rectangle object with the coordinates and child pointer. The
-     * Rectangle object is added to the ArrayList of rectangles. If an exception occurs during this process, it is caught
-     * and the stack trace is printed.
+     * This method retrieves the entries of a rectangle from the index file. It reads every entry of the node through a
+     * NodeView and creates a Rectangle object with the coordinates and the child pointer of the entry, which is added
+     * to the ArrayList of rectangles. The traversals of the queries read the entries through the NodeView directly,
+     * this method is meant for the callers that need the entries as objects. If an exception occurs during this
+     * process, it is caught and the stack trace is printed.
      *
      * @param id the id of the rectangle for which the entries are to be retrieved
      * @return an ArrayList of Rectangle objects representing the entries of the rectangle
      */
     public static ArrayList<Rectangle> getRectangleEntries(int id) {
         ArrayList<Rectangle> rectangles = new ArrayList<>();
+        NodeView node = new NodeView();
         try {
-            File file = new File(FileHandler.getIndexfilePath());
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] block = new byte[blockSize];
-            System.arraycopy(bytes, id * blockSize, block, 0, blockSize);
-            byte[] currentNoOfEntries = new byte[Integer.BYTES];
-            System.arraycopy(block, Integer.BYTES, currentNoOfEntries, 0, Integer.BYTES);
-            int tempCurrentNoOfEntries = ByteBuffer.wrap(currentNoOfEntries).getInt();
-            byte[] minLAT = new byte[Double.BYTES];
-            byte[] minLON = new byte[Double.BYTES];
-            byte[] maxLAT = new byte[Double.BYTES];
-            byte[] maxLON = new byte[Double.BYTES];
-            byte[] childPointer = new byte[Integer.BYTES];
-            int byteCounter = 3 * Integer.BYTES;
-            for (int i = 0; i < tempCurrentNoOfEntries; i++) {
-                System.arraycopy(block, byteCounter, minLAT, 0, Double.BYTES);
-                System.arraycopy(block, byteCounter + Double.BYTES, minLON, 0, Double.BYTES);
-                System.arraycopy(block, byteCounter + 2 * Double.BYTES, maxLAT, 0, Double.BYTES);
-                System.arraycopy(block, byteCounter + 3 * Double.BYTES, maxLON, 0, Double.BYTES);
-                System.arraycopy(block, byteCounter + 4 * Double.BYTES, childPointer, 0, Integer.BYTES);
-                List<Double> coordinates = List.of(ByteBuffer.wrap(minLAT).getDouble(), ByteBuffer.wrap(minLON).getDouble(), ByteBuffer.wrap(maxLAT).getDouble(), ByteBuffer.wrap(maxLON).getDouble());
-                Rectangle rectangle = new Rectangle(new ArrayList<>(coordinates), ByteBuffer.wrap(childPointer).getInt());
-                rectangles.add(rectangle);
-                byteCounter += 4 * Double.BYTES + Integer.BYTES;
+            node.pin(id);
+            double[] coordinates = new double[2 * dimensions];
+            for (int i = 0; i < node.entryCount(); i++) {
+                rectangles.add(new Rectangle(node.rectangle(i, coordinates), node.child(i)));
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
         return rectangles;
     }
 
     /**
-     * This method retrieves the records from the index file. It first creates a new ArrayList to store the records. It
-     * then opens the index file and reads all bytes from the file. It creates a new byte array for the block and copies
-     * the bytes of the file into the block array. It retrieves the number of entries in the block and creates a byte
-     * array for the record id of each entry. It enters a loop that iterates over each entry in the block. For each entry,
-     * it copies the record id from the block into the record id array. It then retrieves the record corresponding to the
-     * record id from the records ArrayList and adds it to the result ArrayList. If an exception occurs during this
-     * process, it is caught and the stack trace is printed.
+     * This method retrieves the records from the index file. It reads the record id of every entry of the leaf through
+     * a NodeView and fetches the records with these ids from the data file with one batch. If an exception occurs
+     * during this process, it is caught and the stack trace is printed.
      *
      * @param id the id of the record for which the records are to be retrieved
      * @return an ArrayList of Record objects representing the records of the block
      */
     public static ArrayList<Record> getRecords(int id) {
-        ArrayList<Record> result = new ArrayList<>();
+        ArrayList<Integer> ids = new ArrayList<>();
+        NodeView node = new NodeView();
         try {
-            File file = new File(FileHandler.getIndexfilePath());
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] block = new byte[blockSize];
-            System.arraycopy(bytes, id * blockSize, block, 0, blockSize);
-            byte[] currentNoOfEntries = new byte[Integer.BYTES];
-            System.arraycopy(block, Integer.BYTES, currentNoOfEntries, 0, Integer.BYTES);
-            int tempCurrentNoOfEntries = ByteBuffer.wrap(currentNoOfEntries).getInt();
-            byte[] recordId = new byte[Integer.BYTES];
-            int byteCounter = 3 * Integer.BYTES;
-            for (int i = 0; i < tempCurrentNoOfEntries; i++) {
-                System.arraycopy(block, byteCounter + 2 * Double.BYTES, recordId, 0, Integer.BYTES);
-                result.add(records.get(ByteBuffer.wrap(recordId).getInt()));
-                byteCounter += 2 * Double.BYTES + Integer.BYTES;
+            node.pin(id);
+            for (int i = 0; i < node.entryCount(); i++) {
+                ids.add(node.recordId(i));
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
-        return result;
+        return fetchRecords(ids);
     }
 
     public static String getIndexfilePath() {
         return IndexfilePath;
     }
 
+    public static String getOsmfilePath() {
+        return OsmfilePath;
+    }
+
+    public static void setOsmfilePath(String osmfilePath) {
+        OsmfilePath = osmfilePath;
+    }
+
     public static String getDatafilePath() {
         return DatafilePath;
     }
@@ -524,13 +508,14 @@ public class FileHandler {
 
     public static void setBlockSize(int newblockSize) {
         blockSize = newblockSize;
+        BufferPool.reset();
     }
 
     public static int getLeafLevel() {
         return leafLevel;
     }
 
-    public static double[][] getRootMBR() {
+    public static double[] getRootMBR() {
         return rootMBR;
     }
 
@@ -542,7 +527,7 @@ public class FileHandler {
         FileHandler.root = root;
     }
 
-    public static void setRootMBR(double[][] rtmbr) {
+    public static void setRootMBR(double[] rtmbr) {
         rootMBR = rtmbr;
     }
 
@@ -562,38 +547,203 @@ public class FileHandler {
         FileHandler.leafLevel = leafLevel;
     }
 
+    /**
+     * This method returns the record with the given id from the record table. If an exception occurs during this
+     * process, it is caught, the stack trace is printed and null is returned.
+     *
+     * @param id the id of the record
+     * @return the record with the given id
+     */
     public static Record getRecord(int id) {
-        return records.get(id);
+        try {
+            return RecordTable.get(id);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
+    /**
+     * This method returns the records with the given ids, names included. The records are fetched from the data file
+     * with one batch that reads every block at most once. If an exception occurs during this process, it is caught, the
+     * stack trace is printed and an empty list is returned.
+     *
+     * @param ids the ids of the records
+     * @return an ArrayList of the records, in the order of the ids
+     */
+    public static ArrayList<Record> fetchRecords(ArrayList<Integer> ids) {
+        ArrayList<Record> result = new ArrayList<>(ids.size());
+        try {
+            int[] recordIds = new int[ids.size()];
+            for (int i = 0; i < recordIds.length; i++) {
+                recordIds[i] = ids.get(i);
+            }
+            result.addAll(Arrays.asList(RecordTable.get(recordIds)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * This method returns every record of the data file in the order of the ids. The records are loaded from the record
+     * table the first time they are needed. They hold no names, use getRecord for a record with its name. If an
+     * exception occurs during this process, it is caught, the stack trace is printed and an empty list is returned.
+     *
+     * @return an ArrayList of the records of the data file
+     */
     public static ArrayList<Record> getRecords() {
+        if (records == null) {
+            try {
+                records = RecordTable.getAll();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
         return records;
     }
 
-    public static Queue<Integer> getEmptyBlocks() {
-        return emptyBlocks;
+    /**
+     * This method adds a record that was appended to the record table to the loaded records, if they are loaded.
+     *
+     * @param record the record that was appended
+     */
+    static void addRecord(Record record) {
+        if (records != null) records.add(record);
     }
 
-    public static void setEmptyBlocks(Queue<Integer> emptyBlocks) {
-        FileHandler.emptyBlocks = emptyBlocks;
+    /**
+     * This method adds the block of the index file with the given id to the chain of free blocks. The block is marked
+     * as free and the id of the previous head of the chain is written into it, so the chain is kept in the index file
+     * and the block is reused by a later split, also after a restart.
+     *
+     * @param blockId the id of the block that is no longer used
+     * @throws IOException if the block cannot be written to the index file
+     */
+    public static void freeIndexBlock(int blockId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+        header.putInt(Superblock.freeBlockLevel).putInt(0).putInt(freeListHead);
+        BufferPool.write((long) blockId * blockSize, header.array());
+        freeListHead = blockId;
+        noOfFreeBlocks++;
+        Superblock.writeIndexfile();
     }
 
-    public static void setDimensions(int dimensions) {
-        FileHandler.dimensions = dimensions;
+    /**
+     * This method removes the head of the chain of free blocks and returns its id. The chain must not be empty.
+     *
+     * @return the id of the free block that can be reused
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public static int takeFreeIndexBlock() throws IOException {
+        int blockId = freeListHead;
+        freeListHead = BufferPool.readInt((long) blockId * blockSize + 2 * Integer.BYTES);
+        noOfFreeBlocks--;
+        Superblock.writeIndexfile();
+        return blockId;
+    }
+
+    public static boolean hasFreeIndexBlocks() {
+        return freeListHead != 0;
+    }
+
+    public static int getFreeListHead() {
+        return freeListHead;
+    }
+
+    public static int getNoOfFreeBlocks() {
+        return noOfFreeBlocks;
     }
 
-    public static char getDelimiter() {
-        return delimiter;
+    public static void setFreeList(int freeListHead, int noOfFreeBlocks) {
+        FileHandler.freeListHead = freeListHead;
+        FileHandler.noOfFreeBlocks = noOfFreeBlocks;
     }
 
-    public static char getBlockSeparator() {
-        return blockSeparator;
+    public static void setDimensions(int dimensions) {
+        FileHandler.dimensions = dimensions;
     }
 
     public static void setBottomUp(boolean bottomUp) {
         FileHandler.bottomUp = bottomUp;
     }
 
+    public static void setMemoryMapped(boolean memoryMapped) {
+        FileHandler.memoryMapped = memoryMapped;
+        MappedIndexFile.reset();
+    }
+
+    public static boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * This method switches the compressed reads of the index file on or off. When they are switched on, the compressed
+     * copy of the index file is built if it is missing or stale.
+     *
+     * @param compressed true to read the nodes from the compressed copy of the index file
+     */
+    public static void setCompressed(boolean compressed) {
+        FileHandler.compressed = compressed;
+        CompressedIndex.update();
+    }
+
+    public static boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * This method sets the format of the rectangles of the internal nodes. It is set before a new index file is built
+     * and read from the superblock when an index file is opened, so it always matches the open index file.
+     *
+     * @param quantizedMBRs true to store the rectangles as floats rounded outward
+     */
+    public static void setQuantizedMBRs(boolean quantizedMBRs) {
+        FileHandler.quantizedMBRs = quantizedMBRs;
+    }
+
+    public static boolean isQuantizedMBRs() {
+        return quantizedMBRs;
+    }
+
+    /**
+     * This method sets the format of the leaves, columnar or with the coordinates and the id of every entry next to
+     * each other. It is set before a new index file is built and read from the superblock when an index file is
+     * opened, so it always matches the open index file.
+     *
+     * @param columnarLeaves true to store the LATs, the LONs and the record ids of a leaf as three columns
+     */
+    public static void setColumnarLeaves(boolean columnarLeaves) {
+        FileHandler.columnarLeaves = columnarLeaves;
+    }
+
+    public static boolean isColumnarLeaves() {
+        return columnarLeaves;
+    }
+
+    /**
+     * This method sets the algorithm that splits the overflowing nodes. It is set before a new index file is built and
+     * read from the superblock when an index file is opened, so an index is always split the way it was built.
+     *
+     * @param splitStrategy the split strategy
+     */
+    public static void setSplitStrategy(SplitStrategy splitStrategy) {
+        FileHandler.splitStrategy = splitStrategy;
+    }
+
+    public static SplitStrategy getSplitStrategy() {
+        return splitStrategy;
+    }
+
+    public static long getGeneration() {
+        return generation;
+    }
+
+    public static void setGeneration(long generation) {
+        FileHandler.generation = generation;
+    }
+
     public static boolean isBottomUp() {
         return bottomUp;
     }
@@ -0,0 +1,179 @@
+/**
+ * This class provides the geometry kernels of the tree. A rectangle is a primitive double array that holds the lower
+ * bound of every dimension followed by the upper bound of every dimension, which is the order the rectangles are stored
+ * in the index file, so {minLat, minLon, maxLat, maxLon} in two dimensions. A point is given either as a double array of
+ * one coordinate per dimension or as a LAT and a LON. The kernels work on the arrays in place and allocate nothing, so
+ * they can be called for every entry a split, a ChooseSubtree or a query looks at.
+ */
+public class Geometry {
+
+    /**
+     * This method returns an empty rectangle of the given number of dimensions. The bounds start at positive and
+     * negative infinity, so the first point or rectangle that is included sets them.
+     *
+     * @param dimensions the number of dimensions
+     * @return the empty rectangle
+     */
+    public static double[] emptyRectangle(int dimensions) {
+        double[] rectangle = new double[2 * dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            rectangle[i] = Double.POSITIVE_INFINITY;
+            rectangle[i + dimensions] = Double.NEGATIVE_INFINITY;
+        }
+        return rectangle;
+    }
+
+    /**
+     * This method enlarges the given rectangle so that it contains the given point.
+     *
+     * @param rectangle the rectangle to enlarge
+     * @param lat       the LAT of the point
+     * @param lon       the LON of the point
+     */
+    public static void include(double[] rectangle, double lat, double lon) {
+        int dimensions = rectangle.length / 2;
+        if (lat < rectangle[0]) rectangle[0] = lat;
+        if (lon < rectangle[1]) rectangle[1] = lon;
+        if (lat > rectangle[dimensions]) rectangle[dimensions] = lat;
+        if (lon > rectangle[1 + dimensions]) rectangle[1 + dimensions] = lon;
+    }
+
+    /**
+     * This method enlarges the given rectangle so that it contains the other rectangle.
+     *
+     * @param rectangle the rectangle to enlarge
+     * @param other     the rectangle to include
+     */
+    public static void include(double[] rectangle, double[] other) {
+        int dimensions = rectangle.length / 2;
+        for (int i = 0; i < dimensions; i++) {
+            if (other[i] < rectangle[i]) rectangle[i] = other[i];
+            if (other[i + dimensions] > rectangle[i + dimensions]) rectangle[i + dimensions] = other[i + dimensions];
+        }
+    }
+
+    /**
+     * This method checks if two rectangles intersect. Rectangles that only touch at their bounds intersect.
+     *
+     * @param a the first rectangle
+     * @param b the second rectangle
+     * @return true if the rectangles have at least one point in common
+     */
+    public static boolean intersects(double[] a, double[] b) {
+        int dimensions = a.length / 2;
+        for (int i = 0; i < dimensions; i++) {
+            if (a[i] > b[i + dimensions] || a[i + dimensions] < b[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method checks if a rectangle contains a point. The bounds of the rectangle belong to it.
+     *
+     * @param rectangle the rectangle
+     * @param lat       the LAT of the point
+     * @param lon       the LON of the point
+     * @return true if the point lies in the rectangle
+     */
+    public static boolean contains(double[] rectangle, double lat, double lon) {
+        int dimensions = rectangle.length / 2;
+        return lat >= rectangle[0] && lat <= rectangle[dimensions] && lon >= rectangle[1] && lon <= rectangle[1 + dimensions];
+    }
+
+    /**
+     * This method returns the area of a rectangle, the product of its extents in every dimension.
+     *
+     * @param rectangle the rectangle
+     * @return the area of the rectangle
+     */
+    public static double area(double[] rectangle) {
+        int dimensions = rectangle.length / 2;
+        double area = 1;
+        for (int i = 0; i < dimensions; i++) {
+            area *= rectangle[i + dimensions] - rectangle[i];
+        }
+        return area;
+    }
+
+    /**
+     * This method returns the margin of a rectangle, the sum of its extents in every dimension.
+     *
+     * @param rectangle the rectangle
+     * @return the margin of the rectangle
+     */
+    public static double margin(double[] rectangle) {
+        int dimensions = rectangle.length / 2;
+        double margin = 0;
+        for (int i = 0; i < dimensions; i++) {
+            margin += rectangle[i + dimensions] - rectangle[i];
+        }
+        return margin;
+    }
+
+    /**
+     * This method returns the area of the intersection of two rectangles. Rectangles that do not intersect or only
+     * touch at their bounds have an overlap of zero.
+     *
+     * @param a the first rectangle
+     * @param b the second rectangle
+     * @return the area of the intersection of the rectangles
+     */
+    public static double overlap(double[] a, double[] b) {
+        int dimensions = a.length / 2;
+        double overlap = 1;
+        for (int i = 0; i < dimensions; i++) {
+            double extent = Math.min(a[i + dimensions], b[i + dimensions]) - Math.max(a[i], b[i]);
+            if (extent <= 0) return 0;
+            overlap *= extent;
+        }
+        return overlap;
+    }
+
+    /**
+     * This method returns how much the area of a rectangle grows when it is enlarged to contain the given point.
+     *
+     * @param rectangle the rectangle
+     * @param lat       the LAT of the point
+     * @param lon       the LON of the point
+     * @return the area of the enlarged rectangle minus the area of the rectangle
+     */
+    public static double enlargement(double[] rectangle, double lat, double lon) {
+        int dimensions = rectangle.length / 2;
+        double enlargedLat = Math.max(rectangle[dimensions], lat) - Math.min(rectangle[0], lat);
+        double enlargedLon = Math.max(rectangle[1 + dimensions], lon) - Math.min(rectangle[1], lon);
+        return enlargedLat * enlargedLon - area(rectangle);
+    }
+
+    /**
+     * This method returns the minimum distance between a point and a rectangle, which is zero if the point lies in the
+     * rectangle.
+     *
+     * @param rectangle the rectangle
+     * @param point     the coordinates of the point
+     * @return the minimum distance between the point and the rectangle
+     */
+    public static double minDist(double[] rectangle, double[] point) {
+        int dimensions = rectangle.length / 2;
+        double squareSum = 0.0;
+        for (int i = 0; i < dimensions; i++) {
+            double distance = Math.max(rectangle[i] - point[i], Math.max(0, point[i] - rectangle[i + dimensions]));
+            squareSum += distance * distance;
+        }
+        return Math.sqrt(squareSum);
+    }
+
+    /**
+     * This method returns the distance between a point and the point with the given LAT and LON.
+     *
+     * @param point the coordinates of the first point
+     * @param lat   the LAT of the second point
+     * @param lon   the LON of the second point
+     * @return the distance between the two points
+     */
+    public static double distance(double[] point, double lat, double lon) {
+        double latDistance = point[0] - lat;
+        double lonDistance = point[1] - lon;
+        return Math.sqrt(latDistance * latDistance + lonDistance * lonDistance);
+    }
+
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+
+/**
+ * This class is the distribution of the splits of Guttman's R-tree, the linear and the quadratic split. Two seeds start
+ * the two groups, and the other entries are assigned one by one to the group whose MBR needs the least area enlargement
+ * to hold them, ties broken by the smaller area and then by the fewer entries. When a group needs all the entries that
+ * are left to reach the minimum fill, it gets them. The two splits differ in how they pick the seeds and the next entry.
+ * Overflowing nodes are split at once, without reinsertion.
+ */
+public abstract class GuttmanSplit implements SplitStrategy {
+
+    /**
+     * This method returns the indexes of the two entries that start the groups.
+     *
+     * @param entries the rectangles of the entries
+     * @return the indexes of the two seeds
+     */
+    abstract int[] pickSeeds(ArrayList<double[]> entries);
+
+    /**
+     * This method returns the index of the entry that is assigned next.
+     *
+     * @param entries  the rectangles of the entries
+     * @param assigned the entries that are assigned to a group already
+     * @param firstMBR the MBR of the first group
+     * @param secondMBR the MBR of the second group
+     * @return the index of an entry that is not assigned
+     */
+    abstract int pickNext(ArrayList<double[]> entries, boolean[] assigned, double[] firstMBR, double[] secondMBR);
+
+    @Override
+    public int distribute(ArrayList<double[]> entries, boolean leaf, int maxEntries, int blockId, int[] order) {
+        int size = entries.size();
+        int minEntries = SplitStrategy.minEntries(maxEntries);
+        int[] seeds = pickSeeds(entries);
+        boolean[] assigned = new boolean[size];
+        boolean[] inFirst = new boolean[size];
+        double[] firstMBR = entries.get(seeds[0]).clone();
+        double[] secondMBR = entries.get(seeds[1]).clone();
+        assigned[seeds[0]] = true;
+        assigned[seeds[1]] = true;
+        inFirst[seeds[0]] = true;
+        int firstSize = 1;
+        int secondSize = 1;
+        for (int left = size - 2; left > 0; left--) {
+            int next = pickNext(entries, assigned, firstMBR, secondMBR);
+            boolean toFirst;
+            if (firstSize + left <= minEntries) {
+                toFirst = true;
+            } else if (secondSize + left <= minEntries) {
+                toFirst = false;
+            } else {
+                double firstEnlargement = enlargement(firstMBR, entries.get(next));
+                double secondEnlargement = enlargement(secondMBR, entries.get(next));
+                if (firstEnlargement != secondEnlargement) {
+                    toFirst = firstEnlargement < secondEnlargement;
+                } else if (Geometry.area(firstMBR) != Geometry.area(secondMBR)) {
+                    toFirst = Geometry.area(firstMBR) < Geometry.area(secondMBR);
+                } else {
+                    toFirst = firstSize <= secondSize;
+                }
+            }
+            assigned[next] = true;
+            if (toFirst) {
+                inFirst[next] = true;
+                Geometry.include(firstMBR, entries.get(next));
+                firstSize++;
+            } else {
+                Geometry.include(secondMBR, entries.get(next));
+                secondSize++;
+            }
+        }
+        int first = 0;
+        int second = firstSize;
+        for (int i = 0; i < size; i++) {
+            if (inFirst[i]) order[first++] = i;
+            else order[second++] = i;
+        }
+        return firstSize;
+    }
+
+    /**
+     * This method returns how much the area of a rectangle grows when it is enlarged to contain another rectangle.
+     *
+     * @param rectangle the rectangle
+     * @param other     the rectangle to contain
+     * @return the area of the enlarged rectangle minus the area of the rectangle
+     */
+    static double enlargement(double[] rectangle, double[] other) {
+        double[] enlarged = rectangle.clone();
+        Geometry.include(enlarged, other);
+        return Geometry.area(enlarged) - Geometry.area(rectangle);
+    }
+
+    @Override
+    public boolean reinsertsOnOverflow() {
+        return false;
+    }
+
+}
@@ -1,122 +1,154 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * This class implements the Hilbert Sort algorithm to sort a list of records. It keeps track of the sorted list and the
- * unsorted list. It also keeps track of the size of the square.
+ * This class sorts the records of the bottom-up construction along the Hilbert curve. Every point is mapped to a 64-bit
+ * Hilbert key on a grid of 2^32 by 2^32 cells that is laid over the MBR of the records, so points with negative
+ * coordinates and data sets of any extent are sorted the same way, and points that are close on the curve are close in
+ * space, which gives the leaves of the bottom-up construction small MBRs.
+ * <p>
+ * The key and the index of its record are packed into one long, the leading bits of the key followed by the index, so
+ * the records are sorted with one parallel sort of a primitive array. Cutting the last bits of a Hilbert key gives the
+ * key of the same point on a coarser grid, so only points that share a cell of the coarser grid can swap places. With a
+ * million records the coarser grid still has 2^22 cells in every dimension.
  */
 public class HilbertSort {
-    //keep track of sorted list
-    Queue<Record> sortedList;
-    Queue<Record> unsortedList;
-    //size of square
-    double S;
+    private static final int order = 32;
 
     /**
-     * This is the constructor for the HilbertSort class. It takes a Queue of Record objects (the list to be sorted) and
-     * the size of the square. It initializes the unsortedList and S with the input parameters. It also initializes the
-     * sortedList as a new LinkedList.
+     * This method returns the indexes of the given records in the order of their Hilbert keys.
      *
-     * @param List        the list of records to be sorted
-     * @param sizeOfSpace the size of the square
+     * @param records the records to sort
+     * @return the indexes of the records in the list, in the order of the Hilbert curve
      */
-    public HilbertSort(Queue<Record> List, double sizeOfSpace) {
-        this.unsortedList = List;
-        S = sizeOfSpace;
-        this.sortedList = new LinkedList();
+    public static int[] sort(ArrayList<Record> records) {
+        int noOfRecords = records.size();
+        double[] lats = new double[noOfRecords];
+        double[] lons = new double[noOfRecords];
+        double[] mbr = Geometry.emptyRectangle(2);
+        for (int i = 0; i < noOfRecords; i++) {
+            lats[i] = records.get(i).getLAT();
+            lons[i] = records.get(i).getLON();
+            Geometry.include(mbr, lats[i], lons[i]);
+        }
+        int indexBits = indexBits(noOfRecords);
+        long[] pairs = sort(lats, lons, noOfRecords, mbr);
+        int[] indexes = new int[noOfRecords];
+        for (int i = 0; i < noOfRecords; i++) {
+            indexes[i] = index(pairs[i], indexBits);
+        }
+        return indexes;
     }
 
     /**
-     * This method calls the hilbertSort method to sort the records. It returns the sorted list of records.
+     * This method sorts the first points of the given arrays by their Hilbert keys on the grid over the given MBR and
+     * returns their pairs, the leading bits of the key followed by the index of the point in indexBits(lats.length)
+     * bits. The width of the index depends on the length of the arrays and not on the number of points, so the cut keys
+     * of arrays that are filled again and again with batches of points can be compared with each other.
      *
-     * @return the sorted list of records
+     * @param lats  the LATs of the points
+     * @param lons  the LONs of the points
+     * @param count the number of points to sort, from the start of the arrays
+     * @param mbr   the MBR of the grid, in the layout of the Geometry kernels
+     * @return the pairs of the points, in the order of the Hilbert curve
      */
-    public Queue<Record> hilbertHelper() {
-        hilbertSort(S, unsortedList);
-        return sortedList;
+    public static long[] sort(double[] lats, double[] lons, int count, double[] mbr) {
+        int indexBits = indexBits(lats.length);
+        long[] pairs = new long[count];
+        // the sign bit is flipped, so the signed order of the pairs is the unsigned order of the keys
+        Arrays.parallelSetAll(pairs, i -> (key(lats[i], lons[i], mbr) >>> indexBits << indexBits | i) ^ Long.MIN_VALUE);
+        Arrays.parallelSort(pairs);
+        return pairs;
     }
 
     /**
-     * This method recursively divides the square into quadrants to sort the records. It takes the size of the square and
-     * the list of records to be sorted as parameters. It creates four new queues for the four quadrants. It then iterates
-     * over the unsorted list and places each record into the corresponding quadrant. It then checks each quadrant. If a
-     * quadrant has only one record, it adds that record to the sorted list. If a quadrant has more than one record, it
-     * further divides that quadrant until only one record is left in each quadrant. Finally, it adds the records to the
-     * sortedList based on the order of the quadrants.
+     * This method returns the number of bits of the index of a pair for arrays of the given length.
      *
-     * @param S          the size of the square
-     * @param listToSort the list of records to be sorted
+     * @param length the length of the arrays of the points
+     * @return the number of bits of the index
      */
-    private void hilbertSort(double S, Queue<Record> listToSort) {
-        //put all unsorted location into proper quadrant
-        Queue<Record> quadrant1 = new LinkedList<Record>();
-        Queue<Record> quadrant2 = new LinkedList<Record>();
-        Queue<Record> quadrant3 = new LinkedList<Record>();
-        Queue<Record> quadrant4 = new LinkedList<Record>();
-        while (!listToSort.isEmpty()) {
-            Record item = listToSort.remove();
-            //check the x,y values of each location and placed it into corresponding quadrant
-            if (item.getLAT() >= 0 && item.getLAT() <= S / 2 && 0 <= item.getLON() && item.getLON() <= S / 2) {
-                quadrant1.add(item);
-            } else if (item.getLAT() >= 0 && item.getLAT() <= S / 2 && S / 2 <= item.getLON() && item.getLON() <= S) {
-                quadrant2.add(item);
-            } else if (item.getLAT() >= S / 2 && item.getLAT() <= S && S / 2 <= item.getLON() && item.getLON() <= S) {
-                quadrant3.add(item);
-            } else if (item.getLAT() >= S / 2 && item.getLAT() <= S && 0 <= item.getLON() && item.getLON() <= S / 2) {
-                quadrant4.add(item);
-            }
-        }
-        //visit the quadrant by order to check if there is only one item in the quadrant
-        // if true add that item to sorted list
-        //otherwise further divide that quadrant till there is only one item in the quadrant
-        //put items to sortedList based on 1,2,3,4 quadrant order
-        if (quadrant1.size() > 0) {
-            if (quadrant1.size() == 1) {
-                sortedList.add(quadrant1.remove());
-            } else {
-                //iterates through elements to change x, y by rotation;
-                for (Record item : quadrant1) {
-                    double temp = item.getLAT();
-                    item.setLAT(item.getLON());
-                    item.setLON(temp);
-                }
-                hilbertSort(S / 2, quadrant1);
-            }
-        }
-        if (quadrant2.size() > 0) {
-            if (quadrant2.size() == 1) {
-                sortedList.add(quadrant2.remove());
-            } else {
-                for (Record item : quadrant2) {
-                    item.setLON(item.getLON() - S / 2);
-                }
-                hilbertSort(S / 2, quadrant2);
-            }
-        }
-        if (quadrant3.size() > 0) {
-            if (quadrant3.size() == 1) {
-                sortedList.add(quadrant3.remove());
-            } else {
-                for (Record item : quadrant3) {
-                    item.setLAT(item.getLAT() - S / 2);
-                    item.setLON(item.getLON() - S / 2);
-                }
-                hilbertSort(S / 2, quadrant3);
-            }
-        }
-        if (quadrant4.size() > 0) {
-            if (quadrant4.size() == 1) {
-                sortedList.add(quadrant4.remove());
-            } else {
-                //iterates through and change x,y by rotation
-                for (Record item : quadrant4) {
-                    double temp = item.getLON();
-                    item.setLON(S - item.getLAT());
-                    item.setLAT(S / 2 - temp);
+    public static int indexBits(int length) {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(length - 1));
+    }
+
+    /**
+     * This method returns the index of the point of a pair.
+     *
+     * @param pair      the pair
+     * @param indexBits the number of bits of the index
+     * @return the index of the point
+     */
+    public static int index(long pair, int indexBits) {
+        return (int) (pair & ((1L << indexBits) - 1));
+    }
+
+    /**
+     * This method returns the Hilbert key of a pair without its last indexBits bits, as an unsigned number.
+     *
+     * @param pair      the pair
+     * @param indexBits the number of bits of the index
+     * @return the cut Hilbert key of the point
+     */
+    public static long cutKey(long pair, int indexBits) {
+        return (pair ^ Long.MIN_VALUE) >>> indexBits;
+    }
+
+    /**
+     * This method returns the Hilbert key of the given point on the grid of 2^32 by 2^32 cells over the given MBR. The
+     * key is an unsigned 64-bit number.
+     *
+     * @param lat the LAT of the point
+     * @param lon the LON of the point
+     * @param mbr the MBR of the grid, in the layout of the Geometry kernels
+     * @return the Hilbert key of the point
+     */
+    public static long key(double lat, double lon, double[] mbr) {
+        return key(cell(lat, mbr[0], mbr[2], order), cell(lon, mbr[1], mbr[3], order));
+    }
+
+    /**
+     * This method returns the Hilbert key of the given cell of the grid. The curve is walked from the largest
+     * quadrants to the smallest, and every quadrant adds its position on the curve to the key and rotates the cell into
+     * the orientation of the curve within it.
+     *
+     * @param x the cell in the first dimension, from 0 to 2^32 - 1
+     * @param y the cell in the second dimension, from 0 to 2^32 - 1
+     * @return the Hilbert key of the cell
+     */
+    public static long key(long x, long y) {
+        long side = 1L << order;
+        long key = 0;
+        for (long s = side >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            key += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
                 }
-                hilbertSort(S / 2, quadrant4);
+                long temp = x;
+                x = y;
+                y = temp;
             }
         }
+        return key;
+    }
+
+    /**
+     * This method returns the cell of the grid with 2^bits cells in the dimension that holds the given coordinate. The
+     * Hilbert keys use grids of 2^32 cells, the StrSort grids of as many cells as the bits next to the index allow.
+     *
+     * @param coordinate the coordinate
+     * @param min        the lower bound of the grid in the dimension
+     * @param max        the upper bound of the grid in the dimension
+     * @param bits       the number of bits of a cell
+     * @return the cell, from 0 to 2^bits - 1
+     */
+    public static long cell(double coordinate, double min, double max, int bits) {
+        if (!(max > min)) return 0;
+        long maxCell = (1L << bits) - 1;
+        return Math.max(0, Math.min(maxCell, (long) ((coordinate - min) / (max - min) * maxCell)));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+/**
+ * This class sorts the indexes of an array of primitive keys, so a list of entries is sorted by a key that is
+ * calculated once per entry into a parallel array instead of on every comparison. The sort is a merge sort, O(n log n)
+ * in every case, and stable, so entries with equal keys keep their order, which makes a sort by a second key after a
+ * sort by a first key an order by both. Short runs are sorted by insertion.
+ */
+public class IndexSort {
+    private static final int insertionSortLength = 16;
+
+    /**
+     * This method returns the indexes of the given keys in ascending order of the keys.
+     *
+     * @param keys the keys
+     * @return the indexes of the keys, in ascending order of the keys
+     */
+    public static int[] ascending(double[] keys) {
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        mergeSort(keys, order, new int[keys.length], 0, keys.length);
+        return order;
+    }
+
+    /**
+     * This method returns the indexes of the given keys in descending order of the keys.
+     *
+     * @param keys the keys
+     * @return the indexes of the keys, in descending order of the keys
+     */
+    public static int[] descending(double[] keys) {
+        double[] negated = new double[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            negated[i] = -keys[i];
+        }
+        return ascending(negated);
+    }
+
+    /**
+     * This method sorts the given range of the indexes by their keys.
+     *
+     * @param keys   the keys
+     * @param order  the indexes to sort
+     * @param buffer a buffer as long as the indexes
+     * @param from   the first position of the range
+     * @param to     the position after the last of the range
+     */
+    private static void mergeSort(double[] keys, int[] order, int[] buffer, int from, int to) {
+        if (to - from <= insertionSortLength) {
+            for (int i = from + 1; i < to; i++) {
+                int index = order[i];
+                int j = i - 1;
+                while (j >= from && keys[order[j]] > keys[index]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = index;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, order, buffer, from, middle);
+        mergeSort(keys, order, buffer, middle, to);
+        if (keys[order[middle - 1]] <= keys[order[middle]]) return;
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from;
+        int j = middle;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < middle && keys[buffer[i]] <= keys[buffer[j]])) {
+                order[k] = buffer[i++];
+            } else {
+                order[k] = buffer[j++];
+            }
+        }
+    }
+
+}
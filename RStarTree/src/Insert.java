@@ -1,8 +1,7 @@
-import java.io.File;
+import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
 
 /**
@@ -13,60 +12,57 @@ public class Insert {
     // Keep track of overflow status and overflow level
     private static boolean overflow_first_time = false;
     private static int overflowLevel = -1;
+    private static byte[] massInsertBlock = null;
 
     /**
      * This method inserts a record into the R* Tree. It first calls the ChooseSubtree method to find the best block to
-     * save the record. It then reads all the index file and copies the block that needs to be updated into a byte array.
-     * It gets the current number of nodes inserted in the block. If there is still space in the block, it writes the
-     * record to the block and updates the number of nodes. If the block is full, it calls the overflowTreatment method
-     * to handle the overflow.
+     * save the record, which keeps the nodes from the root to the block in the path of the insert. The block that needs
+     * to be updated is the last node of the path, so it is not read again. It gets the current number of nodes inserted
+     * in the block. If there is still space in the block, it writes the record to the block, updates the number of
+     * nodes and adjusts the MBRs of the ancestors on the path. If the block is full, it calls the overflowTreatment
+     * method to handle the overflow.
      *
      * @param record the record to be inserted
      */
     public static void insert(Record record) {
         // call ChooseSubtree to find the best block to save the node and save it to blockId
-        int blockId = ChooseSubtree.chooseSubtree(record, 1);
+        InsertPath path = new InsertPath();
+        int blockId = ChooseSubtree.chooseSubtree(record, path);
         try {
-            String IndexfilePath = FileHandler.getIndexfilePath();
             int blockSize = FileHandler.getBlockSize();
-            // read all indexfile
-            File file = new File(IndexfilePath);
-            byte[] bytes = Files.readAllBytes(file.toPath());
-            byte[] block = new byte[blockSize];
-            // copy only the block that we need for the Insert based on blockId
-            System.arraycopy(bytes, blockId * blockSize, block, 0, blockSize);
+            // the block that we need for the Insert is the last node of the path
+            byte[] block = path.block(path.depth() - 1);
             // get the current number of nodes inserted in the block
             byte[] treeLevelBytes = new byte[Integer.BYTES];
             byte[] currentNoOfEntries = new byte[Integer.BYTES];
-            byte[] parentPointerArray = new byte[Integer.BYTES];
             System.arraycopy(block, 0, treeLevelBytes, 0, Integer.BYTES);
             System.arraycopy(block, Integer.BYTES, currentNoOfEntries, 0, Integer.BYTES);
-            System.arraycopy(block, 2 * Integer.BYTES, parentPointerArray, 0, Integer.BYTES);
             int treeLevel = ByteBuffer.wrap(treeLevelBytes).getInt();
             int tempCurrentNoOfEntries = ByteBuffer.wrap(currentNoOfEntries).getInt();
-            int parentPointer = ByteBuffer.wrap(parentPointerArray).getInt();
             if (tempCurrentNoOfEntries < FileHandler.calculateMaxBlockNodes()) {
-                RandomAccessFile indexfile = new RandomAccessFile(IndexfilePath, "rw");
                 // calculate the byte address which the node info will be written in the indexfile.
-                // So, block location (blockId * blockSize), metadata size (2 * Integer.BYTES), currently added nodes
-                // (tempCurrentNoOfEntries * (2 * Double.BYTES + Integer.BYTES)
-                int ByteToWrite = 3 * Integer.BYTES + tempCurrentNoOfEntries * (2 * Double.BYTES + Integer.BYTES) + blockId * blockSize;
-                byte[] datablock = new byte[2 * Double.BYTES + Integer.BYTES];
-                System.arraycopy(ConversionToBytes.doubleToBytes(record.getLAT()), 0, datablock, 0, Double.BYTES);
-                System.arraycopy(ConversionToBytes.doubleToBytes(record.getLON()), 0, datablock, Double.BYTES, Double.BYTES);
-                System.arraycopy(ConversionToBytes.intToBytes(record.getId()), 0, datablock, 2 * Double.BYTES, Integer.BYTES);
-                indexfile.seek(ByteToWrite);
-                indexfile.write(datablock);
+                // So, block location (blockId * blockSize) and the offset of the next entry in the leaf, whose LAT,
+                // LON and record id are next to each other unless the leaves are columnar
+                long ByteToWrite = (long) blockId * blockSize + NodeView.leafOffset(tempCurrentNoOfEntries, 0);
+                if (FileHandler.isColumnarLeaves()) {
+                    BufferPool.write(ByteToWrite, ConversionToBytes.doubleToBytes(record.getLAT()));
+                    BufferPool.write((long) blockId * blockSize + NodeView.leafOffset(tempCurrentNoOfEntries, 1), ConversionToBytes.doubleToBytes(record.getLON()));
+                    BufferPool.write((long) blockId * blockSize + NodeView.leafOffset(tempCurrentNoOfEntries, 2), ConversionToBytes.intToBytes(record.getId()));
+                } else {
+                    byte[] datablock = new byte[NodeView.leafEntrySize];
+                    System.arraycopy(ConversionToBytes.doubleToBytes(record.getLAT()), 0, datablock, 0, Double.BYTES);
+                    System.arraycopy(ConversionToBytes.doubleToBytes(record.getLON()), 0, datablock, Double.BYTES, Double.BYTES);
+                    System.arraycopy(ConversionToBytes.intToBytes(record.getId()), 0, datablock, 2 * Double.BYTES, Integer.BYTES);
+                    BufferPool.write(ByteToWrite, datablock);
+                }
                 if (blockId == 1)
                     Split.calculateMBRpointbypoint(FileHandler.getRootMBR(), record, tempCurrentNoOfEntries == 0, false);
-                else ReadjustMBR.reAdjustRectangleBounds(blockId, parentPointer, record, false);
+                else ReadjustMBR.reAdjustRectangleBounds(path, path.depth() - 1, record, false);
                 tempCurrentNoOfEntries++;
-                indexfile.seek((long) blockId * blockSize + Integer.BYTES);
-                indexfile.write(ConversionToBytes.intToBytes(tempCurrentNoOfEntries));
+                BufferPool.write((long) blockId * blockSize + Integer.BYTES, ConversionToBytes.intToBytes(tempCurrentNoOfEntries));
                 if (FileHandler.getRoot() == -1) FileHandler.setRoot(blockId);
-                indexfile.close();
             } else if (tempCurrentNoOfEntries == FileHandler.calculateMaxBlockNodes()) {
-                overflowTreatment(treeLevel, blockId, record);
+                overflowTreatment(treeLevel, blockId, record, path);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -76,205 +72,164 @@ public class Insert {
     /**
      * This method handles the overflow when a block is full. It first checks if the overflow level is the same as the
      * current tree level. If it is not, it sets the overflow level to the current tree level and sets the overflow flag
-     * to true. If the tree level is not 0 and the overflow flag is true, it calls the Split method to reinsert the record.
-     * Otherwise, it calls the Split method to split the block.
+     * to true. If the tree level is not 0, the overflow flag is true and the split strategy of the index reinserts on
+     * overflow, it calls the Split method to reinsert the record. Otherwise, it calls the Split method to split the block.
      *
      * @param treeLevel    the level of the tree
      * @param blockid      the id of the block
      * @param troublemaker the record that caused the overflow
+     * @param path         the path of the insert, from the root to the block
      */
 
-    public static void overflowTreatment(int treeLevel, int blockid, Record troublemaker) {
+    public static void overflowTreatment(int treeLevel, int blockid, Record troublemaker, InsertPath path) {
         if (treeLevel != overflowLevel) {
             overflow_first_time = true;
             overflowLevel = treeLevel;
         }
-        if (treeLevel != 0 && overflow_first_time) {
+        if (treeLevel != 0 && overflow_first_time && FileHandler.getSplitStrategy().reinsertsOnOverflow()) {
             overflow_first_time = false;
 
-            Split.reinsert(blockid, troublemaker);
+            Split.reinsert(blockid, troublemaker, path);
         } else {
-            Split.split(blockid, troublemaker);
+            Split.split(blockid, troublemaker, path);
             overflowLevel = -1;
         }
     }
 
     /**
-     * This method inserts multiple records into the data file during the datafile build process. It reads all the data
-     * file and copies the block that needs to be updated into a byte array. It then iterates over each record. For each
-     * record, it checks if there is enough space left in the block to insert the record. If there is enough space, it
-     * writes the record to the block. If there is not enough space, it writes the block to the file, updates the number
-     * of blocks, and writes the block to the file again. Finally, it writes the last block to the file.
+     * This method inserts multiple records into the data file during the datafile build process. It is the same as
+     * calling the batch variant with a single last batch.
      *
      * @param records the list of records to be inserted
      */
     public static void datafileMassInsert(ArrayList<Record> records) {
+        datafileMassInsert(records, true);
+    }
+
+    /**
+     * This method inserts a batch of records into the data file during the datafile build process. It iterates over
+     * each record. For each record, it checks if the record and its slot fit in the free space of the current page. If
+     * they fit, the record is added to the page. If they do not fit, the page is written to the file, the number of
+     * blocks in the first block is updated and a new empty page is started. The location of every record is appended
+     * to the record table. If the batch is the last one, the last page is written to the file and the record table is
+     * flushed. Otherwise, the partially filled last page is kept in memory and the next batch continues to fill it, so
+     * importing the records in batches produces the same data file as importing them at once.
+     *
+     * @param records   the list of records to be inserted
+     * @param lastBatch true if no more records follow this batch
+     */
+    public static void datafileMassInsert(ArrayList<Record> records, boolean lastBatch) {
         int blockSize = FileHandler.getBlockSizedatafile();
-        int dimensions = FileHandler.getDimensions();
         int noOfDatafileBlocks = FileHandler.getNoOfDatafileBlocks();
-        // data to save
-        int byteCounter = 0;
-        byte[] blockData = new byte[blockSize];
-        byte[] delimiterArray = ConversionToBytes.charToBytes(FileHandler.getDelimiter());
-        byte[] blockSeparatorArray = ConversionToBytes.charToBytes(FileHandler.getBlockSeparator());
-        byte[] name = null;
-        ArrayList<byte[]> coordsByteArrays = new ArrayList<>();
-        byte[] nodeId;
+        DatafilePage page = new DatafilePage();
+        byte[] blockData = massInsertBlock;
+        massInsertBlock = null;
+        if (blockData == null) {
+            blockData = new byte[blockSize];
+            page.wrap(blockData).init();
+        } else {
+            page.wrap(blockData);
+        }
         try {
             for (Record record : records) {
-                coordsByteArrays.clear();
-                // Adding the current byteCounter with the bytes of the incoming node in the var tempByteCounter
-                int tempByteCounter = byteCounter + Long.BYTES + dimensions * Double.BYTES + delimiterArray.length + blockSeparatorArray.length;
-                if (record.getName() != null) {
-                    name = record.getName().getBytes(StandardCharsets.UTF_8);
-                    tempByteCounter += name.length;
-                }
-                // If tempByteCounter is greater than blockSize then the block (blockData) gets written in the file
-                // blockData is instantiated again to get empty, the byteCounter resets
-                // the metadata in first block get updated
-                if (tempByteCounter >= blockSize) {
-                    System.arraycopy(blockSeparatorArray, 0, blockData, byteCounter, blockSeparatorArray.length);
-                    RandomAccessFile file = new RandomAccessFile(FileHandler.getDatafilePath(), "rw");
-                    file.seek((long) noOfDatafileBlocks * blockSize);
-                    file.write(blockData);
+                byte[] name = record.getName() != null ? record.getName().getBytes(StandardCharsets.UTF_8) : null;
+                // If the record does not fit in the page then the page (blockData) gets written in the file
+                // blockData is instantiated again as an empty page and the metadata in first block get updated
+                if (!page.fits(name != null ? name.length : 0)) {
+                    writeDatafileBlock(noOfDatafileBlocks, blockData, noOfDatafileBlocks + 1);
                     noOfDatafileBlocks++;
-                    FileHandler.setNoOfDatafileBlocks(FileHandler.getNoOfDatafileBlocks() + 1);
-                    byteCounter = 0;
+                    FileHandler.setNoOfDatafileBlocks(noOfDatafileBlocks);
                     blockData = new byte[blockSize];
-                    file.seek(8);
-                    file.write(ConversionToBytes.intToBytes(noOfDatafileBlocks));
-                    file.close();
-                }
-                nodeId = ConversionToBytes.longToBytes(record.getNodeId());
-                // the arrays of serialized data get copied in the block
-                System.arraycopy(nodeId, 0, blockData, byteCounter, Long.BYTES);
-                byteCounter += Long.BYTES;
-                for (int i = 0; i < dimensions; i++) {
-                    coordsByteArrays.add(ConversionToBytes.doubleToBytes(record.getCoords().get(i)));
-                    System.arraycopy(coordsByteArrays.get(i), 0, blockData, byteCounter, Double.BYTES);
-                    byteCounter += Double.BYTES;
-                }
-                if (name != null) {
-                    System.arraycopy(name, 0, blockData, byteCounter, name.length);
-                    byteCounter += name.length;
+                    page.wrap(blockData).init();
                 }
-                System.arraycopy(delimiterArray, 0, blockData, byteCounter, delimiterArray.length);
-                byteCounter += delimiterArray.length;
-
-                name = null;
+                int slot = page.add(record.getNodeId(), record.getCoords(), name);
+                RecordTable.append(record.getCoords()[0], record.getCoords()[1], record.getNodeId(), noOfDatafileBlocks, slot);
+            }
+            if (!lastBatch) {
+                massInsertBlock = blockData;
+                return;
             }
-            // write the last block
-            System.arraycopy(blockSeparatorArray, 0, blockData, byteCounter, blockSeparatorArray.length);
-            RandomAccessFile file = new RandomAccessFile(FileHandler.getDatafilePath(), "rw");
-            file.seek((long) noOfDatafileBlocks * blockSize);
-            file.write(blockData);
+            // write the last page
+            writeDatafileBlock(noOfDatafileBlocks, blockData, noOfDatafileBlocks + 1);
             noOfDatafileBlocks++;
             FileHandler.setNoOfDatafileBlocks(noOfDatafileBlocks);
-            file.seek(8);
-            file.write(ConversionToBytes.intToBytes(noOfDatafileBlocks));
-            file.close();
+            RecordTable.flush(noOfDatafileBlocks);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * This method inserts a record manually into the R* Tree and the data file. It first reads the last block in the
-     * data file and copies it into a byte array. It then iterates over the block and finds the end of the block. If
-     * there is enough space left in the block to insert the record, it writes the record to the block. If there is not
-     * enough space, it writes the block to the file, updates the number of blocks, and writes the block to the file
-     * again. Finally, it writes the last block to the file and inserts the record into the R* Tree.
+     * This method inserts a record manually into the R* Tree and the data file. It reads only the last page of the data
+     * file. If the record and its slot fit in the free space of the page, the record is added to it. If they do not
+     * fit, a new empty page is started after it and the number of blocks is updated. The page is written back to the
+     * file, the record is appended to the record table and it is inserted into the R* Tree in one transaction of the
+     * write-ahead log.
      *
      * @param record the record to be inserted
      */
     public static void datafileRecordInsert(Record record) {
         int blockSize = FileHandler.getBlockSizedatafile();
-        int dimensions = FileHandler.getDimensions();
         int noOfDatafileBlocks = FileHandler.getNoOfDatafileBlocks();
-        // data to save
-        int byteCounter = 0;
         byte[] dataBlock = new byte[blockSize];
-        File datafile = new File(FileHandler.getDatafilePath());
-        byte[] delimiterArray = ConversionToBytes.charToBytes(FileHandler.getDelimiter());
-        byte[] blockSeparatorArray = ConversionToBytes.charToBytes(FileHandler.getBlockSeparator());
-        char newlinestr;
-        byte[] name = null;
-        ArrayList<byte[]> coordsByteArrays = new ArrayList<>();
-        byte[] nodeId;
+        DatafilePage page = new DatafilePage().wrap(dataBlock);
+        byte[] name = record.getName() != null ? record.getName().getBytes(StandardCharsets.UTF_8) : null;
         try {
-            byte[] bytes = Files.readAllBytes(datafile.toPath());
-            System.arraycopy(bytes, (noOfDatafileBlocks - 1) * blockSize, dataBlock, 0, blockSize);
-            boolean flag = true;
-            while (flag) {
-                System.arraycopy(dataBlock, byteCounter + 24, delimiterArray, 0, delimiterArray.length);
-                newlinestr = ByteBuffer.wrap(delimiterArray).getChar();
-                int tempcounter = 0;
-                // count bytes until you meet the delimiter if not already met above
-                while (newlinestr != FileHandler.getDelimiter()) {
-                    tempcounter += 1;
-                    System.arraycopy(dataBlock, byteCounter + 24 + tempcounter, delimiterArray, 0, delimiterArray.length);
-                    newlinestr = ByteBuffer.wrap(delimiterArray).getChar();
-                }
-                if (tempcounter != 0) {
-                    byteCounter += 26 + tempcounter;
-                } else {
-                    byteCounter += 26;
-                }
-                // if datablock has the blockSeparator (#) at some point it means the end of the data read in the
-                // current block
-                System.arraycopy(dataBlock, byteCounter, blockSeparatorArray, 0, 2);
-                if (ByteBuffer.wrap(blockSeparatorArray).getChar() == FileHandler.getBlockSeparator()) flag = false;
-            }
-            // Adding the current byteCounter with the bytes of the incoming node in the var tempByteCounter
-            int tempByteCounter = byteCounter + Long.BYTES + dimensions * Double.BYTES + delimiterArray.length + blockSeparatorArray.length;
-            if (record.getName() != null) {
-                name = record.getName().getBytes(StandardCharsets.UTF_8);
-                tempByteCounter += name.length;
+            int blockId = noOfDatafileBlocks - 1;
+            if (blockId >= 1) {
+                RandomAccessFile file = new RandomAccessFile(FileHandler.getDatafilePath(), "r");
+                file.seek((long) blockId * blockSize);
+                file.readFully(dataBlock);
+                file.close();
             }
-            if (tempByteCounter >= blockSize) {
-                // byteCounter += blockSeparatorArray.length;
-                RandomAccessFile file = new RandomAccessFile(FileHandler.getDatafilePath(), "rw");
+            if (blockId < 1 || !page.fits(name != null ? name.length : 0)) {
+                blockId = noOfDatafileBlocks;
                 noOfDatafileBlocks++;
-                FileHandler.setNoOfDatafileBlocks(FileHandler.getNoOfDatafileBlocks() + 1);
-                byteCounter = 0;
+                FileHandler.setNoOfDatafileBlocks(noOfDatafileBlocks);
                 dataBlock = new byte[blockSize];
-                file.seek(8);
-                file.write(ConversionToBytes.intToBytes(noOfDatafileBlocks));
-                file.close();
+                page.wrap(dataBlock).init();
             }
-            tempByteCounter = byteCounter;
-            nodeId = ConversionToBytes.longToBytes(record.getNodeId());
-            System.arraycopy(nodeId, 0, dataBlock, byteCounter, Long.BYTES);
-            byteCounter += Long.BYTES;
-            for (int i = 0; i < dimensions; i++) {
-                coordsByteArrays.add(ConversionToBytes.doubleToBytes(record.getCoords().get(i)));
-                System.arraycopy(coordsByteArrays.get(i), 0, dataBlock, byteCounter, Double.BYTES);
-                byteCounter += Double.BYTES;
-            }
-
-            if (name != null) {
-                System.arraycopy(name, 0, dataBlock, byteCounter, name.length);
-                byteCounter += name.length;
-            }
-            System.arraycopy(delimiterArray, 0, dataBlock, byteCounter, delimiterArray.length);
-            byteCounter += delimiterArray.length;
-            System.arraycopy(blockSeparatorArray, 0, dataBlock, byteCounter, blockSeparatorArray.length);
-            RandomAccessFile file1 = new RandomAccessFile(FileHandler.getDatafilePath(), "rw");
-            file1.seek((long) (noOfDatafileBlocks - 1) * blockSize);
-            file1.write(dataBlock);
-            file1.close();
-            FileHandler.setRecords(FileHandler.getDatafileRecords());
-            FileHandler.setRoot(0);
+            int slot = page.add(record.getNodeId(), record.getCoords(), name);
+            writeDatafileBlock(blockId, dataBlock, noOfDatafileBlocks);
+            // the record is appended to the record table, so its id is known without scanning the data file
+            int id = RecordTable.append(record.getCoords()[0], record.getCoords()[1], record.getNodeId(), blockId, slot);
+            RecordTable.flush(noOfDatafileBlocks);
+            Record insertedRecord;
             if (name == null) {
-                insert(new Record(record.getCoords().get(0), record.getCoords().get(1), noOfDatafileBlocks, tempByteCounter, FileHandler.getDatafileRecords().size() - 1, record.getNodeId()));
-
+                insertedRecord = new Record(record.getCoords()[0], record.getCoords()[1], blockId, slot, id, record.getNodeId());
             } else {
-                insert(new Record(record.getCoords().get(0), record.getCoords().get(1), noOfDatafileBlocks, tempByteCounter, FileHandler.getDatafileRecords().size() - 1, record.getName(), record.getNodeId()));
-
+                insertedRecord = new Record(record.getCoords()[0], record.getCoords()[1], blockId, slot, id, record.getName(), record.getNodeId());
+            }
+            FileHandler.addRecord(insertedRecord);
+            // the insert into the R* Tree, with its splits, runs as one transaction of the write-ahead log
+            WriteAheadLog.begin();
+            try {
+                insert(insertedRecord);
+                Superblock.writeIndexfile();
+            } finally {
+                WriteAheadLog.commit();
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * This method writes a page to the data file and updates the number of blocks in the first block.
+     *
+     * @param blockId            the id of the block of the page
+     * @param blockData          the bytes of the page
+     * @param noOfDatafileBlocks the number of blocks of the data file after the write
+     * @throws IOException if the data file cannot be written
+     */
+    private static void writeDatafileBlock(int blockId, byte[] blockData, int noOfDatafileBlocks) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(FileHandler.getDatafilePath(), "rw");
+        file.seek((long) blockId * blockData.length);
+        file.write(blockData);
+        file.seek(8);
+        file.write(ConversionToBytes.intToBytes(noOfDatafileBlocks));
+        file.close();
+        DatafileReader.invalidate(blockId);
+    }
+
 }
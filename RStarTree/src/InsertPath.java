@@ -0,0 +1,108 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class keeps the path of an insert from the root to the chosen node. For every node of the path it holds the
+ * block id, a copy of the block that was read on the way down and the index of the entry that was followed, so the
+ * adjustment of the MBRs and the propagation of a split climb back up the path without reading an ancestor again or
+ * searching its entries for the child. The root is at depth 0.
+ * <p>
+ * The climb writes its changes to an ancestor into the copy of the path as well, and a split only writes the nodes
+ * below the ancestor it climbs to, so the ancestors that are still ahead of the climb are always current. A path is
+ * only valid for the insert that filled it, a nested insert, like the inserts of a reinsert, fills its own.
+ */
+public class InsertPath {
+    private int[] blockIds = new int[8];
+    private int[] entryIndexes = new int[8];
+    private byte[][] blocks = new byte[8][];
+    private int depth = 0;
+
+    /**
+     * This method empties the path.
+     */
+    public void clear() {
+        depth = 0;
+    }
+
+    /**
+     * This method reads the block with the given id and appends it to the path as the node below the last one.
+     *
+     * @param blockId the id of the block
+     * @return the copy of the block
+     * @throws IOException if the block cannot be read
+     */
+    public byte[] push(int blockId) throws IOException {
+        if (depth == blockIds.length) {
+            int length = 2 * depth;
+            int[] newBlockIds = new int[length];
+            int[] newEntryIndexes = new int[length];
+            byte[][] newBlocks = new byte[length][];
+            System.arraycopy(blockIds, 0, newBlockIds, 0, depth);
+            System.arraycopy(entryIndexes, 0, newEntryIndexes, 0, depth);
+            System.arraycopy(blocks, 0, newBlocks, 0, depth);
+            blockIds = newBlockIds;
+            entryIndexes = newEntryIndexes;
+            blocks = newBlocks;
+        }
+        blockIds[depth] = blockId;
+        entryIndexes[depth] = -1;
+        blocks[depth] = BufferPool.readBlock(blockId);
+        return blocks[depth++];
+    }
+
+    /**
+     * This method sets the index of the entry that was followed from the last node of the path.
+     *
+     * @param entryIndex the index of the entry
+     */
+    public void follow(int entryIndex) {
+        entryIndexes[depth - 1] = entryIndex;
+    }
+
+    /**
+     * This method returns the number of nodes of the path.
+     *
+     * @return the number of nodes of the path
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public int blockId(int depth) {
+        return blockIds[depth];
+    }
+
+    public byte[] block(int depth) {
+        return blocks[depth];
+    }
+
+    public void setBlock(int depth, byte[] block) {
+        blocks[depth] = block;
+    }
+
+    public int entryIndex(int depth) {
+        return entryIndexes[depth];
+    }
+
+    /**
+     * This method returns the number of entries of the node at the given depth.
+     *
+     * @param depth the depth of the node
+     * @return the number of entries of the node
+     */
+    public int entryCount(int depth) {
+        return ByteBuffer.wrap(blocks[depth]).getInt(Integer.BYTES);
+    }
+
+    /**
+     * This method returns the offset in the block of the node above the given depth of the entry that points to the node
+     * at the given depth.
+     *
+     * @param depth the depth of the node, at least 1
+     * @return the offset of the entry in the block of the parent
+     */
+    public int entryOffset(int depth) {
+        return 3 * Integer.BYTES + entryIndexes[depth - 1] * NodeView.internalEntrySize(FileHandler.getDimensions());
+    }
+
+}
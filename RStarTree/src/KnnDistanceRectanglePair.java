@@ -1,19 +1,20 @@
 /**
- * This class represents a rectangle-distance pair used in the k-nearest neighbors (KNN) algorithm. The rectangle refers
- * to the data point, and the distance is the distance between the data point and a reference point.
+ * This class represents a rectangle-distance pair used in the k-nearest neighbors (KNN) algorithm. The rectangle is
+ * referred to by the pointer to the child node it bounds, and the distance is the minimum distance between the
+ * rectangle and a reference point.
  */
 public class KnnDistanceRectanglePair {
-    private final Rectangle rectangle;
+    private final int childPointer;
     private final double distance;
 
     /**
-     * Constructs a new KnnDistanceRectanglePair with the specified rectangle and distance.
+     * Constructs a new KnnDistanceRectanglePair with the specified child pointer and distance.
      *
-     * @param rectangle the rectangle
+     * @param childPointer the pointer to the child node of the rectangle
      * @param distance the distance
      */
-    KnnDistanceRectanglePair(Rectangle rectangle, double distance) {
-        this.rectangle = rectangle;
+    KnnDistanceRectanglePair(int childPointer, double distance) {
+        this.childPointer = childPointer;
         this.distance = distance;
     }
 
@@ -21,7 +22,7 @@ public class KnnDistanceRectanglePair {
         return distance;
     }
 
-    public Rectangle getRectangle() {
-        return rectangle;
+    public int getChildPointer() {
+        return childPointer;
     }
 }
@@ -8,7 +8,7 @@ public class KnnQuery {
     protected final PriorityQueue<KnnDistanceRecordPair> knn;
     private final PriorityQueue<KnnDistanceRectanglePair> pointers;
     protected final int dimensions, k;
-    protected final ArrayList<Double> coordinates;
+    protected final double[] coordinates;
 
     /**
      * Constructs a new KnnQuery with the specified k and coordinates.
@@ -16,8 +16,8 @@ public class KnnQuery {
      * @param k the number of nearest neighbors to find
      * @param coordinates the coordinates of the point
      */
-    KnnQuery(int k, ArrayList<Double> coordinates) {
-        this.coordinates = new ArrayList<>(coordinates);
+    KnnQuery(int k, double[] coordinates) {
+        this.coordinates = coordinates.clone();
         dimensions = FileHandler.getDimensions();
         this.k = k;
         knn = new PriorityQueue<>(k, (o1, o2) -> Double.compare(o2.getDistance(), o1.getDistance()));
@@ -26,38 +26,50 @@ public class KnnQuery {
     }
 
     /**
-     * Executes the KNN query. It calculates the distance between the point and each rectangle in the file and if the
-     * distance is less than the distance of the furthest known neighbor, it adds the record to the KNN queue.
+     * Executes the KNN query. It reads the entries of every visited node through a NodeView. It calculates the distance
+     * between the point and each rectangle of an internal node and keeps the children that may contain a closer point.
+     * For the records of a leaf, if the distance is less than the distance of the furthest known neighbor, it adds the
+     * record to the KNN queue. The queue holds records of the coordinates and the ids only while the query runs, the
+     * full records of the k nearest neighbors are fetched from the data file with one batch at the end. The distances
+     * are calculated with the Geometry kernels on a reused array that holds the rectangle of the current entry. The
+     * entries of a leaf are first matched with the distance filter of the LeafFilter against the distance of the
+     * furthest known neighbor, so only the entries that can join the queue are looked at.
      */
     protected void knnQuery() {
+        NodeView node = new NodeView();
         try {
             if (FileHandler.getNoOfIndexfileBlocks() > 1) {
-                int blockId = 1, level;
+                double[] rectangle = new double[2 * dimensions];
+                long[] mask = null;
+                int blockId = 1;
 
                 do {
-                    level = FileHandler.getMetaDataOfRectangle(blockId).get(0);
-                    if (level != FileHandler.getLeafLevel()) {
-                        ArrayList<Rectangle> rectangles = FileHandler.getRectangleEntries(blockId);
-                        for (Rectangle rectangle : rectangles) {
-                            double distance = calcDistBetweenPointAndRectangle(coordinates, rectangle);
+                    node.pin(blockId);
+                    int noOfEntries = node.entryCount();
+                    if (node.level() != FileHandler.getLeafLevel()) {
+                        for (int entry = 0; entry < noOfEntries; entry++) {
+                            double distance = Geometry.minDist(node.rectangle(entry, rectangle), coordinates);
                             if (!knn.isEmpty() && knn.size() == k && distance >= knn.peek().getDistance()) {
                                 continue;
                             }
-                            KnnDistanceRectanglePair pair = new KnnDistanceRectanglePair(rectangle, distance);
-                            pointers.add(pair);
+                            pointers.add(new KnnDistanceRectanglePair(node.child(entry), distance));
                         }
                     } else {
-                        boolean condition = blockId == 1 || knn.isEmpty() || (pointers.peek() != null && knn.peek() != null && calcDistBetweenPointAndRectangle(coordinates, pointers.peek().getRectangle()) < Objects.requireNonNull(knn.peek()).getDistance());
+                        boolean condition = blockId == 1 || knn.isEmpty() || (pointers.peek() != null && knn.peek() != null && pointers.peek().getDistance() < Objects.requireNonNull(knn.peek()).getDistance());
                         if (condition) {
-                            ArrayList<Record> records = FileHandler.getRecords(blockId);
-                            for (Record record : records) {
-                                List<Double> recordCoords = List.of(record.getLAT(), record.getLON());
-                                double distance = calcDistBetweenPoints(new ArrayList<>(recordCoords), coordinates);
-                                if (distance > 0) {
-                                    KnnDistanceRecordPair pair = new KnnDistanceRecordPair(record, distance);
-                                    knn.add(pair);
-                                    if (knn.size() > k) {
-                                        knn.poll();
+                            node.loadLeafColumns();
+                            double bound = !knn.isEmpty() && knn.size() == k ? knn.peek().getDistance() : Double.POSITIVE_INFINITY;
+                            mask = LeafFilter.withinDistance(node.latColumn(), node.lonColumn(), noOfEntries, coordinates, bound, mask);
+                            for (int word = 0; word < LeafFilter.maskLength(noOfEntries); word++) {
+                                for (long bits = mask[word]; bits != 0; bits &= bits - 1) {
+                                    int entry = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                                    double distance = Geometry.distance(coordinates, node.lat(entry), node.lon(entry));
+                                    if (distance > 0) {
+                                        KnnDistanceRecordPair pair = new KnnDistanceRecordPair(new Record(node.lat(entry), node.lon(entry), node.recordId(entry)), distance);
+                                        knn.add(pair);
+                                        if (knn.size() > k) {
+                                            knn.poll();
+                                        }
                                     }
                                 }
                             }
@@ -67,47 +79,34 @@ public class KnnQuery {
                         pointers.remove();
                     }
                     if (pointers.peek() != null) {
-                        blockId = pointers.peek().getRectangle().getChildPointer();
+                        blockId = pointers.peek().getChildPointer();
                     }
                 } while (!pointers.isEmpty());
+                node.release();
+                fetchRecords();
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
     }
 
     /**
-     * Calculates the distance between two points.
-     *
-     * @param firstCoords the coordinates of the first point
-     * @param secondCoords the coordinates of the second point
-     * @return the distance between the two points
+     * This method replaces the records of the KNN queue with the full records, which are fetched from the data file
+     * with one batch.
      */
-    protected double calcDistBetweenPoints(ArrayList<Double> firstCoords, ArrayList<Double> secondCoords) {
-        ArrayList<Double> distances = new ArrayList<>();
-        double squareSum = 0.0;
-        for (int i = 0; i < firstCoords.size(); i++) {
-            distances.add(Math.abs(secondCoords.get(i) - firstCoords.get(i)));
-            squareSum += distances.get(i) * distances.get(i);
+    private void fetchRecords() {
+        ArrayList<KnnDistanceRecordPair> pairs = new ArrayList<>(knn);
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (KnnDistanceRecordPair pair : pairs) {
+            ids.add(pair.getRecord().getId());
         }
-        return Math.sqrt(squareSum);
-    }
-
-    /**
-     * Calculates the distance between a point and a rectangle.
-     *
-     * @param coordinates the coordinates of the point
-     * @param rectangle the rectangle
-     * @return the distance between the point and the rectangle
-     */
-    private double calcDistBetweenPointAndRectangle(ArrayList<Double> coordinates, Rectangle rectangle) {
-        ArrayList<Double> distances = new ArrayList<>();
-        double squareSum = 0.0;
-        for (int i = 0; i < dimensions; i++) {
-            distances.add(Math.max(rectangle.getCoordinates().get(i) - coordinates.get(i), Math.max(0, coordinates.get(i) - rectangle.getCoordinates().get(i + dimensions))));
-            squareSum += distances.get(i) * distances.get(i);
+        ArrayList<Record> records = FileHandler.fetchRecords(ids);
+        knn.clear();
+        for (int i = 0; i < pairs.size(); i++) {
+            knn.add(new KnnDistanceRecordPair(records.get(i), pairs.get(i).getDistance()));
         }
-        return Math.sqrt(squareSum);
     }
 
     /**
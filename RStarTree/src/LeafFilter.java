@@ -0,0 +1,90 @@
+/**
+ * This class provides the leaf filters of the queries. A filter scans the LATs and the LONs of the entries of a leaf,
+ * given as two columns, and returns a bitmask of the entries that match, one bit per entry and 64 entries per word of
+ * the mask, so a query visits only the matching entries of a leaf instead of testing every entry one by one. With
+ * columnar leaves the columns are copied out of the block as they are stored.
+ * <p>
+ * The filters are branch-free: every entry of a word is tested with the same comparisons and its bit is set from their
+ * result, so a leaf costs the same whatever its entries are and the loops can be vectorized by the JIT compiler. They
+ * are the scalar form of the filters, which needs no incubator module of the JDK to compile or run.
+ */
+public class LeafFilter {
+
+    /**
+     * This method returns the number of words of a mask for the given number of entries.
+     *
+     * @param noOfEntries the number of entries
+     * @return the number of words of the mask
+     */
+    public static int maskLength(int noOfEntries) {
+        return (noOfEntries + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * This method sets the bits of the entries that are within the given rectangle, bounds included, the same test as
+     * Geometry.contains.
+     *
+     * @param lats        the LATs of the entries
+     * @param lons        the LONs of the entries
+     * @param noOfEntries the number of entries
+     * @param rectangle   the rectangle, in the layout of the Geometry kernels
+     * @param mask        the mask to fill, of at least maskLength(noOfEntries) words, or null
+     * @return the filled mask, a new one if the given one is null or too short
+     */
+    public static long[] withinRectangle(double[] lats, double[] lons, int noOfEntries, double[] rectangle, long[] mask) {
+        int dimensions = rectangle.length / 2;
+        double minLat = rectangle[0];
+        double minLon = rectangle[1];
+        double maxLat = rectangle[dimensions];
+        double maxLon = rectangle[1 + dimensions];
+        mask = ensureLength(mask, noOfEntries);
+        for (int word = 0, start = 0; start < noOfEntries; word++, start += Long.SIZE) {
+            int end = Math.min(noOfEntries, start + Long.SIZE);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                double lat = lats[i];
+                double lon = lons[i];
+                boolean match = lat >= minLat & lat <= maxLat & lon >= minLon & lon <= maxLon;
+                bits |= (match ? 1L : 0L) << (i - start);
+            }
+            mask[word] = bits;
+        }
+        return mask;
+    }
+
+    /**
+     * This method sets the bits of the entries whose distance from the given point is at most the given bound, the
+     * distance of Geometry.distance.
+     *
+     * @param lats        the LATs of the entries
+     * @param lons        the LONs of the entries
+     * @param noOfEntries the number of entries
+     * @param point       the point
+     * @param bound       the greatest distance of a matching entry, positive infinity to match every entry
+     * @param mask        the mask to fill, of at least maskLength(noOfEntries) words, or null
+     * @return the filled mask, a new one if the given one is null or too short
+     */
+    public static long[] withinDistance(double[] lats, double[] lons, int noOfEntries, double[] point, double bound, long[] mask) {
+        double pointLat = point[0];
+        double pointLon = point[1];
+        mask = ensureLength(mask, noOfEntries);
+        for (int word = 0, start = 0; start < noOfEntries; word++, start += Long.SIZE) {
+            int end = Math.min(noOfEntries, start + Long.SIZE);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                double latDistance = pointLat - lats[i];
+                double lonDistance = pointLon - lons[i];
+                boolean match = Math.sqrt(latDistance * latDistance + lonDistance * lonDistance) <= bound;
+                bits |= (match ? 1L : 0L) << (i - start);
+            }
+            mask[word] = bits;
+        }
+        return mask;
+    }
+
+    private static long[] ensureLength(long[] mask, int noOfEntries) {
+        int length = maskLength(noOfEntries);
+        return mask != null && mask.length >= length ? mask : new long[length];
+    }
+
+}
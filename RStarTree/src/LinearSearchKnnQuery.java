@@ -1,5 +1,4 @@
 import java.util.ArrayList;
-import java.util.List;
 
 /**
  * This class represents a linear search KNN query.
@@ -13,7 +12,7 @@ public class LinearSearchKnnQuery extends KnnQuery {
      * @param k           the number of nearest neighbors to find
      * @param coordinates the coordinates of the point
      */
-    LinearSearchKnnQuery(int k, ArrayList<Double> coordinates) {
+    LinearSearchKnnQuery(int k, double[] coordinates) {
         super(k, coordinates);
     }
 
@@ -25,8 +24,7 @@ public class LinearSearchKnnQuery extends KnnQuery {
     protected void knnQuery() {
         ArrayList<Record> records = FileHandler.getDatafileRecords();
         for (Record record : records) {
-            List<Double> recordCoords = List.of(record.getLAT(), record.getLON());
-            double distance = calcDistBetweenPoints(new ArrayList<>(recordCoords), coordinates);
+            double distance = Geometry.distance(coordinates, record.getLAT(), record.getLON());
             if (distance > 0) {
                 KnnDistanceRecordPair pair = new KnnDistanceRecordPair(record, distance);
                 knn.add(pair);
@@ -22,7 +22,7 @@ public class LinearSearchRangeQuery extends RangeQuery {
     protected void rangeQuery() {
         ArrayList<Record> datafileRecords = FileHandler.getDatafileRecords();
         for (Record record : datafileRecords) {
-            if (record.getLAT() >= rangeRectangle.getCoordinates().get(0) && record.getLAT() <= rangeRectangle.getCoordinates().get(dimensions) && record.getLON() >= rangeRectangle.getCoordinates().get(1) && record.getLON() <= rangeRectangle.getCoordinates().get(1 + dimensions)) {
+            if (Geometry.contains(rangeRectangle.getCoordinates(), record.getLAT(), record.getLON())) {
                 result.add(record);
             }
         }
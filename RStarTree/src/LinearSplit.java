@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+
+/**
+ * This class is the linear split of Guttman's R-tree. In every dimension the entry with the highest lower bound and the
+ * entry with the lowest upper bound are the most separated pair, and their separation is normalized by the extent of
+ * all the entries in the dimension. The pair of the dimension with the greatest normalized separation are the seeds,
+ * and the other entries are assigned in their order, so the split costs time linear in the entries.
+ */
+public class LinearSplit extends GuttmanSplit {
+
+    @Override
+    int[] pickSeeds(ArrayList<double[]> entries) {
+        int dimensions = entries.get(0).length / 2;
+        int[] seeds = {0, 1};
+        double greatestSeparation = Double.NEGATIVE_INFINITY;
+        for (int d = 0; d < dimensions; d++) {
+            int highestLow = 0;
+            int lowestHigh = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < entries.size(); i++) {
+                double[] entry = entries.get(i);
+                if (entry[d] > entries.get(highestLow)[d]) highestLow = i;
+                if (entry[d + dimensions] < entries.get(lowestHigh)[d + dimensions]) lowestHigh = i;
+                min = Math.min(min, entry[d]);
+                max = Math.max(max, entry[d + dimensions]);
+            }
+            if (highestLow == lowestHigh) {
+                // the same entry cannot be both seeds, the other one is the entry with the next lowest upper bound
+                lowestHigh = highestLow == 0 ? 1 : 0;
+                for (int i = 0; i < entries.size(); i++) {
+                    if (i != highestLow && entries.get(i)[d + dimensions] < entries.get(lowestHigh)[d + dimensions]) lowestHigh = i;
+                }
+            }
+            double separation = entries.get(highestLow)[d] - entries.get(lowestHigh)[d + dimensions];
+            double normalized = max > min ? separation / (max - min) : 0;
+            if (normalized > greatestSeparation) {
+                greatestSeparation = normalized;
+                seeds[0] = lowestHigh;
+                seeds[1] = highestLow;
+            }
+        }
+        return seeds;
+    }
+
+    @Override
+    int pickNext(ArrayList<double[]> entries, boolean[] assigned, double[] firstMBR, double[] secondMBR) {
+        int next = 0;
+        while (assigned[next]) next++;
+        return next;
+    }
+
+    @Override
+    public int getId() {
+        return linearId;
+    }
+
+    @Override
+    public String getName() {
+        return "Linear";
+    }
+
+}
@@ -1,5 +1,9 @@
 public class Main {
     public static void main(String[] args) {
+        // an optional argument replaces the default .osm file, a path ending with .pbf is read as an .osm.pbf file
+        if (args.length > 0) FileHandler.setOsmfilePath(args[0]);
+        // a checkpoint is taken when the program exits, so the next start does not replay the write-ahead log
+        Runtime.getRuntime().addShutdownHook(new Thread(WriteAheadLog::close));
         new UserInterface();
     }
 }
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class implements the memory-mapped access mode of the index file. The file is mapped read-only with
+ * FileChannel.map in segments of up to 1GB and every block is handed out as a read-only ByteBuffer slice of its
+ * segment, so the callers decode the entries straight from the OS page cache without copying the block into a byte
+ * array. Writes keep going through the BufferPool, the mapping sees them because both share the page cache of the file.
+ * A segment is mapped again when the file has grown past the end of its current mapping.
+ */
+public class MappedIndexFile {
+    private static final int segmentSize = 1 << 30;
+    private static FileChannel channel = null;
+    private static MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * This method returns a read-only view of the block with the given id. If the block lies after the end of the
+     * file, a view of an empty block is returned, the same way the BufferPool fills missing blocks with zeros.
+     *
+     * @param blockId the id of the block
+     * @return a read-only ByteBuffer that starts at the first byte of the block
+     * @throws IOException if the index file cannot be mapped
+     */
+    public static ByteBuffer getBlock(int blockId) throws IOException {
+        int blockSize = FileHandler.getBlockSize();
+        int blocksPerSegment = segmentSize / blockSize;
+        int segment = blockId / blocksPerSegment;
+        int offset = (blockId % blocksPerSegment) * blockSize;
+        MappedByteBuffer mapped = segment < segments.length ? segments[segment] : null;
+        if (mapped == null || mapped.capacity() < offset + blockSize) {
+            mapped = map(segment, (long) blocksPerSegment * blockSize);
+            if (mapped.capacity() < offset + blockSize) return ByteBuffer.allocate(blockSize).asReadOnlyBuffer();
+        }
+        return mapped.slice(offset, blockSize);
+    }
+
+    /**
+     * This method drops every mapping and closes the channel. It is called whenever the index file is recreated or
+     * truncated, so no mapping outlives the region it was created for.
+     */
+    public static void reset() {
+        segments = new MappedByteBuffer[0];
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * This method maps the given segment of the index file. The mapping covers the segment up to the current end of
+     * the file.
+     *
+     * @param segment      the number of the segment
+     * @param segmentBytes the number of bytes a full segment covers
+     * @return the new mapping of the segment
+     * @throws IOException if the index file cannot be mapped
+     */
+    private static MappedByteBuffer map(int segment, long segmentBytes) throws IOException {
+        if (channel == null) channel = FileChannel.open(Path.of(FileHandler.getIndexfilePath()), StandardOpenOption.READ);
+        long start = segment * segmentBytes;
+        long length = Math.max(0, Math.min(segmentBytes, channel.size() - start));
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (segment >= segments.length) {
+            MappedByteBuffer[] newSegments = new MappedByteBuffer[segment + 1];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            segments = newSegments;
+        }
+        segments[segment] = mapped;
+        return mapped;
+    }
+
+}
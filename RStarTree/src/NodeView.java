@@ -0,0 +1,561 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is the codec of the nodes of the index file. A NodeView is a flyweight over a block of the index file and
+ * decodes the header and the entries of the node with primitive accessors straight from the block buffer, so a
+ * traversal does not build Rectangle or Record objects and does not copy the block. One NodeView is meant to be reused
+ * for every node a traversal visits.
+ * <p>
+ * A node starts with a header of the level, the number of entries and the parent pointer (one integer each). An entry
+ * of an internal node holds the lower corner and the upper corner of the rectangle (one double per dimension each) and
+ * the pointer to the child node. An entry of a leaf holds the LAT and the LON of the point and the id of the record.
+ * In an index file with quantized MBRs the bounds of the rectangles are stored as floats instead of doubles, rounded
+ * outward (the lower corner down and the upper corner up), so a stored rectangle always contains the exact one and
+ * pruning never loses a result, while an internal node holds almost twice as many entries. In an index file with
+ * columnar leaves a leaf holds the LATs of all its entries first, then the LONs and then the record ids, every column
+ * sized for a full leaf, so the leaf filters of the LeafFilter scan the coordinates of a leaf as two contiguous arrays.
+ * The static helpers write and read the rectangles and the leaf entries of blocks in the format of the open index file.
+ * <p>
+ * The nodes of the compressed copy of the CompressedIndex are written by encode and read by pin, which decodes them
+ * into primitive arrays of the view, so the accessors serve both formats. A compressed node starts with a flag byte,
+ * followed by the level, the number of entries and the parent pointer as varints and the lower corner of the node MBR.
+ * Every coordinate of an entry is stored as the varint of its distance from the lower corner in its dimension, and
+ * every pointer as the zig-zag varint of its difference from the pointer of the previous entry. If every coordinate of
+ * the node is a fixed-point number of 7 decimals, as the coordinates of OpenStreetMap are, the distances are counted in
+ * steps of 1e-7, otherwise in steps of the bit patterns of the doubles, so both encodings give back the exact doubles.
+ */
+public class NodeView {
+    public static final int headerSize = 3 * Integer.BYTES;
+    public static final int leafEntrySize = 2 * Double.BYTES + Integer.BYTES;
+    private static final int leafFlag = 1;
+    private static final int fixedPointFlag = 2;
+    private static final double fixedPointScale = 1e7;
+    private ByteBuffer buffer;
+    private int base;
+    private int dimensions;
+    private int entrySize;
+    private int boundSize;
+    private boolean quantized;
+    private boolean columnar;
+    private int capacity;
+    private int pinnedBlock = -1;
+    private boolean decoded = false;
+    private int decodedLevel;
+    private int decodedEntryCount;
+    private int decodedParent;
+    private double[] coordinates = new double[0];
+    private int[] pointers = new int[0];
+    private double[] latColumn = new double[0];
+    private double[] lonColumn = new double[0];
+    private double[] lowerCorner = new double[0];
+    private long[] lowerBits = new long[0];
+
+    /**
+     * This method returns the size of an entry of an internal node for the given number of dimensions.
+     *
+     * @param dimensions the number of dimensions
+     * @return the size of an entry of an internal node in bytes
+     */
+    public static int internalEntrySize(int dimensions) {
+        return childOffset(dimensions) + Integer.BYTES;
+    }
+
+    /**
+     * This method returns the size of a bound of a rectangle of an internal node, a float with quantized MBRs and a
+     * double otherwise.
+     *
+     * @return the size of a bound in bytes
+     */
+    public static int boundSize() {
+        return FileHandler.isQuantizedMBRs() ? Float.BYTES : Double.BYTES;
+    }
+
+    /**
+     * This method returns the offset of the child pointer in an entry of an internal node, which follows the bounds of
+     * the rectangle.
+     *
+     * @param dimensions the number of dimensions
+     * @return the offset of the child pointer in bytes
+     */
+    public static int childOffset(int dimensions) {
+        return 2 * dimensions * boundSize();
+    }
+
+    /**
+     * This method writes the bounds of the given rectangle to the given block at the given offset. With quantized MBRs
+     * the bounds are rounded outward to floats.
+     *
+     * @param block     the block
+     * @param offset    the offset of the rectangle in the block
+     * @param rectangle the rectangle, in the layout of the Geometry kernels
+     * @return the offset after the last bound
+     */
+    public static int putRectangle(byte[] block, int offset, double[] rectangle) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int dimensions = rectangle.length / 2;
+        boolean quantized = FileHandler.isQuantizedMBRs();
+        for (int j = 0; j < rectangle.length; j++) {
+            if (quantized) {
+                buffer.putFloat(offset, j < dimensions ? floorFloat(rectangle[j]) : ceilFloat(rectangle[j]));
+                offset += Float.BYTES;
+            } else {
+                buffer.putDouble(offset, rectangle[j]);
+                offset += Double.BYTES;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * This method reads the given bound of the rectangle at the given offset of the given block.
+     *
+     * @param block  the block
+     * @param offset the offset of the rectangle in the block
+     * @param j      the index of the bound, in the layout of the Geometry kernels
+     * @return the bound
+     */
+    public static double getBound(byte[] block, int offset, int j) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        if (FileHandler.isQuantizedMBRs()) return buffer.getFloat(offset + j * Float.BYTES);
+        return buffer.getDouble(offset + j * Double.BYTES);
+    }
+
+    /**
+     * This method reads the rectangle at the given offset of the given block into the given array.
+     *
+     * @param block     the block
+     * @param offset    the offset of the rectangle in the block
+     * @param rectangle the array of 2 * dimensions doubles to fill
+     * @return the filled array
+     */
+    public static double[] getRectangle(byte[] block, int offset, double[] rectangle) {
+        for (int j = 0; j < rectangle.length; j++) {
+            rectangle[j] = getBound(block, offset, j);
+        }
+        return rectangle;
+    }
+
+    /**
+     * This method returns the offset of the given column of the given entry of a leaf, in the format of the open index
+     * file. The columns are the LAT, the LON and the record id of the entry.
+     *
+     * @param i      the index of the entry
+     * @param column the column, 0 for the LAT, 1 for the LON and 2 for the record id
+     * @return the offset of the column of the entry in the block
+     */
+    public static int leafOffset(int i, int column) {
+        if (FileHandler.isColumnarLeaves()) {
+            return headerSize + column * FileHandler.calculateMaxBlockNodes() * Double.BYTES + i * (column < 2 ? Double.BYTES : Integer.BYTES);
+        }
+        return headerSize + i * leafEntrySize + column * Double.BYTES;
+    }
+
+    /**
+     * This method writes the given entry of a leaf to the given block.
+     *
+     * @param block    the block
+     * @param i        the index of the entry
+     * @param lat      the LAT of the point
+     * @param lon      the LON of the point
+     * @param recordId the id of the record
+     */
+    public static void putLeafEntry(byte[] block, int i, double lat, double lon, int recordId) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        buffer.putDouble(leafOffset(i, 0), lat);
+        buffer.putDouble(leafOffset(i, 1), lon);
+        buffer.putInt(leafOffset(i, 2), recordId);
+    }
+
+    /**
+     * This method writes the given records to the given block as the entries of a leaf, starting with the first entry.
+     *
+     * @param block   the block
+     * @param records the records of the leaf
+     */
+    public static void putLeafEntries(byte[] block, List<Record> records) {
+        for (int i = 0; i < records.size(); i++) {
+            putLeafEntry(block, i, records.get(i).getLAT(), records.get(i).getLON(), records.get(i).getId());
+        }
+    }
+
+    public static double getLat(byte[] block, int i) {
+        return ByteBuffer.wrap(block).getDouble(leafOffset(i, 0));
+    }
+
+    public static double getLon(byte[] block, int i) {
+        return ByteBuffer.wrap(block).getDouble(leafOffset(i, 1));
+    }
+
+    public static int getRecordId(byte[] block, int i) {
+        return ByteBuffer.wrap(block).getInt(leafOffset(i, 2));
+    }
+
+    /**
+     * This method returns the given rectangle the way it is stored in an internal node, rounded outward to floats with
+     * quantized MBRs and unchanged otherwise.
+     *
+     * @param rectangle the rectangle, in the layout of the Geometry kernels
+     * @return a new array with the stored bounds
+     */
+    public static double[] storedRectangle(double[] rectangle) {
+        double[] stored = rectangle.clone();
+        if (FileHandler.isQuantizedMBRs()) {
+            int dimensions = rectangle.length / 2;
+            for (int j = 0; j < stored.length; j++) {
+                stored[j] = j < dimensions ? floorFloat(rectangle[j]) : ceilFloat(rectangle[j]);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * This method points the view to the block with the given id. With compressed reads on and a current compressed
+     * copy, the node is decoded from the copy. In the memory-mapped mode the view reads a slice of the mapped index
+     * file, unless the block has a dirty page of a transaction that is not written to the file yet. Otherwise the block
+     * is pinned in the buffer pool until the view is released or pointed to another block. Every pin must be followed
+     * by a release once the traversal is done with the node.
+     *
+     * @param blockId the id of the block
+     * @return this view
+     * @throws IOException if the block cannot be read from the index file
+     */
+    public NodeView pin(int blockId) throws IOException {
+        release();
+        if (FileHandler.isCompressed() && CompressedIndex.isCurrent()) {
+            ByteBuffer node = CompressedIndex.getNode(blockId);
+            if (node != null) return decode(node);
+        }
+        if (FileHandler.isMemoryMapped() && !BufferPool.isDirty(blockId)) {
+            return wrap(MappedIndexFile.getBlock(blockId), 0);
+        }
+        wrap(BufferPool.pinBuffer(blockId), 0);
+        pinnedBlock = blockId;
+        return this;
+    }
+
+    /**
+     * This method points the view to a node that starts at the given offset of the given buffer.
+     *
+     * @param buffer the buffer that holds the node
+     * @param base   the offset of the node in the buffer
+     * @return this view
+     */
+    public NodeView wrap(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+        this.dimensions = FileHandler.getDimensions();
+        this.entrySize = internalEntrySize(dimensions);
+        this.boundSize = boundSize();
+        this.quantized = FileHandler.isQuantizedMBRs();
+        this.columnar = FileHandler.isColumnarLeaves();
+        this.capacity = FileHandler.calculateMaxBlockNodes();
+        this.decoded = false;
+        return this;
+    }
+
+    /**
+     * This method writes the node of the given view to the given buffer in the compressed format. The buffer must have
+     * room for the node, which needs at most the size of the uncompressed node plus a few bytes per entry. The lower
+     * corner of the node is kept in arrays of the view, which are reused from node to node.
+     *
+     * @param node the view of the node to compress
+     * @param out  the buffer that receives the compressed node
+     */
+    public static void encode(NodeView node, ByteBuffer out) {
+        boolean leaf = node.level() == FileHandler.getLeafLevel();
+        int entryCount = node.entryCount();
+        int dimensions = leaf ? 2 : node.dimensions;
+        int columns = leaf ? 2 : 2 * node.dimensions;
+        if (node.lowerCorner.length < dimensions) node.lowerCorner = new double[dimensions];
+        if (node.lowerBits.length < dimensions) node.lowerBits = new long[dimensions];
+        double[] lowerCorner = node.lowerCorner;
+        long[] lowerBits = node.lowerBits;
+        Arrays.fill(lowerCorner, 0, dimensions, entryCount > 0 ? Double.POSITIVE_INFINITY : 0);
+        boolean fixedPoint = true;
+        for (int i = 0; i < entryCount; i++) {
+            for (int j = 0; j < columns; j++) {
+                double coordinate = node.coordinate(i, j, leaf);
+                lowerCorner[j % dimensions] = Math.min(lowerCorner[j % dimensions], coordinate);
+                fixedPoint &= isFixedPoint(coordinate);
+            }
+        }
+        out.put((byte) ((leaf ? leafFlag : 0) | (fixedPoint ? fixedPointFlag : 0)));
+        putVarLong(out, node.level());
+        putVarLong(out, entryCount);
+        putVarLong(out, zigZag(node.parent()));
+        for (int d = 0; d < dimensions; d++) {
+            lowerBits[d] = fixedPoint ? Math.round(lowerCorner[d] * fixedPointScale) : Double.doubleToRawLongBits(lowerCorner[d]);
+            putVarLong(out, zigZag(lowerBits[d]));
+        }
+        int previous = 0;
+        for (int i = 0; i < entryCount; i++) {
+            for (int j = 0; j < columns; j++) {
+                double coordinate = node.coordinate(i, j, leaf);
+                long bits = fixedPoint ? Math.round(coordinate * fixedPointScale) : Double.doubleToRawLongBits(coordinate);
+                putVarLong(out, fixedPoint ? bits - lowerBits[j % dimensions] : zigZag(bits - lowerBits[j % dimensions]));
+            }
+            int pointer = leaf ? node.recordId(i) : node.child(i);
+            putVarLong(out, zigZag(pointer - previous));
+            previous = pointer;
+        }
+    }
+
+    /**
+     * This method decodes the compressed node at the position of the given buffer into the arrays of the view. The
+     * arrays only grow, so decoding node after node into the same view allocates nothing.
+     *
+     * @param node the buffer positioned at the compressed node
+     * @return this view
+     */
+    private NodeView decode(ByteBuffer node) {
+        dimensions = FileHandler.getDimensions();
+        int flags = node.get();
+        boolean leaf = (flags & leafFlag) != 0;
+        boolean fixedPoint = (flags & fixedPointFlag) != 0;
+        decodedLevel = (int) getVarLong(node);
+        decodedEntryCount = (int) getVarLong(node);
+        decodedParent = (int) unZigZag(getVarLong(node));
+        int lowerDimensions = leaf ? 2 : dimensions;
+        int columns = leaf ? 2 : 2 * dimensions;
+        if (lowerBits.length < lowerDimensions) lowerBits = new long[lowerDimensions];
+        for (int d = 0; d < lowerDimensions; d++) {
+            lowerBits[d] = unZigZag(getVarLong(node));
+        }
+        if (coordinates.length < decodedEntryCount * columns) coordinates = new double[decodedEntryCount * columns];
+        if (pointers.length < decodedEntryCount) pointers = new int[decodedEntryCount];
+        int previous = 0;
+        for (int i = 0, k = 0; i < decodedEntryCount; i++) {
+            for (int j = 0; j < columns; j++, k++) {
+                if (fixedPoint) {
+                    coordinates[k] = (lowerBits[j % lowerDimensions] + getVarLong(node)) / fixedPointScale;
+                } else {
+                    coordinates[k] = Double.longBitsToDouble(lowerBits[j % lowerDimensions] + unZigZag(getVarLong(node)));
+                }
+            }
+            previous += (int) unZigZag(getVarLong(node));
+            pointers[i] = previous;
+        }
+        decoded = true;
+        return this;
+    }
+
+    /**
+     * This method unpins the block of the view from the buffer pool, if it is pinned.
+     */
+    public void release() {
+        if (pinnedBlock != -1) {
+            BufferPool.unpin(pinnedBlock);
+            pinnedBlock = -1;
+        }
+    }
+
+    public int level() {
+        if (decoded) return decodedLevel;
+        return buffer.getInt(base);
+    }
+
+    public int entryCount() {
+        if (decoded) return decodedEntryCount;
+        return buffer.getInt(base + Integer.BYTES);
+    }
+
+    public int parent() {
+        if (decoded) return decodedParent;
+        return buffer.getInt(base + 2 * Integer.BYTES);
+    }
+
+    /**
+     * This method returns the lower bound of the rectangle of the given entry of an internal node in the given
+     * dimension.
+     *
+     * @param i         the index of the entry
+     * @param dimension the dimension
+     * @return the lower bound of the rectangle in the dimension
+     */
+    public double min(int i, int dimension) {
+        if (decoded) return coordinates[2 * i * dimensions + dimension];
+        if (quantized) return buffer.getFloat(base + headerSize + i * entrySize + dimension * Float.BYTES);
+        return buffer.getDouble(base + headerSize + i * entrySize + dimension * Double.BYTES);
+    }
+
+    /**
+     * This method returns the upper bound of the rectangle of the given entry of an internal node in the given
+     * dimension.
+     *
+     * @param i         the index of the entry
+     * @param dimension the dimension
+     * @return the upper bound of the rectangle in the dimension
+     */
+    public double max(int i, int dimension) {
+        if (decoded) return coordinates[2 * i * dimensions + dimensions + dimension];
+        if (quantized) return buffer.getFloat(base + headerSize + i * entrySize + (dimensions + dimension) * Float.BYTES);
+        return buffer.getDouble(base + headerSize + i * entrySize + (dimensions + dimension) * Double.BYTES);
+    }
+
+    /**
+     * This method copies the rectangle of the given entry of an internal node into the given array, in the layout of
+     * the Geometry kernels. The array can be reused for every entry, so the kernels can be applied to the entries
+     * without allocating.
+     *
+     * @param i         the index of the entry
+     * @param rectangle the array of 2 * dimensions doubles to fill
+     * @return the filled array
+     */
+    public double[] rectangle(int i, double[] rectangle) {
+        for (int j = 0; j < dimensions; j++) {
+            rectangle[j] = min(i, j);
+            rectangle[j + dimensions] = max(i, j);
+        }
+        return rectangle;
+    }
+
+    public double minLat(int i) {
+        return min(i, 0);
+    }
+
+    public double minLon(int i) {
+        return min(i, 1);
+    }
+
+    public double maxLat(int i) {
+        return max(i, 0);
+    }
+
+    public double maxLon(int i) {
+        return max(i, 1);
+    }
+
+    public int child(int i) {
+        if (decoded) return pointers[i];
+        return buffer.getInt(base + headerSize + i * entrySize + 2 * dimensions * boundSize);
+    }
+
+    public double lat(int i) {
+        if (decoded) return coordinates[2 * i];
+        if (columnar) return buffer.getDouble(base + headerSize + i * Double.BYTES);
+        return buffer.getDouble(base + headerSize + i * leafEntrySize);
+    }
+
+    public double lon(int i) {
+        if (decoded) return coordinates[2 * i + 1];
+        if (columnar) return buffer.getDouble(base + headerSize + (capacity + i) * Double.BYTES);
+        return buffer.getDouble(base + headerSize + i * leafEntrySize + Double.BYTES);
+    }
+
+    public int recordId(int i) {
+        if (decoded) return pointers[i];
+        if (columnar) return buffer.getInt(base + headerSize + 2 * capacity * Double.BYTES + i * Integer.BYTES);
+        return buffer.getInt(base + headerSize + i * leafEntrySize + 2 * Double.BYTES);
+    }
+
+    /**
+     * This method copies the LATs and the LONs of the entries of the leaf into the columns of the view, which are
+     * returned by latColumn and lonColumn, for the leaf filters of the LeafFilter. A columnar leaf is copied with one
+     * bulk copy per column, the other formats entry by entry. The columns are reused for every leaf the view visits.
+     *
+     * @return the number of entries of the leaf
+     */
+    public int loadLeafColumns() {
+        int entryCount = entryCount();
+        if (latColumn.length < entryCount) {
+            latColumn = new double[entryCount];
+            lonColumn = new double[entryCount];
+        }
+        if (!decoded && columnar) {
+            buffer.slice(base + headerSize, entryCount * Double.BYTES).asDoubleBuffer().get(latColumn, 0, entryCount);
+            buffer.slice(base + headerSize + capacity * Double.BYTES, entryCount * Double.BYTES).asDoubleBuffer().get(lonColumn, 0, entryCount);
+        } else {
+            for (int i = 0; i < entryCount; i++) {
+                latColumn[i] = lat(i);
+                lonColumn[i] = lon(i);
+            }
+        }
+        return entryCount;
+    }
+
+    public double[] latColumn() {
+        return latColumn;
+    }
+
+    public double[] lonColumn() {
+        return lonColumn;
+    }
+
+    /**
+     * This method returns the given column of an entry, the LAT and the LON of a leaf entry or the bounds of the
+     * rectangle of an internal entry in the order of the Geometry kernels.
+     *
+     * @param i      the index of the entry
+     * @param column the column of the entry
+     * @param leaf   true if the node is a leaf
+     * @return the coordinate of the column
+     */
+    private double coordinate(int i, int column, boolean leaf) {
+        if (leaf) return column == 0 ? lat(i) : lon(i);
+        return column < dimensions ? min(i, column) : max(i, column - dimensions);
+    }
+
+    /**
+     * This method checks if the given coordinate is a fixed-point number of 7 decimals, which is given back exactly by
+     * the division of its steps of 1e-7.
+     *
+     * @param coordinate the coordinate
+     * @return true if the coordinate can be stored in steps of 1e-7
+     */
+    private static boolean isFixedPoint(double coordinate) {
+        if (!(Math.abs(coordinate) < 1e11)) return false;
+        double restored = Math.round(coordinate * fixedPointScale) / fixedPointScale;
+        return Double.doubleToRawLongBits(restored) == Double.doubleToRawLongBits(coordinate);
+    }
+
+    /**
+     * This method rounds the given bound down to the greatest float that is not greater than it.
+     *
+     * @param bound the bound
+     * @return the rounded bound
+     */
+    private static float floorFloat(double bound) {
+        float rounded = (float) bound;
+        return rounded > bound ? Math.nextDown(rounded) : rounded;
+    }
+
+    /**
+     * This method rounds the given bound up to the least float that is not less than it.
+     *
+     * @param bound the bound
+     * @return the rounded bound
+     */
+    private static float ceilFloat(double bound) {
+        float rounded = (float) bound;
+        return rounded < bound ? Math.nextUp(rounded) : rounded;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * This class reads the nodes of an .osm.pbf file. The file is a sequence of blobs and every OSMData blob holds a
+ * primitive block that can be decoded independently of the others. The blobs are read sequentially from the file and
+ * decoded on a pool of worker threads, while the decoded records are handed to the consumer in the order of the file,
+ * so the result is the same as the one of the XML import. Only the parts of the protocol buffer format that the nodes
+ * need are decoded, the ways, the relations and the metadata are skipped.
+ */
+public class OsmPbfReader {
+    private static final int maxBlobHeaderSize = 64 * 1024;
+    private static final int maxBlobSize = 32 * 1024 * 1024;
+
+    /**
+     * This method reads every node of the given .osm.pbf file and passes it to the consumer as a Record with its
+     * coordinates, node id and "name:en" tag. At most two blocks per worker thread are decoded ahead of the consumer,
+     * so the memory use does not depend on the size of the file.
+     *
+     * @param path     the path of the .osm.pbf file
+     * @param consumer the consumer of the records, called from the calling thread in the order of the file
+     * @throws Exception if the file cannot be read or is not a valid .osm.pbf file
+     */
+    static void read(String path, Consumer<Record> consumer) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ArrayList<Record>>> decoding = new ArrayDeque<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            int headerSize;
+            while ((headerSize = readHeaderSize(input)) >= 0) {
+                if (headerSize > maxBlobHeaderSize) throw new IOException("Blob header of " + headerSize + " bytes is too large");
+                byte[] header = new byte[headerSize];
+                input.readFully(header);
+                String type = null;
+                int dataSize = 0;
+                ProtoReader headerReader = new ProtoReader(header, 0, header.length);
+                while (headerReader.hasNext()) {
+                    switch (headerReader.nextField()) {
+                        case 1 -> type = headerReader.string();
+                        case 3 -> dataSize = (int) headerReader.varint();
+                        default -> headerReader.skip();
+                    }
+                }
+                if (dataSize < 0 || dataSize > maxBlobSize) throw new IOException("Blob of " + dataSize + " bytes is too large");
+                byte[] blob = new byte[dataSize];
+                input.readFully(blob);
+                if ("OSMHeader".equals(type)) {
+                    checkHeaderBlock(inflate(blob));
+                } else if ("OSMData".equals(type)) {
+                    if (decoding.size() >= 2 * threads) {
+                        decoding.poll().get().forEach(consumer);
+                    }
+                    decoding.add(pool.submit(() -> decodePrimitiveBlock(inflate(blob))));
+                }
+            }
+            while (!decoding.isEmpty()) {
+                decoding.poll().get().forEach(consumer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * This method reads the size of the next blob header. It returns -1 at the end of the file.
+     *
+     * @param input the stream of the file
+     * @return the size of the blob header or -1 at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static int readHeaderSize(DataInputStream input) throws IOException {
+        int first = input.read();
+        if (first < 0) return -1;
+        return (first << 24) | (input.readUnsignedByte() << 16) | (input.readUnsignedByte() << 8) | input.readUnsignedByte();
+    }
+
+    /**
+     * This method returns the uncompressed data of a blob. Raw and zlib compressed blobs are supported.
+     *
+     * @param blob the encoded blob
+     * @return the uncompressed data of the blob
+     * @throws IOException if the blob uses another compression or is corrupted
+     */
+    private static byte[] inflate(byte[] blob) throws IOException {
+        ProtoReader reader = new ProtoReader(blob, 0, blob.length);
+        int rawSize = -1;
+        byte[] zlibData = null;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1 -> {
+                    return reader.bytes();
+                }
+                case 2 -> rawSize = (int) reader.varint();
+                case 3 -> zlibData = reader.bytes();
+                case 4, 5, 6, 7 -> throw new IOException("Unsupported blob compression");
+                default -> reader.skip();
+            }
+        }
+        if (zlibData == null || rawSize < 0 || rawSize > maxBlobSize) throw new IOException("Invalid blob");
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlibData);
+            byte[] data = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, rawSize - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += inflated;
+            }
+            if (length != rawSize) throw new IOException("Truncated zlib blob");
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted zlib blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * This method checks that the header block of the file requires only features this reader supports.
+     *
+     * @param data the uncompressed header block
+     * @throws IOException if the file requires an unsupported feature
+     */
+    private static void checkHeaderBlock(byte[] data) throws IOException {
+        ProtoReader reader = new ProtoReader(data, 0, data.length);
+        while (reader.hasNext()) {
+            if (reader.nextField() == 4) {
+                String feature = reader.string();
+                if (!feature.equals("OsmSchema-V0.6") && !feature.equals("DenseNodes")) {
+                    throw new IOException("Unsupported required feature " + feature);
+                }
+            } else {
+                reader.skip();
+            }
+        }
+    }
+
+    /**
+     * This method decodes the nodes of a primitive block. The coordinates are stored as offsets in nanodegrees that are
+     * multiplied by the granularity of the block, so they are converted back to degrees with a single division, which
+     * gives the same double as parsing the decimal coordinate of the XML file.
+     *
+     * @param data the uncompressed primitive block
+     * @return the records of the nodes of the block in the order they are stored
+     */
+    private static ArrayList<Record> decodePrimitiveBlock(byte[] data) {
+        ProtoReader reader = new ProtoReader(data, 0, data.length);
+        ArrayList<String> strings = new ArrayList<>();
+        ArrayList<ProtoReader> groups = new ArrayList<>();
+        long granularity = 100, latOffset = 0, lonOffset = 0;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1 -> {
+                    ProtoReader stringTable = reader.message();
+                    while (stringTable.hasNext()) {
+                        if (stringTable.nextField() == 1) strings.add(stringTable.string());
+                        else stringTable.skip();
+                    }
+                }
+                case 2 -> groups.add(reader.message());
+                case 17 -> granularity = reader.varint();
+                case 19 -> latOffset = reader.varint();
+                case 20 -> lonOffset = reader.varint();
+                default -> reader.skip();
+            }
+        }
+        ArrayList<Record> records = new ArrayList<>();
+        int nameKey = strings.indexOf("name:en");
+        for (ProtoReader group : groups) {
+            while (group.hasNext()) {
+                switch (group.nextField()) {
+                    case 1 -> decodeNode(group.message(), strings, nameKey, granularity, latOffset, lonOffset, records);
+                    case 2 -> decodeDenseNodes(group.message(), strings, nameKey, granularity, latOffset, lonOffset, records);
+                    default -> group.skip();
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * This method decodes a single node of a primitive group and adds its record to the list.
+     */
+    private static void decodeNode(ProtoReader node, ArrayList<String> strings, int nameKey, long granularity, long latOffset, long lonOffset, ArrayList<Record> records) {
+        long id = 0, lat = 0, lon = 0;
+        long[] keys = new long[0], values = new long[0];
+        while (node.hasNext()) {
+            switch (node.nextField()) {
+                case 1 -> id = node.sint64();
+                case 2 -> keys = node.packed(false);
+                case 3 -> values = node.packed(false);
+                case 8 -> lat = node.sint64();
+                case 9 -> lon = node.sint64();
+                default -> node.skip();
+            }
+        }
+        String name = "";
+        for (int i = 0; i < keys.length && i < values.length; i++) {
+            if (keys[i] == nameKey) {
+                name = strings.get((int) values[i]);
+                break;
+            }
+        }
+        records.add(createRecord(id, lat, lon, name, granularity, latOffset, lonOffset));
+    }
+
+    /**
+     * This method decodes the dense nodes of a primitive group, whose ids and coordinates are delta coded and whose
+     * tags are stored as a single list of key and value indexes with a 0 after the tags of every node, and adds their
+     * records to the list.
+     */
+    private static void decodeDenseNodes(ProtoReader dense, ArrayList<String> strings, int nameKey, long granularity, long latOffset, long lonOffset, ArrayList<Record> records) {
+        long[] ids = new long[0], lats = new long[0], lons = new long[0], keysValues = new long[0];
+        while (dense.hasNext()) {
+            switch (dense.nextField()) {
+                case 1 -> ids = dense.packed(true);
+                case 8 -> lats = dense.packed(true);
+                case 9 -> lons = dense.packed(true);
+                case 10 -> keysValues = dense.packed(false);
+                default -> dense.skip();
+            }
+        }
+        long id = 0, lat = 0, lon = 0;
+        int tag = 0;
+        for (int i = 0; i < ids.length; i++) {
+            id += ids[i];
+            lat += lats[i];
+            lon += lons[i];
+            String name = "";
+            while (tag < keysValues.length && keysValues[tag] != 0) {
+                if (name.equals("") && keysValues[tag] == nameKey && tag + 1 < keysValues.length) {
+                    name = strings.get((int) keysValues[tag + 1]);
+                }
+                tag += 2;
+            }
+            tag++;
+            records.add(createRecord(id, lat, lon, name, granularity, latOffset, lonOffset));
+        }
+    }
+
+    private static Record createRecord(long id, long lat, long lon, String name, long granularity, long latOffset, long lonOffset) {
+        double[] coords = {(latOffset + granularity * lat) / 1e9, (lonOffset + granularity * lon) / 1e9};
+        return new Record(coords, id, name);
+    }
+
+    /**
+     * This class reads the fields of a protocol buffer message from a range of a byte array.
+     */
+    private static class ProtoReader {
+        private final byte[] data;
+        private int position;
+        private final int limit;
+        private int wireType;
+
+        ProtoReader(byte[] data, int position, int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasNext() {
+            return position < limit;
+        }
+
+        /**
+         * This method reads the key of the next field and returns its number. The value has to be read or skipped
+         * before the next call.
+         */
+        int nextField() {
+            long key = varint();
+            wireType = (int) (key & 7);
+            return (int) (key >>> 3);
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) throw new IllegalStateException("Truncated varint");
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        long sint64() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int length() {
+            long length = varint();
+            if (length < 0 || length > limit - position) throw new IllegalStateException("Truncated field");
+            return (int) length;
+        }
+
+        ProtoReader message() {
+            int length = length();
+            ProtoReader reader = new ProtoReader(data, position, position + length);
+            position += length;
+            return reader;
+        }
+
+        byte[] bytes() {
+            int length = length();
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        String string() {
+            int length = length();
+            String string = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+
+        /**
+         * This method reads a packed repeated varint field, or a single value if the field is not packed.
+         *
+         * @param zigzag true if the values are zig-zag encoded signed integers
+         * @return the values of the field
+         */
+        long[] packed(boolean zigzag) {
+            if (wireType == 0) return new long[]{zigzag ? sint64() : varint()};
+            ProtoReader values = message();
+            int count = 0;
+            for (int i = values.position; i < values.limit; i++) {
+                if (data[i] >= 0) count++;
+            }
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = zigzag ? values.sint64() : values.varint();
+            }
+            return result;
+        }
+
+        void skip() {
+            switch (wireType) {
+                case 0 -> varint();
+                case 1 -> position += 8;
+                case 2 -> position += length();
+                case 5 -> position += 4;
+                default -> throw new IllegalStateException("Unsupported wire type " + wireType);
+            }
+        }
+    }
+
+}
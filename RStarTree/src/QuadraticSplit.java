@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+
+/**
+ * This class is the quadratic split of Guttman's R-tree. The seeds are the pair of entries that would waste the most
+ * area in one group, the area of their MBR minus their own areas, which compares every pair. The entry assigned next is
+ * the one with the greatest difference between the enlargements of the two groups, the one that prefers a group the
+ * most, so the split costs time quadratic in the entries.
+ */
+public class QuadraticSplit extends GuttmanSplit {
+
+    @Override
+    int[] pickSeeds(ArrayList<double[]> entries) {
+        int[] seeds = {0, 1};
+        double mostWaste = Double.NEGATIVE_INFINITY;
+        double[] union = new double[entries.get(0).length];
+        for (int i = 0; i < entries.size(); i++) {
+            double areaOfI = Geometry.area(entries.get(i));
+            for (int j = i + 1; j < entries.size(); j++) {
+                System.arraycopy(entries.get(i), 0, union, 0, union.length);
+                Geometry.include(union, entries.get(j));
+                double waste = Geometry.area(union) - areaOfI - Geometry.area(entries.get(j));
+                if (waste > mostWaste) {
+                    mostWaste = waste;
+                    seeds[0] = i;
+                    seeds[1] = j;
+                }
+            }
+        }
+        return seeds;
+    }
+
+    @Override
+    int pickNext(ArrayList<double[]> entries, boolean[] assigned, double[] firstMBR, double[] secondMBR) {
+        int next = -1;
+        double greatestDifference = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < entries.size(); i++) {
+            if (assigned[i]) continue;
+            double difference = Math.abs(enlargement(firstMBR, entries.get(i)) - enlargement(secondMBR, entries.get(i)));
+            if (difference > greatestDifference) {
+                greatestDifference = difference;
+                next = i;
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public int getId() {
+        return quadraticId;
+    }
+
+    @Override
+    public String getName() {
+        return "Quadratic";
+    }
+
+}
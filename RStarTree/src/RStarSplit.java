@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+
+/**
+ * This class is the split of the R* tree. The entries are sorted by the lower and by the upper bound of every
+ * dimension, the points of a leaf only by their coordinates, and the sort order whose distributions have the least sum
+ * of margins is chosen. Its distribution with the least overlap, ties broken by the least area, is the split. Every sort
+ * order continues from the one before it, so entries with equal keys keep the order of the previous sort. The
+ * distributions are evaluated with a SplitDistributions sweep. Overflowing nodes are reinserted once per level before
+ * they are split.
+ */
+public class RStarSplit implements SplitStrategy {
+
+    /**
+     * This method sorts the entries by the sort orders one after the other and returns the chosen distribution of the
+     * sort order with the least margin, the first one of equal margins winning.
+     *
+     * @param entries    the rectangles of the M+1 entries
+     * @param leaf       true if the entries are the points of a leaf
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id of the parent of the split node, -1 for the root
+     * @param order      the array that receives the indexes of the entries
+     * @return the number of entries of the first group
+     */
+    @Override
+    public int distribute(ArrayList<double[]> entries, boolean leaf, int maxEntries, int blockId, int[] order) {
+        int dimensions = entries.get(0).length / 2;
+        int size = entries.size();
+        int[] current = new int[size];
+        for (int i = 0; i < size; i++) {
+            current[i] = i;
+        }
+        double marginValue = Double.MAX_VALUE;
+        int splitIndex = 0;
+        double[] keys = new double[size];
+        ArrayList<double[]> sorted = new ArrayList<>(size);
+        // dimension by dimension, the lower bound before the upper bound, the same order as the Split before the
+        // strategies, so the sort orders of equal margins and the entries of equal keys are chosen as they were
+        for (int i = 0; i < dimensions; i++) {
+            for (int bound = 0; bound < (leaf ? 1 : 2); bound++) {
+                for (int k = 0; k < size; k++) {
+                    keys[k] = entries.get(current[k])[bound * dimensions + i];
+                }
+                int[] permutation = IndexSort.ascending(keys);
+                int[] next = new int[size];
+                sorted.clear();
+                for (int k = 0; k < size; k++) {
+                    next[k] = current[permutation[k]];
+                    sorted.add(entries.get(next[k]));
+                }
+                current = next;
+                SplitDistributions distributions = SplitDistributions.ofRectangles(sorted, maxEntries, blockId);
+                if (distributions.getMarginValue() < marginValue) {
+                    marginValue = distributions.getMarginValue();
+                    splitIndex = distributions.getSplitIndex();
+                    System.arraycopy(current, 0, order, 0, size);
+                }
+            }
+        }
+        return splitIndex;
+    }
+
+    @Override
+    public boolean reinsertsOnOverflow() {
+        return true;
+    }
+
+    @Override
+    public int getId() {
+        return rStarId;
+    }
+
+    @Override
+    public String getName() {
+        return "R*";
+    }
+
+}
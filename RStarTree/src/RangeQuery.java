@@ -23,42 +23,48 @@ public class RangeQuery {
     }
 
     /**
-     * Executes the range query. It checks each record in the data file to see if its coordinates are within the range
-     * rectangle. If a record's coordinates are within the range rectangle, it is added to the result.
+     * Executes the range query. It descends from the root and reads the entries of every visited node through a
+     * NodeView. The children whose rectangles intersect the range rectangle are visited next and the records of the
+     * leaves whose coordinates are within the range rectangle are collected by their ids and fetched from the data
+     * file with one batch at the end. The rectangles of the entries are copied into one reused array for the Geometry
+     * kernels, the entries of a leaf are matched with one pass of the rectangle filter of the LeafFilter.
      */
     protected void rangeQuery() {
+        NodeView node = new NodeView();
         try {
             if (FileHandler.getNoOfIndexfileBlocks() > 1) {
+                double[] range = rangeRectangle.getCoordinates();
+                double[] rectangle = new double[2 * dimensions];
+                long[] mask = null;
+                ArrayList<Integer> ids = new ArrayList<>();
                 pointers.add(1);
-                int blockId, level;
                 while (!pointers.isEmpty()) {
-                    blockId = pointers.peek();
-                    level = FileHandler.getMetaDataOfRectangle(blockId).get(0);
-                    if (level != FileHandler.getLeafLevel()) {
-                        ArrayList<Rectangle> rectangles = FileHandler.getRectangleEntries(blockId);
-                        for (Rectangle rectangle : rectangles) {
-                            for (int i = 0; i < dimensions; i++) {
-                                if (rangeRectangle.getCoordinates().get(i) > rectangle.getCoordinates().get(i + dimensions) || rangeRectangle.getCoordinates().get(i + dimensions) < rectangle.getCoordinates().get(i)) {
-                                    break;
-                                }
-                                if (i == dimensions - 1) {
-                                    pointers.add(rectangle.getChildPointer());
-                                }
+                    node.pin(pointers.peek());
+                    int noOfEntries = node.entryCount();
+                    if (node.level() != FileHandler.getLeafLevel()) {
+                        for (int entry = 0; entry < noOfEntries; entry++) {
+                            if (Geometry.intersects(range, node.rectangle(entry, rectangle))) {
+                                pointers.add(node.child(entry));
                             }
                         }
                     } else {
-                        ArrayList<Record> records = FileHandler.getRecords(blockId);
-                        for (Record record : records) {
-                            if (record.getLAT() >= rangeRectangle.getCoordinates().get(0) && record.getLAT() <= rangeRectangle.getCoordinates().get(dimensions) && record.getLON() >= rangeRectangle.getCoordinates().get(1) && record.getLON() <= rangeRectangle.getCoordinates().get(1 + dimensions)) {
-                                result.add(record);
+                        node.loadLeafColumns();
+                        mask = LeafFilter.withinRectangle(node.latColumn(), node.lonColumn(), noOfEntries, range, mask);
+                        for (int word = 0; word < LeafFilter.maskLength(noOfEntries); word++) {
+                            for (long bits = mask[word]; bits != 0; bits &= bits - 1) {
+                                ids.add(node.recordId(word * Long.SIZE + Long.numberOfTrailingZeros(bits)));
                             }
                         }
                     }
                     pointers.remove();
                 }
+                node.release();
+                result.addAll(FileHandler.fetchRecords(ids));
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
     }
 
@@ -68,7 +74,7 @@ public class RangeQuery {
     void print() {
         System.out.println("\nThere are " + result.size() + " entries found in the given range:\n");
         for (Record record : result) {
-            System.out.print("LAT: " + record.getLAT() + ", LON: " + record.getLON() + ", Datafile block: " + FileHandler.getRecord(record.getId()).getRecordLocation().getBlock() + ", Block slot: " + FileHandler.getRecord(record.getId()).getRecordLocation().getSlot());
+            System.out.print("LAT: " + record.getLAT() + ", LON: " + record.getLON() + ", Datafile block: " + record.getRecordLocation().getBlock() + ", Block slot: " + record.getRecordLocation().getSlot());
             if (record.getName() != null && !record.getName().equals("")) {
                 System.out.print(", Name: " + record.getName());
             }
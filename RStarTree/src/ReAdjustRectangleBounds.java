@@ -1,8 +1,5 @@
-import java.io.File;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
-import java.util.Queue;
+import java.util.Arrays;
 
 /**
  * This class is used to adjust the boundaries of rectangles in a block.
@@ -20,13 +17,8 @@ public class ReAdjustRectangleBounds {
     public static void reAdjustRectangleBounds(int blockId, int parentBlockId) {
         if (blockId >= 1) {
             try {
-                String IndexfilePath = FileHandler.getIndexfilePath();
-                int blockSize = FileHandler.getBlockSize();
                 int leafLevel = FileHandler.getLeafLevel();
-                File file = new File(IndexfilePath);
-                byte[] bytes = Files.readAllBytes(file.toPath());
-                byte[] dataBlock = new byte[blockSize];
-                System.arraycopy(bytes, blockId * blockSize, dataBlock, 0, blockSize);
+                byte[] dataBlock = BufferPool.readBlock(blockId);
                 byte[] blockLevel = new byte[Integer.BYTES];
                 byte[] noOfEntries = new byte[Integer.BYTES];
                 byte[] parentPointer = new byte[Integer.BYTES];
@@ -38,147 +30,89 @@ public class ReAdjustRectangleBounds {
                 int tempParentPointer;
                 // NoOfEntries + block level + parent pointer
                 int bytecounter = 3 * Integer.BYTES;
-                byte[] minLatArray = new byte[Double.BYTES];
-                byte[] maxLatArray = new byte[Double.BYTES];
-                byte[] minLonArray = new byte[Double.BYTES];
-                byte[] maxLonArray = new byte[Double.BYTES];
                 double minLat = 0.0, maxLat = 0.0, minLon = 0.0, maxLon = 0.0;
                 boolean flag = false;
                 if (tempBlockLevel == leafLevel && blockId > 1) {
                     flag = true;
-                    byte[] LatArray = new byte[Double.BYTES];
-                    byte[] LonArray = new byte[Double.BYTES];
-                    System.arraycopy(dataBlock, bytecounter, LatArray, 0, Double.BYTES);
-                    System.arraycopy(dataBlock, bytecounter + Double.BYTES, LonArray, 0, Double.BYTES);
-                    // LAT + LON + record id
-                    bytecounter += 2 * Double.BYTES + Integer.BYTES;
-                    minLat = ByteBuffer.wrap(LatArray).getDouble();
-                    maxLat = ByteBuffer.wrap(LatArray).getDouble();
-                    minLon = ByteBuffer.wrap(LonArray).getDouble();
-                    maxLon = ByteBuffer.wrap(LonArray).getDouble();
+                    minLat = maxLat = NodeView.getLat(dataBlock, 0);
+                    minLon = maxLon = NodeView.getLon(dataBlock, 0);
                     for (int i = 1; i < tempNoOfEntries; i++) {
-                        System.arraycopy(dataBlock, bytecounter, LatArray, 0, Double.BYTES);
-                        System.arraycopy(dataBlock, bytecounter + Double.BYTES, LonArray, 0, Double.BYTES);
-                        if (ByteBuffer.wrap(LatArray).getDouble() < minLat) {
-                            minLat = ByteBuffer.wrap(LatArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(LatArray).getDouble() > maxLat) {
-                            maxLat = ByteBuffer.wrap(LatArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(LonArray).getDouble() < minLon) {
-                            minLon = ByteBuffer.wrap(LonArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(LonArray).getDouble() > maxLon) {
-                            maxLon = ByteBuffer.wrap(LonArray).getDouble();
-                        }
-                        bytecounter += 2 * Double.BYTES + Integer.BYTES;
+                        minLat = Math.min(minLat, NodeView.getLat(dataBlock, i));
+                        maxLat = Math.max(maxLat, NodeView.getLat(dataBlock, i));
+                        minLon = Math.min(minLon, NodeView.getLon(dataBlock, i));
+                        maxLon = Math.max(maxLon, NodeView.getLon(dataBlock, i));
                     }
                 } else if (tempBlockLevel < leafLevel) {
                     flag = true;
-                    System.arraycopy(dataBlock, bytecounter, minLatArray, 0, Double.BYTES);
-                    System.arraycopy(dataBlock, bytecounter + Double.BYTES, minLonArray, 0, Double.BYTES);
-                    System.arraycopy(dataBlock, bytecounter + 2 * Double.BYTES, maxLatArray, 0, Double.BYTES);
-                    System.arraycopy(dataBlock, bytecounter + 3 * Double.BYTES, maxLonArray, 0, Double.BYTES);
-                    minLat = ByteBuffer.wrap(minLatArray).getDouble();
-                    maxLat = ByteBuffer.wrap(maxLatArray).getDouble();
-                    minLon = ByteBuffer.wrap(minLonArray).getDouble();
-                    maxLon = ByteBuffer.wrap(maxLonArray).getDouble();
-                    bytecounter += 4 * Double.BYTES + Integer.BYTES;
+                    int entrySize = NodeView.internalEntrySize(FileHandler.getDimensions());
+                    minLat = NodeView.getBound(dataBlock, bytecounter, 0);
+                    minLon = NodeView.getBound(dataBlock, bytecounter, 1);
+                    maxLat = NodeView.getBound(dataBlock, bytecounter, 2);
+                    maxLon = NodeView.getBound(dataBlock, bytecounter, 3);
+                    bytecounter += entrySize;
                     for (int i = 1; i < tempNoOfEntries; i++) {
-                        System.arraycopy(dataBlock, bytecounter, minLatArray, 0, Double.BYTES);
-                        System.arraycopy(dataBlock, bytecounter + Double.BYTES, minLonArray, 0, Double.BYTES);
-                        System.arraycopy(dataBlock, bytecounter + 2 * Double.BYTES, maxLatArray, 0, Double.BYTES);
-                        System.arraycopy(dataBlock, bytecounter + 3 * Double.BYTES, maxLonArray, 0, Double.BYTES);
-                        if (ByteBuffer.wrap(minLatArray).getDouble() < minLat) {
-                            minLat = ByteBuffer.wrap(minLatArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(maxLatArray).getDouble() > maxLat) {
-                            maxLat = ByteBuffer.wrap(maxLatArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(minLonArray).getDouble() < minLon) {
-                            minLon = ByteBuffer.wrap(minLonArray).getDouble();
-                        }
-                        if (ByteBuffer.wrap(maxLonArray).getDouble() > maxLon) {
-                            maxLon = ByteBuffer.wrap(maxLonArray).getDouble();
-                        }
-                        bytecounter += 4 * Double.BYTES + Integer.BYTES;
+                        minLat = Math.min(minLat, NodeView.getBound(dataBlock, bytecounter, 0));
+                        minLon = Math.min(minLon, NodeView.getBound(dataBlock, bytecounter, 1));
+                        maxLat = Math.max(maxLat, NodeView.getBound(dataBlock, bytecounter, 2));
+                        maxLon = Math.max(maxLon, NodeView.getBound(dataBlock, bytecounter, 3));
+                        bytecounter += entrySize;
                     }
                 }
                 if (flag) {
                     if (!(parentBlockId == -1)) {
-                        System.arraycopy(bytes, parentBlockId * blockSize, dataBlock, 0, blockSize);
+                        dataBlock = BufferPool.readBlock(parentBlockId);
                         System.arraycopy(dataBlock, Integer.BYTES, noOfEntries, 0, Integer.BYTES);
                         System.arraycopy(dataBlock, 2 * Integer.BYTES, parentPointer, 0, Integer.BYTES);
                         tempNoOfEntries = ByteBuffer.wrap(noOfEntries).getInt();
                         tempParentPointer = ByteBuffer.wrap(parentPointer).getInt();
                         bytecounter = 3 * Integer.BYTES;
+                        int entrySize = NodeView.internalEntrySize(FileHandler.getDimensions());
+                        int childOffset = NodeView.childOffset(FileHandler.getDimensions());
                         for (int i = 0; i < tempNoOfEntries; i++) {
-                            byte[] childBlockIdArray = new byte[Double.BYTES];
-                            System.arraycopy(dataBlock, bytecounter + 4 * Double.BYTES, childBlockIdArray, 0, Double.BYTES);
+                            byte[] childBlockIdArray = new byte[Integer.BYTES];
+                            System.arraycopy(dataBlock, bytecounter + childOffset, childBlockIdArray, 0, Integer.BYTES);
                             if (ByteBuffer.wrap(childBlockIdArray).getInt() == blockId) {
                                 // flag for indexfile edit to
                                 boolean indexfileEdit = false;
                                 if (minLat == 0.0 && minLon == 0.0 && maxLat == 0.0 && maxLon == 0.0) {
-                                    int offset = (tempNoOfEntries - 1 - i) * (2 * FileHandler.getDimensions() * Double.BYTES + Integer.BYTES);
-                                    // save the id of the block that gets deleted and add it in the emptyBlocks Queue of Filehandler
+                                    int offset = (tempNoOfEntries - 1 - i) * entrySize;
+                                    // save the id of the block that gets deleted, it is added to the free block chain below
                                     byte[] childPointer = new byte[Integer.BYTES];
-                                    System.arraycopy(dataBlock, bytecounter + 4 * Double.BYTES, childPointer, 0, Integer.BYTES);
-                                    Queue<Integer> emptyBlocks = FileHandler.getEmptyBlocks();
-                                    emptyBlocks.add(ByteBuffer.wrap(childPointer).getInt());
-                                    FileHandler.setEmptyBlocks(emptyBlocks);
+                                    System.arraycopy(dataBlock, bytecounter + childOffset, childPointer, 0, Integer.BYTES);
                                     // swap with last one if it's not the last one already
                                     if (i != tempNoOfEntries - 1) {
-                                        System.arraycopy(dataBlock, bytecounter + offset, dataBlock, bytecounter, Double.BYTES);
-                                        System.arraycopy(dataBlock, bytecounter + offset + Double.BYTES, dataBlock, bytecounter + Double.BYTES, Double.BYTES);
-                                        System.arraycopy(dataBlock, bytecounter + offset + 2 * Double.BYTES, dataBlock, bytecounter + 2 * Double.BYTES, Double.BYTES);
-                                        System.arraycopy(dataBlock, bytecounter + offset + 3 * Double.BYTES, dataBlock, bytecounter + 3 * Double.BYTES, Double.BYTES);
-                                        System.arraycopy(dataBlock, bytecounter + offset + 4 * Double.BYTES, dataBlock, bytecounter + 4 * Double.BYTES, Integer.BYTES);
+                                        System.arraycopy(dataBlock, bytecounter + offset, dataBlock, bytecounter, entrySize);
                                     }
                                     // empty the last rectangle data
-                                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, bytecounter + offset, Double.BYTES);
-                                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, bytecounter + offset + Double.BYTES, Double.BYTES);
-                                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, bytecounter + offset + 2 * Double.BYTES, Double.BYTES);
-                                    System.arraycopy(new byte[Double.BYTES], 0, dataBlock, bytecounter + offset + 3 * Double.BYTES, Double.BYTES);
-                                    System.arraycopy(new byte[Integer.BYTES], 0, dataBlock, bytecounter + offset + 4 * Double.BYTES, Integer.BYTES);
+                                    Arrays.fill(dataBlock, bytecounter + offset, bytecounter + offset + entrySize, (byte) 0);
                                     // decrease the number of rectangles in the block by one
                                     System.arraycopy(ConversionToBytes.intToBytes(tempNoOfEntries - 1), 0, dataBlock, Integer.BYTES, Integer.BYTES);
                                     // decrease the number of total rectangles in the tree
                                     FileHandler.setNoOfIndexfileBlocks(FileHandler.getNoOfIndexfileBlocks() - 1);
+                                    FileHandler.freeIndexBlock(ByteBuffer.wrap(childPointer).getInt());
                                     indexfileEdit = true;
                                 } else {
-                                    System.arraycopy(dataBlock, bytecounter, minLatArray, 0, Double.BYTES);
-                                    System.arraycopy(dataBlock, bytecounter + Double.BYTES, minLonArray, 0, Double.BYTES);
-                                    System.arraycopy(dataBlock, bytecounter + 2 * Double.BYTES, maxLatArray, 0, Double.BYTES);
-                                    System.arraycopy(dataBlock, bytecounter + 3 * Double.BYTES, maxLonArray, 0, Double.BYTES);
-                                    if (!(ByteBuffer.wrap(minLatArray).getDouble() == minLat && ByteBuffer.wrap(maxLatArray).getDouble() == maxLat && ByteBuffer.wrap(minLonArray).getDouble() == minLon && ByteBuffer.wrap(maxLonArray).getDouble() == maxLon)) {
-                                        System.arraycopy(ConversionToBytes.doubleToBytes(minLat), 0, dataBlock, bytecounter, Double.BYTES);
-                                        System.arraycopy(ConversionToBytes.doubleToBytes(minLon), 0, dataBlock, bytecounter + Double.BYTES, Double.BYTES);
-                                        System.arraycopy(ConversionToBytes.doubleToBytes(maxLat), 0, dataBlock, bytecounter + 2 * Double.BYTES, Double.BYTES);
-                                        System.arraycopy(ConversionToBytes.doubleToBytes(maxLon), 0, dataBlock, bytecounter + 3 * Double.BYTES, Double.BYTES);
+                                    double[] rectangle = NodeView.storedRectangle(new double[]{minLat, minLon, maxLat, maxLon});
+                                    if (!Arrays.equals(NodeView.getRectangle(dataBlock, bytecounter, new double[rectangle.length]), rectangle)) {
+                                        NodeView.putRectangle(dataBlock, bytecounter, rectangle);
                                         indexfileEdit = true;
                                     }
                                 }
                                 // if the data in the tree are edited, rewrite the block
                                 if (indexfileEdit) {
-                                    RandomAccessFile indexfile = new RandomAccessFile(IndexfilePath, "rw");
-                                    indexfile.seek((long) blockSize * parentBlockId);
-                                    indexfile.write(dataBlock);
-                                    indexfile.close();
+                                    BufferPool.writeBlock(parentBlockId, dataBlock);
                                     reAdjustRectangleBounds(parentBlockId, tempParentPointer);
                                 }
                                 break;
                             }
-                            bytecounter += 4 * Double.BYTES + Integer.BYTES;
+                            bytecounter += entrySize;
                         }
                     } else {
-                        FileHandler.getRootMBR()[0][0] = minLat;
-                        FileHandler.getRootMBR()[0][1] = minLon;
-                        FileHandler.getRootMBR()[1][0] = maxLat;
-                        FileHandler.getRootMBR()[1][1] = minLon;
-                        FileHandler.getRootMBR()[2][0] = minLat;
-                        FileHandler.getRootMBR()[2][1] = maxLon;
-                        FileHandler.getRootMBR()[3][0] = maxLat;
-                        FileHandler.getRootMBR()[3][1] = maxLon;
+                        int dimensions = FileHandler.getDimensions();
+                        FileHandler.getRootMBR()[0] = minLat;
+                        FileHandler.getRootMBR()[1] = minLon;
+                        FileHandler.getRootMBR()[dimensions] = maxLat;
+                        FileHandler.getRootMBR()[1 + dimensions] = maxLon;
                     }
                 }
             } catch (Exception e) {
@@ -187,4 +121,109 @@ public class ReAdjustRectangleBounds {
         }
     }
 
+    /**
+     * Adjusts the boundaries of rectangles along the path of an insert. The MBR of the node at the given depth of the
+     * path is calculated from its entries and written to its entry in the node above it, and so on up to the root, the
+     * same way as the method that follows the parent pointers. The nodes are the blocks of the path, so they are not
+     * read again and the entry of every child is known. The node at the given depth must not be empty. The climb stops
+     * at the first entry that does not change.
+     *
+     * @param path  the path of the insert, whose block at the given depth holds the changed node
+     * @param depth the depth of the changed node
+     */
+    public static void reAdjustRectangleBounds(InsertPath path, int depth) {
+        try {
+            int leafLevel = FileHandler.getLeafLevel();
+            int blockSize = FileHandler.getBlockSize();
+            int entrySize = NodeView.internalEntrySize(FileHandler.getDimensions());
+            for (int d = depth; d >= 0; d--) {
+                byte[] dataBlock = path.block(d);
+                int tempBlockLevel = ByteBuffer.wrap(dataBlock).getInt(0);
+                int tempNoOfEntries = ByteBuffer.wrap(dataBlock).getInt(Integer.BYTES);
+                int bytecounter = 3 * Integer.BYTES;
+                double minLat, maxLat, minLon, maxLon;
+                if (tempBlockLevel == leafLevel && path.blockId(d) > 1) {
+                    minLat = maxLat = NodeView.getLat(dataBlock, 0);
+                    minLon = maxLon = NodeView.getLon(dataBlock, 0);
+                    for (int i = 1; i < tempNoOfEntries; i++) {
+                        minLat = Math.min(minLat, NodeView.getLat(dataBlock, i));
+                        maxLat = Math.max(maxLat, NodeView.getLat(dataBlock, i));
+                        minLon = Math.min(minLon, NodeView.getLon(dataBlock, i));
+                        maxLon = Math.max(maxLon, NodeView.getLon(dataBlock, i));
+                    }
+                } else if (tempBlockLevel < leafLevel) {
+                    minLat = NodeView.getBound(dataBlock, bytecounter, 0);
+                    minLon = NodeView.getBound(dataBlock, bytecounter, 1);
+                    maxLat = NodeView.getBound(dataBlock, bytecounter, 2);
+                    maxLon = NodeView.getBound(dataBlock, bytecounter, 3);
+                    bytecounter += entrySize;
+                    for (int i = 1; i < tempNoOfEntries; i++) {
+                        minLat = Math.min(minLat, NodeView.getBound(dataBlock, bytecounter, 0));
+                        minLon = Math.min(minLon, NodeView.getBound(dataBlock, bytecounter, 1));
+                        maxLat = Math.max(maxLat, NodeView.getBound(dataBlock, bytecounter, 2));
+                        maxLon = Math.max(maxLon, NodeView.getBound(dataBlock, bytecounter, 3));
+                        bytecounter += entrySize;
+                    }
+                } else return;
+                if (d == 0) {
+                    int dimensions = FileHandler.getDimensions();
+                    FileHandler.getRootMBR()[0] = minLat;
+                    FileHandler.getRootMBR()[1] = minLon;
+                    FileHandler.getRootMBR()[dimensions] = maxLat;
+                    FileHandler.getRootMBR()[1 + dimensions] = maxLon;
+                    return;
+                }
+                byte[] parentBlock = path.block(d - 1);
+                int offset = path.entryOffset(d);
+                double[] rectangle = NodeView.storedRectangle(new double[]{minLat, minLon, maxLat, maxLon});
+                if (Arrays.equals(NodeView.getRectangle(parentBlock, offset, new double[rectangle.length]), rectangle)) return;
+                int end = NodeView.putRectangle(parentBlock, offset, rectangle);
+                byte[] bounds = new byte[end - offset];
+                System.arraycopy(parentBlock, offset, bounds, 0, bounds.length);
+                BufferPool.write((long) path.blockId(d - 1) * blockSize + offset, bounds);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the node at the given depth of a path from the tree, the same way as the method that follows the parent
+     * pointers does for a node whose entries were deleted. The entry of the node in the node above it is replaced by the
+     * last entry, the block of the node is added to the chain of free blocks, and the boundaries are adjusted from the
+     * node above it up to the root. A node above that is left without entries is removed as well.
+     *
+     * @param path  the path from the root to the removed node
+     * @param depth the depth of the removed node, at least 1
+     */
+    public static void removeRectangle(InsertPath path, int depth) {
+        try {
+            int entrySize = NodeView.internalEntrySize(FileHandler.getDimensions());
+            for (int d = depth; d >= 1; d--) {
+                byte[] parentBlock = path.block(d - 1);
+                int tempNoOfEntries = ByteBuffer.wrap(parentBlock).getInt(Integer.BYTES);
+                int offset = path.entryOffset(d);
+                int lastOffset = 3 * Integer.BYTES + (tempNoOfEntries - 1) * entrySize;
+                // swap with last one if it's not the last one already
+                if (offset != lastOffset) {
+                    System.arraycopy(parentBlock, lastOffset, parentBlock, offset, entrySize);
+                }
+                // empty the last rectangle data
+                Arrays.fill(parentBlock, lastOffset, lastOffset + entrySize, (byte) 0);
+                // decrease the number of rectangles in the block by one
+                System.arraycopy(ConversionToBytes.intToBytes(tempNoOfEntries - 1), 0, parentBlock, Integer.BYTES, Integer.BYTES);
+                // decrease the number of total rectangles in the tree
+                FileHandler.setNoOfIndexfileBlocks(FileHandler.getNoOfIndexfileBlocks() - 1);
+                FileHandler.freeIndexBlock(path.blockId(d));
+                BufferPool.writeBlock(path.blockId(d - 1), parentBlock);
+                if (tempNoOfEntries > 1 || d == 1) {
+                    reAdjustRectangleBounds(path, d - 1);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
 }
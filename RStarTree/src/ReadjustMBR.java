@@ -1,8 +1,7 @@
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 
 /**
- * This class represents a readjustment of the minimum bounding rectangle (MBR). It uses RandomAccessFile for read-write
+ * This class represents a readjustment of the minimum bounding rectangle (MBR). It uses the BufferPool for read-write
  * operations on the index file. The MBR is a rectangle that encloses all the points of a dataset. This class is used to
  * adjust the MBR when a new entry is added or an existing entry is deleted.
  */
@@ -22,14 +21,9 @@ public class ReadjustMBR {
     public static void reAdjustRectangleBounds(int blockId, int parentBlockId, Object troublemaker, boolean shrink) {
         if (parentBlockId != -1) {
             try {
-                String IndexfilePath = FileHandler.getIndexfilePath();
-                int blockSize = FileHandler.getBlockSize();
                 int leafLevel = FileHandler.getLeafLevel();
                 int dimensions = FileHandler.getDimensions();
-                RandomAccessFile bytes = new RandomAccessFile(IndexfilePath, "rw");
-                byte[] dataBlock = new byte[blockSize];
-                bytes.seek((long) parentBlockId * blockSize);
-                bytes.readFully(dataBlock, 0, blockSize);
+                byte[] dataBlock = BufferPool.readBlock(parentBlockId);
                 byte[] blockLevel = new byte[Integer.BYTES];
                 byte[] noOfEntries = new byte[Integer.BYTES];
                 byte[] parentPointer = new byte[Integer.BYTES];
@@ -39,82 +33,122 @@ public class ReadjustMBR {
                 int tempBlockLevel = ByteBuffer.wrap(blockLevel).getInt();
                 int tempNoOfEntries = ByteBuffer.wrap(noOfEntries).getInt();
                 int tempParentPointer = ByteBuffer.wrap(parentPointer).getInt();
-                double[][] MBR = new double[dimensions][dimensions];
-                byte[] tempForDoubles = new byte[Double.BYTES];
+                double[] rectangle = new double[2 * dimensions];
                 int bytecounter = 3 * Integer.BYTES;
-                outer:
                 for (int i = 0; i < tempNoOfEntries; i++) {
-                    byte[] childBlockIdArray = new byte[Double.BYTES];
-                    System.arraycopy(dataBlock, bytecounter + 4 * Double.BYTES, childBlockIdArray, 0, Integer.BYTES);
+                    byte[] childBlockIdArray = new byte[Integer.BYTES];
+                    System.arraycopy(dataBlock, bytecounter + NodeView.childOffset(dimensions), childBlockIdArray, 0, Integer.BYTES);
                     //find which parent entry contains current block id and get its MBR
                     if (ByteBuffer.wrap(childBlockIdArray).getInt() == blockId) {
-                        for (int j = 0; j < 2; j++) {
-                            for (int k = 0; k < dimensions; k++) {
-                                System.arraycopy(dataBlock, bytecounter, tempForDoubles, 0, Double.BYTES);
-                                MBR[j][k] = ByteBuffer.wrap(tempForDoubles).getDouble();
-                                bytecounter += Double.BYTES;
-                            }
-                        }
+                        NodeView.getRectangle(dataBlock, bytecounter, rectangle);
                         break;
-                    } else bytecounter += 4 * Double.BYTES + Integer.BYTES;
+                    } else bytecounter += NodeView.internalEntrySize(dimensions);
                 }
-                double[][] rectangle = new double[(int) Math.pow(2, dimensions)][dimensions];
-                double[][] rectangleNEW = new double[(int) Math.pow(2, dimensions)][dimensions];
-                Split.points_to_rectangle(MBR, rectangle);
-                for (int i = 0; i < rectangle.length; i++)
-                    System.arraycopy(rectangle[i], 0, rectangleNEW[i], 0, dimensions);
+                double[] rectangleNEW = rectangle.clone();
                 //find new MBR
                 if (tempBlockLevel + 1 == leafLevel) {
                     Split.calculateMBRpointbypoint(rectangle, (Record) troublemaker, false, shrink);
                 } else {
-                    double[][] mbr = (double[][]) troublemaker;
-                    for (int l = 0; l < mbr.length; l++)
-                        Split.calculateMBRpointbypoint(rectangle, new Record(mbr[l][0], mbr[l][1], -1), false, shrink);
+                    includeRectangle(rectangle, (double[]) troublemaker, shrink);
                 }
                 boolean flag = false;
-                outer:
                 for (int i = 0; i < rectangle.length; i++) {
-                    for (int j = 0; j < rectangle[0].length; j++) {
-                        if (rectangle[i][j] != rectangleNEW[i][j]) {
-                            flag = true;
-                            break outer;
-                        }
+                    if (rectangle[i] != rectangleNEW[i]) {
+                        flag = true;
+                        break;
                     }
                 }
                 if (flag) {
-                    byte[][] newMBR = new byte[dimensions][dimensions];
-                    bytecounter -= Double.BYTES * 4;
-                    for (int i = 0; i < rectangle.length; i += rectangle.length - 1) {
-                        for (int j = 0; j < rectangle[0].length; j++) {
-                            System.arraycopy(ConversionToBytes.doubleToBytes(rectangle[i][j]), 0, dataBlock, bytecounter, Double.BYTES);
-                            bytecounter += Double.BYTES;
-                        }
-                    }
-                    bytes.seek((long) parentBlockId * blockSize);
-                    bytes.write(dataBlock);
+                    NodeView.putRectangle(dataBlock, bytecounter, rectangle);
+                    BufferPool.writeBlock(parentBlockId, dataBlock);
                     reAdjustRectangleBounds(parentBlockId, tempParentPointer, rectangle, shrink);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
             }
         } else {
-            int dimensions = FileHandler.getDimensions();
-            double[][] rectangle = FileHandler.getRootMBR();
-            double[][] rectangleNEW = new double[(int) Math.pow(2, dimensions)][dimensions];
-            for (int i = 0; i < rectangle.length; i++)
-                System.arraycopy(rectangle[i], 0, rectangleNEW[i], 0, dimensions);
             //in case of root and if it's a new record
             if (troublemaker instanceof Record) {
-                Split.calculateMBRpointbypoint(rectangle, (Record) troublemaker, false, shrink);
+                Split.calculateMBRpointbypoint(FileHandler.getRootMBR(), (Record) troublemaker, false, shrink);
             }
             //in case of root and if it's a new rectangle
             else {
-                double[][] mbr = (double[][]) troublemaker;
-                for (int l = 0; l < mbr.length; l++)
-                    Split.calculateMBRpointbypoint(rectangle, new Record(mbr[l][0], mbr[l][1], -1), false, shrink);
+                includeRectangle(FileHandler.getRootMBR(), (double[]) troublemaker, shrink);
+            }
+        }
+    }
+
+    /**
+     * Readjusts rectangle bounds along the path of an insert. It starts with the entry that points to the node at the
+     * given depth of the path and climbs to the root, including the troublemaker in the entry of every ancestor, the
+     * same way as the method that follows the parent pointers. The ancestors are the blocks of the path, so they are
+     * not read again and the entry of every child is known, and only the bounds of an entry that changes are written.
+     * The climb stops at the first entry that does not change.
+     *
+     * @param path         the path of the insert
+     * @param depth        the depth of the node whose entry is adjusted first
+     * @param troublemaker the troublemaker, a new record or a new rectangle
+     * @param shrink       whether to shrink the MBR
+     */
+    public static void reAdjustRectangleBounds(InsertPath path, int depth, Object troublemaker, boolean shrink) {
+        try {
+            int leafLevel = FileHandler.getLeafLevel();
+            int dimensions = FileHandler.getDimensions();
+            int blockSize = FileHandler.getBlockSize();
+            for (int d = depth; d > 0; d--) {
+                byte[] dataBlock = path.block(d - 1);
+                int tempBlockLevel = ByteBuffer.wrap(dataBlock).getInt(0);
+                int bytecounter = path.entryOffset(d);
+                double[] rectangle = NodeView.getRectangle(dataBlock, bytecounter, new double[2 * dimensions]);
+                double[] rectangleNEW = rectangle.clone();
+                //find new MBR
+                if (tempBlockLevel + 1 == leafLevel) {
+                    Split.calculateMBRpointbypoint(rectangle, (Record) troublemaker, false, shrink);
+                } else {
+                    includeRectangle(rectangle, (double[]) troublemaker, shrink);
+                }
+                boolean flag = false;
+                for (int i = 0; i < rectangle.length; i++) {
+                    if (rectangle[i] != rectangleNEW[i]) {
+                        flag = true;
+                        break;
+                    }
+                }
+                if (!flag) return;
+                int end = NodeView.putRectangle(dataBlock, bytecounter, rectangle);
+                byte[] bounds = new byte[end - bytecounter];
+                System.arraycopy(dataBlock, bytecounter, bounds, 0, bounds.length);
+                BufferPool.write((long) path.blockId(d - 1) * blockSize + bytecounter, bounds);
+                troublemaker = rectangle;
             }
-            for (int l = 0; l < rectangle.length; l++)
-                Split.calculateMBRpointbypoint(FileHandler.getRootMBR(), new Record(rectangle[l][0], rectangle[l][1], -1), false, shrink);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        //the root is reached
+        if (troublemaker instanceof Record) {
+            Split.calculateMBRpointbypoint(FileHandler.getRootMBR(), (Record) troublemaker, false, shrink);
+        } else {
+            includeRectangle(FileHandler.getRootMBR(), (double[]) troublemaker, shrink);
+        }
+    }
+
+    /**
+     * Adjusts a rectangle by the bounds of another rectangle. Without shrink the rectangle is enlarged to contain the
+     * other rectangle, with shrink every bound of the rectangle is moved towards the corners of the other rectangle the
+     * same way calculateMBRpointbypoint moves it towards a point.
+     *
+     * @param rectangle the rectangle to adjust
+     * @param other     the rectangle whose bounds adjust it
+     * @param shrink    whether to shrink the rectangle
+     */
+    private static void includeRectangle(double[] rectangle, double[] other, boolean shrink) {
+        if (!shrink) {
+            Geometry.include(rectangle, other);
+        } else {
+            int dimensions = other.length / 2;
+            Split.calculateMBRpointbypoint(rectangle, new Record(other[0], other[1], -1), false, true);
+            Split.calculateMBRpointbypoint(rectangle, new Record(other[dimensions], other[1 + dimensions], -1), false, true);
         }
     }
 
@@ -2,7 +2,7 @@ import java.util.ArrayList;
 
 /**
  * This class represents a record in a spatial database. Each record has a latitude, a longitude, an ID, a name, a node
- * ID, and a list of coordinates. The record also has a location, which is represented by a block number and a slot
+ * ID, and an array of coordinates. The record also has a location, which is represented by a block number and a slot
  * number.
  */
 public class Record {
@@ -12,7 +12,7 @@ public class Record {
     private int id;
     private String name;
     private long nodeId = 0;
-    private ArrayList<Double> coords;
+    private double[] coords;
 
 
     /**
@@ -75,9 +75,9 @@ public class Record {
      * @param nodeId the node ID of the record
      * @param name   the name of the record
      */
-    public Record(ArrayList<Double> coords, long nodeId, String name) {
+    public Record(double[] coords, long nodeId, String name) {
         this.nodeId = nodeId;
-        this.coords = new ArrayList<>(coords);
+        this.coords = coords.clone();
         if (!name.equals("")) {
             this.name = name;
         }
@@ -126,33 +126,29 @@ public class Record {
         return nodeId;
     }
 
-    public ArrayList<Double> getCoords() {
+    public double[] getCoords() {
         return coords;
     }
 
     /**
-     * Sorts an array of records by latitude or longitude.
+     * Sorts an array of records by latitude or longitude. The coordinates are copied into an array once and the records
+     * are sorted by them with the stable IndexSort.
      *
      * @param a the array of records to sort
      * @param b 0 to sort by latitude, 1 to sort by longitude
      */
     public static void tempSort(ArrayList<Record> a, int b) {
-        for (int i = 0; i < a.size(); i++) {
-            for (int j = a.size() - 1; j > i; j--) {
-                if (b == 0) {
-                    if (a.get(i).getLAT() > a.get(j).getLAT()) {
-                        Record tmp = a.get(i);
-                        a.set(i, a.get(j));
-                        a.set(j, tmp);
-                    }
-                } else {
-                    if (a.get(i).getLON() > a.get(j).getLON()) {
-                        Record tmp = a.get(i);
-                        a.set(i, a.get(j));
-                        a.set(j, tmp);
-                    }
-                }
-            }
+        double[] keys = new double[a.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = b == 0 ? a.get(i).getLAT() : a.get(i).getLON();
+        }
+        int[] order = IndexSort.ascending(keys);
+        Record[] sorted = new Record[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = a.get(order[i]);
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            a.set(i, sorted[i]);
         }
     }
 
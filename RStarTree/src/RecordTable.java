@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * This class keeps the record table of the data file. The record table is a file of fixed-width entries, one for every
+ * record of the data file in the order of the record ids, so the entry of a record is found by its id without reading
+ * the data file. An entry holds the LAT, the LON and the node id of the record and the block and the number of the slot
+ * of the record in the data file. The name of a record is not kept in the table, the record is fetched from the data
+ * file at its location by the DatafileReader.
+ * <p>
+ * The table is written while the data file is built and every record that is inserted later is appended to it. When
+ * old files are reused only the header of the table is read, the entries are mapped read-only with FileChannel.map in
+ * segments of up to 1GB the first time a record is fetched. The header holds a magic number, the format version, the
+ * number of records and the number of data file blocks the table was written for. A table that is missing or does not
+ * match the data file is rebuilt from a scan of the data file.
+ */
+public class RecordTable {
+    public static final int magic = 0x5254424C; // "RTBL"
+    public static final int version = 1;
+    public static final int headerSize = 8 * Integer.BYTES;
+    public static final int entrySize = 2 * Double.BYTES + Long.BYTES + 2 * Integer.BYTES;
+    private static final String RecordTablePath = "records.dat";
+    private static final int segmentSize = 1 << 30;
+    private static final int appendBufferSize = 2048 * entrySize;
+    private static int noOfRecords = 0;
+    private static int noOfFlushedRecords = 0;
+    private static ByteBuffer appendBuffer = null;
+    private static RandomAccessFile tableFile = null;
+    private static FileChannel channel = null;
+    private static MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * This method creates an empty record table, so the records of a new data file can be appended to it. An existing
+     * table is truncated.
+     *
+     * @throws IOException if the record table cannot be written
+     */
+    public static void create() throws IOException {
+        reset();
+        getTableFile().setLength(0);
+        noOfRecords = 0;
+        noOfFlushedRecords = 0;
+        writeHeader(0);
+    }
+
+    /**
+     * This method opens the record table of the data file with the given number of blocks. Only the header is read,
+     * the entries are mapped when the first record is fetched.
+     *
+     * @param noOfDatafileBlocks the number of blocks of the data file
+     * @return true if the table exists and matches the data file, false if it has to be rebuilt
+     * @throws IOException if the record table cannot be read
+     */
+    public static boolean open(int noOfDatafileBlocks) throws IOException {
+        reset();
+        if (!Path.of(RecordTablePath).toFile().exists()) return false;
+        RandomAccessFile file = getTableFile();
+        if (file.length() < headerSize) return false;
+        byte[] bytes = new byte[headerSize];
+        file.seek(0);
+        file.readFully(bytes);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (header.getInt(0) != magic || header.getInt(Integer.BYTES) != version) return false;
+        int records = header.getInt(2 * Integer.BYTES);
+        if (header.getInt(3 * Integer.BYTES) != noOfDatafileBlocks || file.length() < headerSize + (long) records * entrySize) {
+            return false;
+        }
+        noOfRecords = records;
+        noOfFlushedRecords = records;
+        return true;
+    }
+
+    /**
+     * This method writes a new record table from the given records of a data file scan. It is used for data files that
+     * were written before the record table existed or whose table was lost.
+     *
+     * @param records            the records of the data file in the order of their ids
+     * @param noOfDatafileBlocks the number of blocks of the data file
+     * @throws IOException if the record table cannot be written
+     */
+    public static void rebuild(ArrayList<Record> records, int noOfDatafileBlocks) throws IOException {
+        create();
+        for (Record record : records) {
+            append(record.getLAT(), record.getLON(), record.getNodeId(), record.getRecordLocation().getBlock(), (int) record.getRecordLocation().getSlot());
+        }
+        flush(noOfDatafileBlocks);
+    }
+
+    /**
+     * This method appends the entry of a record to the record table. The entries are buffered and written by flush, so
+     * flush must be called once the records of a batch are appended.
+     *
+     * @param LAT    the latitude of the record
+     * @param LON    the longitude of the record
+     * @param nodeId the node id of the record
+     * @param block  the block of the record in the data file
+     * @param slot   the slot of the record in its block
+     * @return the id of the record
+     * @throws IOException if the buffered entries cannot be written
+     */
+    public static int append(double LAT, double LON, long nodeId, int block, int slot) throws IOException {
+        if (appendBuffer == null) appendBuffer = ByteBuffer.allocate(appendBufferSize);
+        if (!appendBuffer.hasRemaining()) writeAppendBuffer();
+        appendBuffer.putDouble(LAT);
+        appendBuffer.putDouble(LON);
+        appendBuffer.putLong(nodeId);
+        appendBuffer.putInt(block);
+        appendBuffer.putInt(slot);
+        return noOfRecords++;
+    }
+
+    /**
+     * This method writes the buffered entries and the header of the record table.
+     *
+     * @param noOfDatafileBlocks the number of blocks of the data file
+     * @throws IOException if the record table cannot be written
+     */
+    public static void flush(int noOfDatafileBlocks) throws IOException {
+        if (appendBuffer != null) writeAppendBuffer();
+        writeHeader(noOfDatafileBlocks);
+    }
+
+    /**
+     * This method returns the location of the record with the given id in the data file.
+     *
+     * @param id the id of the record
+     * @return the location of the record
+     * @throws IOException if the record table cannot be read
+     */
+    public static RecordLocation location(int id) throws IOException {
+        ByteBuffer entry = getEntry(id);
+        int position = entry.position();
+        return new RecordLocation(entry.getInt(position + 2 * Double.BYTES + Long.BYTES), entry.getInt(position + 2 * Double.BYTES + Long.BYTES + Integer.BYTES));
+    }
+
+    /**
+     * This method returns the record with the given id. The location of the record is read from the table and the
+     * record, name included, is fetched from the data file.
+     *
+     * @param id the id of the record
+     * @return the record with the given id
+     * @throws IOException if the record table or the data file cannot be read
+     */
+    public static Record get(int id) throws IOException {
+        return DatafileReader.fetch(location(id), id);
+    }
+
+    /**
+     * This method returns the records with the given ids. The records are fetched from the data file with one batch,
+     * which reads every block of the data file at most once.
+     *
+     * @param ids the ids of the records
+     * @return the records with the given ids, in the order of the ids
+     * @throws IOException if the record table or the data file cannot be read
+     */
+    public static Record[] get(int[] ids) throws IOException {
+        RecordLocation[] locations = new RecordLocation[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            locations[i] = location(ids[i]);
+        }
+        return DatafileReader.fetch(locations, ids);
+    }
+
+    /**
+     * This method returns every record of the table in the order of the ids. The names are not read from the data
+     * file, so the records hold everything the tree needs to be built but no names.
+     *
+     * @return an ArrayList of the records of the table
+     * @throws IOException if the record table cannot be read
+     */
+    public static ArrayList<Record> getAll() throws IOException {
+        ArrayList<Record> records = new ArrayList<>(noOfRecords);
+        for (int id = 0; id < noOfRecords; id++) {
+            ByteBuffer entry = getEntry(id);
+            int position = entry.position();
+            records.add(new Record(entry.getDouble(position), entry.getDouble(position + Double.BYTES), entry.getInt(position + 2 * Double.BYTES + Long.BYTES),
+                    entry.getInt(position + 2 * Double.BYTES + Long.BYTES + Integer.BYTES), id, entry.getLong(position + 2 * Double.BYTES)));
+        }
+        return records;
+    }
+
+    /**
+     * This method reads the LAT and the LON of the given number of records, starting with the given id, into the given
+     * arrays, so the points of the table can be streamed without building a Record for every entry.
+     *
+     * @param firstId the id of the first record
+     * @param count   the number of records
+     * @param lats    the array that receives the LATs
+     * @param lons    the array that receives the LONs
+     * @throws IOException if the record table cannot be read
+     */
+    public static void getPoints(int firstId, int count, double[] lats, double[] lons) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ByteBuffer entry = getEntry(firstId + i);
+            int position = entry.position();
+            lats[i] = entry.getDouble(position);
+            lons[i] = entry.getDouble(position + Double.BYTES);
+        }
+    }
+
+    public static int size() {
+        return noOfRecords;
+    }
+
+    public static String getRecordTablePath() {
+        return RecordTablePath;
+    }
+
+    /**
+     * This method drops the mappings and closes the files of the record table. Entries that are still buffered are
+     * lost, so flush must be called before.
+     */
+    public static void reset() {
+        segments = new MappedByteBuffer[0];
+        appendBuffer = null;
+        try {
+            if (channel != null) channel.close();
+            if (tableFile != null) tableFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+        tableFile = null;
+    }
+
+    /**
+     * This method returns the mapped segment that holds the entry of the given id, positioned at the entry. A segment
+     * is mapped again when the table has grown past the end of its current mapping.
+     *
+     * @param id the id of the record
+     * @return the segment of the entry, positioned at the first byte of the entry
+     * @throws IOException if the record table cannot be mapped
+     */
+    private static ByteBuffer getEntry(int id) throws IOException {
+        if (id < 0 || id >= noOfFlushedRecords) throw new IOException("The record table has no flushed record with the id " + id);
+        long position = headerSize + (long) id * entrySize;
+        int segment = (int) (position / segmentSize);
+        int offset = (int) (position % segmentSize);
+        MappedByteBuffer mapped = segment < segments.length ? segments[segment] : null;
+        if (mapped == null || mapped.capacity() < offset + entrySize) mapped = map(segment);
+        return mapped.position(offset);
+    }
+
+    /**
+     * This method maps the given segment of the record table up to the current end of the file.
+     *
+     * @param segment the number of the segment
+     * @return the new mapping of the segment
+     * @throws IOException if the record table cannot be mapped
+     */
+    private static MappedByteBuffer map(int segment) throws IOException {
+        if (channel == null) channel = FileChannel.open(Path.of(RecordTablePath), StandardOpenOption.READ);
+        long start = (long) segment * segmentSize;
+        long length = Math.max(0, Math.min(segmentSize, channel.size() - start));
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (segment >= segments.length) {
+            MappedByteBuffer[] newSegments = new MappedByteBuffer[segment + 1];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            segments = newSegments;
+        }
+        segments[segment] = mapped;
+        return mapped;
+    }
+
+    /**
+     * This method writes the buffered entries after the entries that are already in the record table.
+     *
+     * @throws IOException if the record table cannot be written
+     */
+    private static void writeAppendBuffer() throws IOException {
+        RandomAccessFile file = getTableFile();
+        file.seek(headerSize + (long) noOfFlushedRecords * entrySize);
+        file.write(appendBuffer.array(), 0, appendBuffer.position());
+        noOfFlushedRecords += appendBuffer.position() / entrySize;
+        appendBuffer.clear();
+    }
+
+    /**
+     * This method writes the header of the record table.
+     *
+     * @param noOfDatafileBlocks the number of blocks of the data file
+     * @throws IOException if the record table cannot be written
+     */
+    private static void writeHeader(int noOfDatafileBlocks) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(magic);
+        header.putInt(version);
+        header.putInt(noOfFlushedRecords);
+        header.putInt(noOfDatafileBlocks);
+        RandomAccessFile file = getTableFile();
+        file.seek(0);
+        file.write(header.array());
+    }
+
+    private static RandomAccessFile getTableFile() throws IOException {
+        if (tableFile == null) tableFile = new RandomAccessFile(RecordTablePath, "rw");
+        return tableFile;
+    }
+
+}
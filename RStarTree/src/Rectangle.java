@@ -2,11 +2,12 @@ import java.util.ArrayList;
 
 /**
  * This class represents a rectangle in a spatial database. Each rectangle is defined by a set of coordinates and a child
- * pointer.
+ * pointer. The coordinates are kept in a primitive array in the layout of the Geometry kernels, the lower bounds of
+ * every dimension followed by the upper bounds.
  *
  */
 public class Rectangle {
-    private final ArrayList<Double> coordinates;
+    private final double[] coordinates;
     private int childPointer;
 
     /**
@@ -15,8 +16,8 @@ public class Rectangle {
      * @param coordinates the coordinates of the rectangle
      * @param childPointer the child pointer of the rectangle
      */
-    Rectangle(ArrayList<Double> coordinates, int childPointer) {
-        this.coordinates = new ArrayList<>(coordinates);
+    Rectangle(double[] coordinates, int childPointer) {
+        this.coordinates = coordinates.clone();
         this.childPointer = childPointer;
     }
 
@@ -25,68 +26,40 @@ public class Rectangle {
      *
      * @param coordinates the coordinates of the rectangle
      */
-    Rectangle(ArrayList<Double> coordinates) {
-        this.coordinates = new ArrayList<>(coordinates);
+    Rectangle(double[] coordinates) {
+        this.coordinates = coordinates.clone();
     }
 
     /**
-     * Sorts a list of rectangles by their coordinates.
+     * Sorts a list of rectangles by their coordinates. The sorted boundary is copied into an array once and the
+     * rectangles and their child pointers are sorted by it with the stable IndexSort.
      *
      * @param a the list of rectangles to sort
      * @param b 0 to sort by latitude, 1 to sort by longitude
      * @param c 0 to sort by lower boundary, 1 to sort by higher boundary
      * @param d the list of child pointers corresponding to the rectangles
      */
-    public static void tempSort(ArrayList<Double[][]> a, int b, int c, ArrayList<Integer> d)
+    public static void tempSort(ArrayList<double[]> a, int b, int c, ArrayList<Integer> d)
     {
-        for (int i = 0; i < a.size(); i++) {
-            for (int j = a.size() - 1; j > i; j--) {
-                if (b == 0) {
-                    if (c == 0) {
-                        if (a.get(i)[0][0] > a.get(j)[0][0]) {
-                            Double[][] tmp = a.get(i);
-                            a.set(i, a.get(j));
-                            a.set(j, tmp);
-                            Integer tmp1 = d.get(i);
-                            d.set(i, d.get(j));
-                            d.set(j, tmp1);
-                        }
-                    } else {
-                        if (a.get(i)[1][0] > a.get(j)[1][0]) {
-                            Double[][] tmp = a.get(i);
-                            a.set(i, a.get(j));
-                            a.set(j, tmp);
-                            Integer tmp1 = d.get(i);
-                            d.set(i, d.get(j));
-                            d.set(j, tmp1);
-                        }
-                    }
-                } else {
-                    if (c == 0) {
-                        if (a.get(i)[0][1] > a.get(j)[0][1]) {
-                            Double[][] tmp = a.get(i);
-                            a.set(i, a.get(j));
-                            a.set(j, tmp);
-                            Integer tmp1 = d.get(i);
-                            d.set(i, d.get(j));
-                            d.set(j, tmp1);
-                        }
-                    } else {
-                        if (a.get(i)[1][1] > a.get(j)[1][1]) {
-                            Double[][] tmp = a.get(i);
-                            a.set(i, a.get(j));
-                            a.set(j, tmp);
-                            Integer tmp1 = d.get(i);
-                            d.set(i, d.get(j));
-                            d.set(j, tmp1);
-                        }
-                    }
-                }
-            }
+        int index = c * FileHandler.getDimensions() + b;
+        double[] keys = new double[a.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = a.get(i)[index];
+        }
+        int[] order = IndexSort.ascending(keys);
+        double[][] sorted = new double[order.length][];
+        Integer[] sortedIDs = new Integer[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = a.get(order[i]);
+            sortedIDs[i] = d.get(order[i]);
+        }
+        for (int i = 0; i < order.length; i++) {
+            a.set(i, sorted[i]);
+            d.set(i, sortedIDs[i]);
         }
     }
 
-    public ArrayList<Double> getCoordinates() {
+    public double[] getCoordinates() {
         return this.coordinates;
     }
 
@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+
+/**
+ * This class is the split of the revised R* tree of Beckmann and Seeger. The entries are sorted by the lower and by the
+ * upper bound of every dimension, the points of a leaf only by their coordinates, and the split dimension is the one
+ * whose distributions have the least sum of perimeters. Every distribution of the split dimension is then weighted:
+ * <ul>
+ * <li>a distribution whose groups do not overlap is scored by its perimeter minus the largest perimeter a split can
+ * have, so the overlap-free distributions come first and the one with the least perimeter among them wins,</li>
+ * <li>any other distribution is scored by the overlap of its groups, the area of their intersection, or the perimeter
+ * of their intersection if a group of some distribution has no area, like the points of a leaf on one line.</li>
+ * </ul>
+ * The score is weighted by a Gaussian over the size of the first group that favors the balanced splits. Its center is
+ * shifted toward the side of the dimension the node has grown to, the difference between the center of the MBR with the
+ * new entry and the center of the MBR before it, because the next entries are likely to arrive on that side as well.
+ * The revised R* tree keeps the MBR of a node at its creation for this, which the index file does not hold, so the
+ * split takes the MBR of the node before the overflowing entry instead. Overflowing nodes are split at once, without
+ * reinsertion.
+ */
+public class RevisedRStarSplit implements SplitStrategy {
+    private static final double s = 0.5;
+
+    @Override
+    public int distribute(ArrayList<double[]> entries, boolean leaf, int maxEntries, int blockId, int[] order) {
+        int dimensions = entries.get(0).length / 2;
+        int size = entries.size();
+        int minEntries = SplitStrategy.minEntries(maxEntries);
+        int bounds = leaf ? 1 : 2;
+        int[][][] sortOrders = new int[dimensions][bounds][];
+        double[] keys = new double[size];
+        int splitDimension = 0;
+        double leastPerimeter = Double.MAX_VALUE;
+        for (int d = 0; d < dimensions; d++) {
+            double perimeter = 0;
+            for (int bound = 0; bound < bounds; bound++) {
+                for (int i = 0; i < size; i++) {
+                    keys[i] = entries.get(i)[bound * dimensions + d];
+                }
+                sortOrders[d][bound] = IndexSort.ascending(keys);
+                double[][] prefixMBRs = prefixMBRs(entries, sortOrders[d][bound]);
+                double[][] suffixMBRs = suffixMBRs(entries, sortOrders[d][bound]);
+                for (int k = minEntries; k <= size - minEntries; k++) {
+                    perimeter += Geometry.margin(prefixMBRs[k - 1]) + Geometry.margin(suffixMBRs[k]);
+                }
+            }
+            if (perimeter < leastPerimeter) {
+                leastPerimeter = perimeter;
+                splitDimension = d;
+            }
+        }
+        double[] mbr = Geometry.emptyRectangle(dimensions);
+        for (int i = 0; i < size - 1; i++) {
+            Geometry.include(mbr, entries.get(i));
+        }
+        double[] previousMBR = mbr.clone();
+        Geometry.include(mbr, entries.get(size - 1));
+        double extent = mbr[splitDimension + dimensions] - mbr[splitDimension];
+        double asymmetry = extent > 0 ? (mbr[splitDimension] + mbr[splitDimension + dimensions] - previousMBR[splitDimension] - previousMBR[splitDimension + dimensions]) / extent : 0;
+        double mu = (1 - 2.0 * minEntries / (maxEntries + 1)) * asymmetry;
+        double sigma = s * (1 + Math.abs(mu));
+        double y1 = Math.exp(-1 / (s * s));
+        double ys = 1 / (1 - y1);
+        double leastExtent = Double.MAX_VALUE;
+        for (int d = 0; d < dimensions; d++) {
+            leastExtent = Math.min(leastExtent, mbr[d + dimensions] - mbr[d]);
+        }
+        double largestPerimeter = 2 * Geometry.margin(mbr) - leastExtent;
+        double[][][] prefixMBRs = new double[bounds][][];
+        double[][][] suffixMBRs = new double[bounds][][];
+        boolean byArea = true;
+        for (int bound = 0; bound < bounds; bound++) {
+            prefixMBRs[bound] = prefixMBRs(entries, sortOrders[splitDimension][bound]);
+            suffixMBRs[bound] = suffixMBRs(entries, sortOrders[splitDimension][bound]);
+            for (int k = minEntries; k <= size - minEntries; k++) {
+                if (Geometry.area(prefixMBRs[bound][k - 1]) == 0 || Geometry.area(suffixMBRs[bound][k]) == 0) byArea = false;
+            }
+        }
+        double leastWeight = Double.POSITIVE_INFINITY;
+        int splitIndex = minEntries;
+        int splitBound = 0;
+        for (int bound = 0; bound < bounds; bound++) {
+            for (int k = minEntries; k <= size - minEntries; k++) {
+                double[] firstMBR = prefixMBRs[bound][k - 1];
+                double[] secondMBR = suffixMBRs[bound][k];
+                double overlap = byArea ? Geometry.overlap(firstMBR, secondMBR) : intersectionMargin(firstMBR, secondMBR);
+                double goal = overlap == 0 ? Geometry.margin(firstMBR) + Geometry.margin(secondMBR) - largestPerimeter : overlap;
+                double x = 2.0 * k / (maxEntries + 1) - 1;
+                // the weight is kept above zero, so a distribution at the end of the range is the worst instead of undefined
+                double weight = Math.max(Double.MIN_VALUE, ys * (Math.exp(-((x - mu) / sigma) * ((x - mu) / sigma)) - y1));
+                double weighted = goal < 0 ? goal * weight : goal / weight;
+                if (weighted < leastWeight) {
+                    leastWeight = weighted;
+                    splitIndex = k;
+                    splitBound = bound;
+                }
+            }
+        }
+        System.arraycopy(sortOrders[splitDimension][splitBound], 0, order, 0, size);
+        return splitIndex;
+    }
+
+    /**
+     * This method returns the MBRs of the first entries of the given order, the MBR of the first i+1 entries at
+     * position i.
+     *
+     * @param entries the rectangles of the entries
+     * @param order   the indexes of the entries in their sort order
+     * @return the prefix MBRs
+     */
+    private static double[][] prefixMBRs(ArrayList<double[]> entries, int[] order) {
+        double[][] prefixMBRs = new double[order.length][];
+        double[] mbr = Geometry.emptyRectangle(entries.get(0).length / 2);
+        for (int i = 0; i < order.length; i++) {
+            Geometry.include(mbr, entries.get(order[i]));
+            prefixMBRs[i] = mbr.clone();
+        }
+        return prefixMBRs;
+    }
+
+    /**
+     * This method returns the MBRs of the last entries of the given order, the MBR of the entries from position i to
+     * the last at position i.
+     *
+     * @param entries the rectangles of the entries
+     * @param order   the indexes of the entries in their sort order
+     * @return the suffix MBRs
+     */
+    private static double[][] suffixMBRs(ArrayList<double[]> entries, int[] order) {
+        double[][] suffixMBRs = new double[order.length][];
+        double[] mbr = Geometry.emptyRectangle(entries.get(0).length / 2);
+        for (int i = order.length - 1; i >= 0; i--) {
+            Geometry.include(mbr, entries.get(order[i]));
+            suffixMBRs[i] = mbr.clone();
+        }
+        return suffixMBRs;
+    }
+
+    /**
+     * This method returns the margin of the intersection of two rectangles, the overlap of rectangles without area.
+     * Rectangles that do not intersect have a margin of zero, rectangles that touch the margin of their common bound.
+     *
+     * @param a the first rectangle
+     * @param b the second rectangle
+     * @return the margin of the intersection of the rectangles
+     */
+    private static double intersectionMargin(double[] a, double[] b) {
+        int dimensions = a.length / 2;
+        double margin = 0;
+        for (int i = 0; i < dimensions; i++) {
+            double extent = Math.min(a[i + dimensions], b[i + dimensions]) - Math.max(a[i], b[i]);
+            if (extent < 0) return 0;
+            margin += extent;
+        }
+        return margin;
+    }
+
+    @Override
+    public boolean reinsertsOnOverflow() {
+        return false;
+    }
+
+    @Override
+    public int getId() {
+        return revisedRStarId;
+    }
+
+    @Override
+    public String getName() {
+        return "Revised R*";
+    }
+
+}
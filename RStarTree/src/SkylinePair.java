@@ -1,12 +1,10 @@
-import java.util.ArrayList;
-
 /**
  * This class represents a pair of skyline in a spatial database. Each pair is defined by a set of coordinates and an ID.
  *
  */
 public class SkylinePair {
     private int id;
-    private ArrayList<Double> coordinates;
+    private double[] coordinates;
 
     /**
      * Constructs a new skyline pair with the given ID and coordinates.
@@ -14,7 +12,7 @@ public class SkylinePair {
      * @param id the ID of the skyline pair
      * @param coordinates the coordinates of the skyline pair
      */
-    SkylinePair(int id, ArrayList<Double> coordinates) {
+    SkylinePair(int id, double[] coordinates) {
         this.id = id;
         this.coordinates = coordinates;
     }
@@ -23,7 +21,7 @@ public class SkylinePair {
         return id;
     }
 
-    public ArrayList<Double> getCoordinates() {
+    public double[] getCoordinates() {
         return coordinates;
     }
 }
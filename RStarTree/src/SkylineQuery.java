@@ -16,42 +16,48 @@ public class SkylineQuery {
      */
     SkylineQuery() {
         this.dimensions = FileHandler.getDimensions();
-        pointers = new PriorityQueue<>((Comparator.comparingDouble(o -> Math.abs(o.getCoordinates().get(0)) + Math.abs(o.getCoordinates().get(1)))));
+        pointers = new PriorityQueue<>((Comparator.comparingDouble(o -> Math.abs(o.getCoordinates()[0]) + Math.abs(o.getCoordinates()[1]))));
         result = new ArrayList<>();
         this.skylineQuery();
     }
 
     /**
-     * Performs the skyline query. The query is performed by checking each record in the database and comparing it to the
-     * current result set. If a record dominates any of the records in the result set, the dominated records are removed
-     * from the result set and the dominating record is added to the result set. The result set is always sorted in
-     * descending order by latitude.
+     * Performs the skyline query. The entries of every visited node are read through a NodeView. The query is
+     * performed by checking each record in the database and comparing it to the current result set. If a record
+     * dominates any of the records in the result set, the dominated records are removed from the result set and the
+     * dominating record is added to the result set. The result set is always sorted in descending order by latitude.
+     * The result set holds records of the coordinates and the ids only while the query runs, the full records of the
+     * skyline are fetched from the data file with one batch at the end.
      */
     private void skylineQuery() {
+        NodeView node = new NodeView();
         try {
             if (FileHandler.getNoOfIndexfileBlocks() > 1) {
-                pointers.add(new SkylinePair(1, new ArrayList<>()));
-                int blockId, level;
+                pointers.add(new SkylinePair(1, new double[0]));
                 while (!pointers.isEmpty()) {
-                    blockId = pointers.peek().getId();
+                    node.pin(pointers.peek().getId());
                     pointers.remove();
-                    level = FileHandler.getMetaDataOfRectangle(blockId).get(0);
-                    if (level != FileHandler.getLeafLevel()) {
-                        ArrayList<Rectangle> rectangles = FileHandler.getRectangleEntries(blockId);
+                    int noOfEntries = node.entryCount();
+                    if (node.level() != FileHandler.getLeafLevel()) {
                         outerLoop:
-                        for (Rectangle rectangle : rectangles) {
+                        for (int entry = 0; entry < noOfEntries; entry++) {
+                            double minLat = node.minLat(entry);
+                            double minLon = node.minLon(entry);
+                            double maxLat = node.maxLat(entry);
+                            double maxLon = node.maxLon(entry);
                             if (!result.isEmpty()) {
                                 for (Record record : result) {
-                                    if (record.getLON() <= rectangle.getCoordinates().get(0) && record.getLON() <= rectangle.getCoordinates().get(dimensions) && record.getLON() <= rectangle.getCoordinates().get(1) && record.getLON() <= rectangle.getCoordinates().get(1 + dimensions)) {
+                                    if (record.getLON() <= minLat && record.getLON() <= maxLat && record.getLON() <= minLon && record.getLON() <= maxLon) {
                                         continue outerLoop;
                                     }
                                 }
                             }
-                            pointers.add(new SkylinePair(rectangle.getChildPointer(), rectangle.getCoordinates()));
+                            pointers.add(new SkylinePair(node.child(entry), node.rectangle(entry, new double[2 * dimensions])));
                         }
                     } else {
-                        ArrayList<Record> records = FileHandler.getRecords(blockId);
-                        for (Record record : records) {
+                        for (int entry = 0; entry < noOfEntries; entry++) {
+                            double lat = node.lat(entry);
+                            double lon = node.lon(entry);
                             boolean condition = false;
                             if (result.isEmpty()) {
                                 condition = true;
@@ -59,10 +65,10 @@ public class SkylineQuery {
                                 Iterator<Record> iterator = result.iterator();
                                 while (iterator.hasNext()) {
                                     Record record1 = iterator.next();
-                                    if (record1.getLON() <= record.getLON() && record1.getLAT() <= record.getLAT()) {
+                                    if (record1.getLON() <= lon && record1.getLAT() <= lat) {
                                         condition = false;
                                         break;
-                                    } else if (record.getLON() < record1.getLON() && record.getLAT() < record1.getLAT()) {
+                                    } else if (lon < record1.getLON() && lat < record1.getLAT()) {
                                         condition = true;
                                         iterator.remove();
                                     } else {
@@ -71,15 +77,24 @@ public class SkylineQuery {
                                 }
                             }
                             if (condition) {
-                                result.add(record);
+                                result.add(new Record(lat, lon, node.recordId(entry)));
                                 result.sort((r1, r2) -> Double.compare(r2.getLAT(), r1.getLAT()));
                             }
                         }
                     }
                 }
+                node.release();
+                ArrayList<Integer> ids = new ArrayList<>();
+                for (Record record : result) {
+                    ids.add(record.getId());
+                }
+                result.clear();
+                result.addAll(FileHandler.fetchRecords(ids));
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            node.release();
         }
     }
 
@@ -91,7 +106,7 @@ public class SkylineQuery {
     void print() {
         System.out.println("There are " + result.size() + " entries in the skyline: ");
         for (Record record : result) {
-            System.out.print("LAT: " + record.getLAT() + ", LON: " + record.getLON() + ", Datafile block: " + FileHandler.getRecord(record.getId()).getRecordLocation().getBlock() + ", Block slot: " + FileHandler.getRecord(record.getId()).getRecordLocation().getSlot());
+            System.out.print("LAT: " + record.getLAT() + ", LON: " + record.getLON() + ", Datafile block: " + record.getRecordLocation().getBlock() + ", Block slot: " + record.getRecordLocation().getSlot());
             if (record.getName() != null && !record.getName().equals("")) {
                 System.out.print(", Name: " + record.getName());
             }
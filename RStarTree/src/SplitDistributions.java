@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+
+/**
+ * This class evaluates the distributions of the R* split for the M+1 entries of a node in one sort order. The first
+ * group of a distribution is a prefix of the sorted entries and the second group the rest, so the MBR of every prefix
+ * and of every suffix is calculated once, each from the one before it, and the margin, the overlap and the area of all
+ * M-2m+2 distributions come out of one linear sweep over the two arrays instead of an MBR calculation of both groups
+ * for every distribution. The MBRs are the same as those of the groups calculated one by one, so the split axis and
+ * the split index are the same as well.
+ */
+public class SplitDistributions {
+    private final double marginValue;
+    private final int splitIndex;
+    private final double overlap;
+    private final double area;
+
+    /**
+     * This method calculates the prefix and suffix MBRs of the given rectangles, in their order, and evaluates their
+     * distributions.
+     *
+     * @param rectangles the sorted rectangles of a node and the new rectangle
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id that decides the margin, as in the margin of a split axis
+     * @return the evaluated distributions
+     */
+    public static SplitDistributions ofRectangles(ArrayList<double[]> rectangles, int maxEntries, int blockId) {
+        int size = rectangles.size();
+        double[][] prefixMBRs = new double[size][];
+        double[][] suffixMBRs = new double[size][];
+        double[] mbr = Geometry.emptyRectangle(FileHandler.getDimensions());
+        for (int i = 0; i < size; i++) {
+            Geometry.include(mbr, rectangles.get(i));
+            prefixMBRs[i] = mbr.clone();
+        }
+        mbr = Geometry.emptyRectangle(FileHandler.getDimensions());
+        for (int i = size - 1; i >= 0; i--) {
+            Geometry.include(mbr, rectangles.get(i));
+            suffixMBRs[i] = mbr.clone();
+        }
+        return new SplitDistributions(prefixMBRs, suffixMBRs, maxEntries, blockId);
+    }
+
+    /**
+     * This constructor sweeps over the distributions. The first group of the k-th distribution holds the first
+     * floor(m*M - 1) + k entries, for k from 1 to M - floor(2*m*M) + 1. The margin of the sort order is the sum of the
+     * margins of both groups of every distribution, and the split index is the size of the first group of the
+     * distribution with the least overlap, ties broken by the least area, the first one of equal distributions winning.
+     *
+     * @param prefixMBRs the MBRs of the first i+1 entries at position i
+     * @param suffixMBRs the MBRs of the entries from position i to the last at position i
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id that decides the margin
+     */
+    private SplitDistributions(double[][] prefixMBRs, double[][] suffixMBRs, int maxEntries, int blockId) {
+        double m = Split.getM();
+        int firstSize = (int) Math.floor(m * maxEntries - 1);
+        double marginValue = 0;
+        double area = 0;
+        double minOverlap = Double.MAX_VALUE;
+        int splitIndex = 0;
+        for (int k = 1; k < maxEntries - Math.floor(2 * m * maxEntries) + 2; k++) {
+            double[] firstMBR = prefixMBRs[firstSize + k - 1];
+            double[] secondMBR = suffixMBRs[firstSize + k];
+            marginValue += calcMargin(firstMBR, blockId);
+            marginValue += calcMargin(secondMBR, blockId);
+            double overlap = Split.calcOverlap(firstMBR, secondMBR);
+            if (overlap < minOverlap) {
+                area = Geometry.area(firstMBR) + Geometry.area(secondMBR) - overlap;
+                minOverlap = overlap;
+                splitIndex = firstSize + k;
+            } else if (overlap == minOverlap) {
+                double b = Geometry.area(firstMBR) + Geometry.area(secondMBR) - overlap;
+                if (b < area) {
+                    area = b;
+                    splitIndex = firstSize + k;
+                }
+            }
+        }
+        this.marginValue = marginValue;
+        this.splitIndex = splitIndex;
+        this.overlap = minOverlap;
+        this.area = area;
+    }
+
+    /**
+     * This method returns the margin of a group, which is the distance of its bounds from the bounds of the root MBR
+     * when the split node is the root and 0 otherwise.
+     *
+     * @param childMBR the MBR of the group
+     * @param parentID the block id that decides the margin
+     * @return the margin of the group
+     */
+    static double calcMargin(double[] childMBR, int parentID) {
+        double[] rootMBR = FileHandler.getRootMBR();
+        int dimensions = rootMBR.length / 2;
+        double margin_value = 0;
+        if (parentID == -1) {
+            margin_value += Math.abs(rootMBR[1 + dimensions] - childMBR[1 + dimensions]);
+            margin_value += Math.abs(rootMBR[1] - childMBR[1]);
+            margin_value += Math.abs(rootMBR[0] - childMBR[0]);
+            margin_value += Math.abs(rootMBR[dimensions] - childMBR[dimensions]);
+        }
+        return margin_value;
+    }
+
+    /**
+     * This method returns the sum of the margins of all the distributions of the sort order.
+     *
+     * @return the margin of the sort order
+     */
+    public double getMarginValue() {
+        return marginValue;
+    }
+
+    /**
+     * This method returns the number of entries of the first group of the chosen distribution.
+     *
+     * @return the split index
+     */
+    public int getSplitIndex() {
+        return splitIndex;
+    }
+
+    /**
+     * This method returns the overlap of the two groups of the chosen distribution.
+     *
+     * @return the overlap of the chosen distribution
+     */
+    public double getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * This method returns the area of the chosen distribution, the areas of both groups without their overlap.
+     *
+     * @return the area of the chosen distribution
+     */
+    public double getArea() {
+        return area;
+    }
+
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+
+/**
+ * This interface is the algorithm that distributes the M+1 entries of an overflowing node into the two nodes of a
+ * split. The Split reads the entries of the node, hands them to the strategy of the index as rectangles, points as
+ * rectangles without extent, and writes the two groups the strategy returns, so a strategy only decides which entries
+ * go together. The strategy is chosen before an index is built and stored in its superblock, so an index is always
+ * split with the strategy it was built with:
+ * <ul>
+ * <li>the linear split of Guttman, the fastest, with seeds that are far apart along one dimension,</li>
+ * <li>the quadratic split of Guttman, with the seeds that waste the most area together,</li>
+ * <li>the R* split, by the least margin over the sort orders and the least overlap, with forced reinsertion,</li>
+ * <li>the revised R* split of Beckmann and Seeger, by the least perimeter and a weighted overlap that favors splits
+ * near the middle, shifted toward the side the node grows to, without forced reinsertion.</li>
+ * </ul>
+ */
+public interface SplitStrategy {
+    int linearId = 0;
+    int quadraticId = 1;
+    int rStarId = 2;
+    int revisedRStarId = 3;
+
+    /**
+     * This method distributes the given entries into two groups of at least the minimum fill each. The indexes of the
+     * entries of the first group are written to the beginning of the given order, followed by the indexes of the
+     * entries of the second group.
+     *
+     * @param entries    the rectangles of the M+1 entries, the entry that caused the overflow last
+     * @param leaf       true if the entries are the points of a leaf
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id of the parent of the split node, -1 for the root
+     * @param order      the array that receives the indexes of the entries, as long as the entries
+     * @return the number of entries of the first group
+     */
+    int distribute(ArrayList<double[]> entries, boolean leaf, int maxEntries, int blockId, int[] order);
+
+    /**
+     * This method tells if the first overflow of a level during an insert reinserts a part of the entries of the node
+     * instead of splitting it.
+     *
+     * @return true if overflowing nodes are reinserted before they are split
+     */
+    boolean reinsertsOnOverflow();
+
+    /**
+     * This method returns the id of the strategy that is stored in the superblock of the index file.
+     *
+     * @return the id of the strategy
+     */
+    int getId();
+
+    String getName();
+
+    /**
+     * This method returns the strategy with the given id. Unknown ids, like that of an index file written before the
+     * strategies existed, return the R* split.
+     *
+     * @param id the id of the strategy
+     * @return the strategy
+     */
+    static SplitStrategy byId(int id) {
+        return switch (id) {
+            case linearId -> new LinearSplit();
+            case quadraticId -> new QuadraticSplit();
+            case revisedRStarId -> new RevisedRStarSplit();
+            default -> new RStarSplit();
+        };
+    }
+
+    /**
+     * This method returns the minimum number of entries of a group, the minimum fill of the tree.
+     *
+     * @param maxEntries the maximum number of entries of the node
+     * @return the minimum number of entries of a group, at least 1
+     */
+    static int minEntries(int maxEntries) {
+        return Math.max(1, (int) Math.floor(Split.getM() * maxEntries));
+    }
+
+}
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * This class implements the Sort-Tile-Recursive order of the bottom-up construction. For P nodes of the given capacity
+ * the points are sorted by their LAT and cut into ceil(sqrt(P)) vertical slabs of ceil(sqrt(P)) nodes each, and the
+ * points of every slab are sorted by their LON, so the consecutive runs of the order pack into nodes that tile the space
+ * in a grid with little overlap. The order is used for the records of the leaves and for the centers of the MBRs of
+ * every upper level.
+ * <p>
+ * Like the HilbertSort, the coordinates are mapped to a grid over their MBR, with the cells of HilbertSort.cell, and
+ * packed with the index of their point into one long, so every sort is a sort of a primitive array. The first sort is
+ * parallel.
+ */
+public class StrSort {
+
+    /**
+     * This method returns the indexes of the given points in the Sort-Tile-Recursive order for nodes of the given
+     * capacity.
+     *
+     * @param lats     the LATs of the points
+     * @param lons     the LONs of the points
+     * @param capacity the number of entries of a node
+     * @return the indexes of the points, in the order of the tiles
+     */
+    public static int[] sort(double[] lats, double[] lons, int capacity) {
+        int noOfPoints = lats.length;
+        int indexBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(noOfPoints - 1));
+        long indexMask = (1L << indexBits) - 1;
+        int cellBits = Long.SIZE - 1 - indexBits;
+        double[] mbr = Geometry.emptyRectangle(2);
+        for (int i = 0; i < noOfPoints; i++) {
+            Geometry.include(mbr, lats[i], lons[i]);
+        }
+        long[] pairs = new long[noOfPoints];
+        Arrays.parallelSetAll(pairs, i -> HilbertSort.cell(lats[i], mbr[0], mbr[2], cellBits) << indexBits | i);
+        Arrays.parallelSort(pairs);
+        int noOfNodes = (int) Math.ceil((double) noOfPoints / capacity);
+        long slabSize = (long) Math.ceil(Math.sqrt(noOfNodes)) * capacity;
+        for (long start = 0; start < noOfPoints; start += slabSize) {
+            int end = (int) Math.min(noOfPoints, start + slabSize);
+            for (int i = (int) start; i < end; i++) {
+                int index = (int) (pairs[i] & indexMask);
+                pairs[i] = HilbertSort.cell(lons[index], mbr[1], mbr[3], cellBits) << indexBits | index;
+            }
+            Arrays.sort(pairs, (int) start, end);
+        }
+        int[] indexes = new int[noOfPoints];
+        for (int i = 0; i < noOfPoints; i++) {
+            indexes[i] = (int) (pairs[i] & indexMask);
+        }
+        return indexes;
+    }
+
+}
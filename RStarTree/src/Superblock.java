@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class reads and writes the superblocks of the data file and the index file. The superblock is the first block
+ * of a file and holds everything that is needed to open the file again, so no state is lost when the program exits.
+ * <p>
+ * The superblock of the index file holds the block size, the number of blocks and the leaf level (at the offsets the
+ * older files used as well), followed by a magic number, the format version, the root block, the number of dimensions,
+ * the head of the free block chain, the number of free blocks, the bounds of the root MBR and, since version 2, the
+ * generation of the index file, which tells if the compressed copy of the CompressedIndex is current. Since version 3 the
+ * generation is followed by the node format flags, which tell if the rectangles of the internal nodes are quantized to
+ * floats and if the leaves are columnar. Older index files store their rectangles as doubles and their leaf entries
+ * one after the other. Since version 4 the flags are followed by the id of the SplitStrategy the index was built with,
+ * older index files are split with the R* split. A free block is marked
+ * with the level -1 and holds the id of the next free block in the place of the parent pointer, so the chain is stored
+ * in the free blocks themselves and survives a restart. The superblock of the data file holds the number of dimensions,
+ * the block size and the number of blocks, followed by the magic number and the format version of the data file.
+ * <p>
+ * Index files that were written before the superblock existed have no magic number. They are opened with the three
+ * header integers they have, an empty free block chain and a root MBR that is calculated from the root node. Data files
+ * before version 2 separated their records with delimiters instead of using slotted pages and cannot be opened, they
+ * have to be built again from the .osm file.
+ */
+public class Superblock {
+    public static final int magic = 0x52535452; // "RSTR"
+    public static final int version = 4;
+    public static final int datafileVersion = 2;
+    public static final int freeBlockLevel = -1;
+    public static final int quantizedMBRsFlag = 1;
+    public static final int columnarLeavesFlag = 2;
+    private static final int magicOffset = 3 * Integer.BYTES;
+    private static final int versionOffset = 4 * Integer.BYTES;
+    private static final int rootOffset = 5 * Integer.BYTES;
+    private static final int dimensionsOffset = 6 * Integer.BYTES;
+    private static final int freeListHeadOffset = 7 * Integer.BYTES;
+    private static final int noOfFreeBlocksOffset = 8 * Integer.BYTES;
+    private static final int rootMBROffset = 9 * Integer.BYTES;
+
+    /**
+     * This method writes the superblock of the index file from the state kept in the FileHandler. It is called
+     * whenever the structure of the tree changes and at the end of every operation that modifies the tree. If an
+     * exception occurs during this process, it is caught and the stack trace is printed.
+     */
+    public static void writeIndexfile() {
+        try {
+            int dimensions = FileHandler.getDimensions();
+            ByteBuffer header = ByteBuffer.allocate(rootMBROffset + 2 * dimensions * Double.BYTES + Long.BYTES + 2 * Integer.BYTES);
+            header.putInt(FileHandler.getBlockSize());
+            header.putInt(FileHandler.getNoOfIndexfileBlocks());
+            header.putInt(FileHandler.getLeafLevel());
+            header.putInt(magic);
+            header.putInt(version);
+            header.putInt(FileHandler.getRoot());
+            header.putInt(dimensions);
+            header.putInt(FileHandler.getFreeListHead());
+            header.putInt(FileHandler.getNoOfFreeBlocks());
+            double[] rootMBR = FileHandler.getRootMBR();
+            for (int i = 0; i < 2 * dimensions; i++) {
+                header.putDouble(rootMBR != null ? rootMBR[i] : 0);
+            }
+            header.putLong(FileHandler.getGeneration());
+            header.putInt((FileHandler.isQuantizedMBRs() ? quantizedMBRsFlag : 0) | (FileHandler.isColumnarLeaves() ? columnarLeavesFlag : 0));
+            header.putInt(FileHandler.getSplitStrategy().getId());
+            BufferPool.write(0, header.array());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method reads the superblock of the index file into the FileHandler. The block size stored in the superblock
+     * replaces the configured one, because the blocks of the file can only be read with the size they were written with.
+     * Files without a superblock are read the way they were written before and their root MBR is calculated from the
+     * root node.
+     *
+     * @throws IOException if the index file cannot be read
+     */
+    public static void readIndexfile() throws IOException {
+        int dimensions = FileHandler.getDimensions();
+        byte[] bytes = new byte[rootMBROffset + 2 * dimensions * Double.BYTES + Long.BYTES + 2 * Integer.BYTES];
+        try (RandomAccessFile file = new RandomAccessFile(FileHandler.getIndexfilePath(), "r")) {
+            file.readFully(bytes, 0, (int) Math.min(bytes.length, file.length()));
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        double[] rootMBR = new double[2 * dimensions];
+        if (header.getInt(magicOffset) == magic) {
+            if (header.getInt(versionOffset) > version) {
+                throw new IOException("The index file has the unsupported version " + header.getInt(versionOffset));
+            }
+            if (header.getInt(dimensionsOffset) != dimensions) {
+                throw new IOException("The index file has " + header.getInt(dimensionsOffset) + " dimensions, the data file has " + dimensions);
+            }
+            if (header.getInt(0) != FileHandler.getBlockSize()) FileHandler.setBlockSize(header.getInt(0));
+            FileHandler.setNoOfIndexfileBlocks(header.getInt(Integer.BYTES));
+            FileHandler.setLeafLevel(header.getInt(2 * Integer.BYTES));
+            FileHandler.setRoot(header.getInt(rootOffset));
+            FileHandler.setFreeList(header.getInt(freeListHeadOffset), header.getInt(noOfFreeBlocksOffset));
+            for (int i = 0; i < rootMBR.length; i++) {
+                rootMBR[i] = header.getDouble(rootMBROffset + i * Double.BYTES);
+            }
+            FileHandler.setRootMBR(rootMBR);
+            FileHandler.setGeneration(header.getInt(versionOffset) >= 2 ? header.getLong(rootMBROffset + rootMBR.length * Double.BYTES) : 0);
+            int flags = header.getInt(versionOffset) >= 3 ? header.getInt(rootMBROffset + rootMBR.length * Double.BYTES + Long.BYTES) : 0;
+            FileHandler.setQuantizedMBRs((flags & quantizedMBRsFlag) != 0);
+            FileHandler.setColumnarLeaves((flags & columnarLeavesFlag) != 0);
+            int splitStrategy = header.getInt(versionOffset) >= 4 ? header.getInt(rootMBROffset + rootMBR.length * Double.BYTES + Long.BYTES + Integer.BYTES) : SplitStrategy.rStarId;
+            FileHandler.setSplitStrategy(SplitStrategy.byId(splitStrategy));
+        } else {
+            FileHandler.setNoOfIndexfileBlocks(header.getInt(Integer.BYTES));
+            FileHandler.setLeafLevel(header.getInt(2 * Integer.BYTES));
+            FileHandler.setRoot(FileHandler.getNoOfIndexfileBlocks() >= 1 ? 1 : -1);
+            FileHandler.setFreeList(0, 0);
+            FileHandler.setGeneration(0);
+            FileHandler.setQuantizedMBRs(false);
+            FileHandler.setColumnarLeaves(false);
+            FileHandler.setSplitStrategy(new RStarSplit());
+            FileHandler.setRootMBR(rootMBR);
+            if (FileHandler.getNoOfIndexfileBlocks() >= 1) calculateRootMBR(rootMBR);
+        }
+    }
+
+    /**
+     * This method writes the superblock of the data file to the given data file.
+     *
+     * @param file              the data file
+     * @param dimensions        the number of dimensions
+     * @param blockSize         the block size of the data file
+     * @param noOfDatafileBlocks the number of blocks of the data file
+     * @throws IOException if the superblock cannot be written
+     */
+    public static void writeDatafile(RandomAccessFile file, int dimensions, int blockSize, int noOfDatafileBlocks) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(versionOffset + Integer.BYTES);
+        header.putInt(dimensions);
+        header.putInt(blockSize);
+        header.putInt(noOfDatafileBlocks);
+        header.putInt(magic);
+        header.putInt(datafileVersion);
+        file.seek(0);
+        file.write(header.array());
+    }
+
+    /**
+     * This method reads the superblock of the data file and returns its header integers.
+     *
+     * @param path the path of the data file
+     * @return the number of dimensions, the block size and the number of blocks of the data file
+     * @throws IOException if the data file cannot be read or has an unsupported version
+     */
+    public static int[] readDatafile(String path) throws IOException {
+        byte[] bytes = new byte[versionOffset + Integer.BYTES];
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            file.readFully(bytes, 0, (int) Math.min(bytes.length, file.length()));
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        int fileVersion = header.getInt(magicOffset) == magic ? header.getInt(versionOffset) : 0;
+        if (fileVersion != datafileVersion) {
+            throw new IOException("The data file has the unsupported version " + fileVersion + ", build the files again");
+        }
+        return new int[]{header.getInt(0), header.getInt(Integer.BYTES), header.getInt(2 * Integer.BYTES)};
+    }
+
+    /**
+     * This method calculates the root MBR of a file without a superblock from the entries of the root node.
+     *
+     * @param rootMBR the array that receives the root MBR
+     * @throws IOException if the root node cannot be read
+     */
+    private static void calculateRootMBR(double[] rootMBR) throws IOException {
+        NodeView node = new NodeView();
+        try {
+            node.pin(1);
+            double[] rectangle = new double[rootMBR.length];
+            System.arraycopy(Geometry.emptyRectangle(rootMBR.length / 2), 0, rootMBR, 0, rootMBR.length);
+            for (int i = 0; i < node.entryCount(); i++) {
+                if (node.level() == FileHandler.getLeafLevel()) {
+                    Geometry.include(rootMBR, node.lat(i), node.lon(i));
+                } else {
+                    Geometry.include(rootMBR, node.rectangle(i, rectangle));
+                }
+            }
+            if (node.entryCount() == 0) Arrays.fill(rootMBR, 0);
+        } finally {
+            node.release();
+        }
+    }
+
+}
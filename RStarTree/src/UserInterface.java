@@ -1,3 +1,4 @@
+import java.io.File;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.Scanner;
@@ -5,6 +6,9 @@ import java.util.Scanner;
 public class UserInterface {
     private final Scanner scanner;
     private int dimensions = 2;
+    private boolean quantizedMBRs = false;
+    private boolean columnarLeaves = false;
+    private SplitStrategy splitStrategy = new RStarSplit();
     private String userInput = "";
     private boolean isBuilt = false;
     private boolean isReused = false;
@@ -50,6 +54,60 @@ public class UserInterface {
         FileHandler.setDimensions(dimensions);
     }
 
+    private void getGroupCommitSize() {
+        int size = -1;
+        do {
+            try {
+                System.out.print("\nInsert the number of inserts and deletes per write-ahead log sync (currently " + WriteAheadLog.getGroupCommitSize() + "): ");
+                size = scanner.nextInt();
+                if (size < 1) {
+                    invalidArgs("groupCommit");
+                }
+            } catch (InputMismatchException e) {
+                invalidArgs("groupCommit");
+                scanner.nextLine();
+            }
+        } while (size < 1);
+        System.out.println();
+        scanner.nextLine();
+        WriteAheadLog.setGroupCommitSize(size);
+    }
+
+    private void getOverlapCandidates() {
+        int candidates = -1;
+        do {
+            try {
+                System.out.print("\nInsert the number of entries with the least area enlargement whose overlap is compared (currently " + ChooseSubtree.getOverlapCandidates() + "): ");
+                candidates = scanner.nextInt();
+                if (candidates < 1) {
+                    invalidArgs("overlapCandidates");
+                }
+            } catch (InputMismatchException e) {
+                invalidArgs("overlapCandidates");
+                scanner.nextLine();
+            }
+        } while (candidates < 1);
+        System.out.println();
+        scanner.nextLine();
+        ChooseSubtree.setOverlapCandidates(candidates);
+    }
+
+    private void getSplitStrategy() {
+        String options = "\nOptions (type number): 1) Linear, 2) Quadratic, 3) R*, 4) Revised R* (currently " + splitStrategy.getName() + "): ";
+        String input;
+        do {
+            System.out.print(options);
+            input = scanner.nextLine().trim();
+        } while (!input.equals("1") && !input.equals("2") && !input.equals("3") && !input.equals("4"));
+        splitStrategy = switch (input) {
+            case "1" -> SplitStrategy.byId(SplitStrategy.linearId);
+            case "2" -> SplitStrategy.byId(SplitStrategy.quadraticId);
+            case "4" -> SplitStrategy.byId(SplitStrategy.revisedRStarId);
+            default -> SplitStrategy.byId(SplitStrategy.rStarId);
+        };
+        System.out.println();
+    }
+
     Rectangle getRangeQueryRectangle() {
         System.out.println("Insert the rectangle coordinates (they should be only positive and not overlap in the same " + "axis): ");
         ArrayList<Double> coordinates = new ArrayList<>();
@@ -84,7 +142,7 @@ public class UserInterface {
             }
         } while (coordinates.size() != 4);
         scanner.nextLine();
-        return new Rectangle(coordinates);
+        return new Rectangle(coordinates.stream().mapToDouble(Double::doubleValue).toArray());
     }
 
     public int getK() {
@@ -101,7 +159,7 @@ public class UserInterface {
         return k;
     }
 
-    public ArrayList<Double> getPointFromUser() {
+    public double[] getPointFromUser() {
         System.out.println("Insert the coordinates of the point (coordinates should be positive Double/Float or Integers) ");
         ArrayList<Double> coordinates = new ArrayList<>();
         do {
@@ -123,7 +181,7 @@ public class UserInterface {
             }
         } while (coordinates.size() < dimensions);
         scanner.nextLine();
-        return coordinates;
+        return coordinates.stream().mapToDouble(Double::doubleValue).toArray();
     }
 
     private void invalidArgs(String desc) {
@@ -136,6 +194,8 @@ public class UserInterface {
             case "k" -> System.out.println("K should be a positive integer.");
             case "dimensions" -> System.out.println("Dimensions should be a positive Integer greater or equal to 2.");
             case "nodeId" -> System.out.println("Node ID should be a positive long Integer");
+            case "groupCommit" -> System.out.println("The group commit size should be a positive Integer.");
+            case "overlapCandidates" -> System.out.println("The number of overlap candidates should be a positive Integer.");
         }
     }
 
@@ -164,17 +224,47 @@ public class UserInterface {
     }
 
     private void settingsMenu() {
-        String text = "The default setting of the R* tree are 2 Dimensions. \nType (option or number): " + "\n1) Dimensions,\n2) ESC\n" + "to change their number (of dimensions) or return to the main menu respectively.";
+        String text = "The default setting of the R* tree are 2 Dimensions. \nType (option or number): " + "\n1) Dimensions,\n2) Memory-mapped,\n3) Group commit,\n4) Compressed,\n5) Quantized MBRs,\n6) Columnar leaves,\n7) Overlap candidates,\n8) Split strategy,\n9) ESC\n" + "to change their number (of dimensions), switch the memory-mapped reads of the index file on or off, change the number of inserts and deletes that share one write-ahead log sync, switch the reads of the compressed copy of the index file on or off, switch the float rectangles of the internal nodes of the next built tree on or off, switch the columnar leaves of the next built tree on or off, change the number of entries with the least area enlargement whose overlap an insert compares above the leaves, choose the algorithm that splits the overflowing nodes of the next built tree or return to the main menu respectively.";
         System.out.println(text);
         userInput = "";
         do {
             if (userInput.equals("Dimensions") || userInput.equals("1")) {
                 getDimensions();
                 System.out.println(text);
+            } else if (userInput.equals("Memory-mapped") || userInput.equals("2")) {
+                FileHandler.setMemoryMapped(!FileHandler.isMemoryMapped());
+                System.out.println("Memory-mapped reads of the index file are " + (FileHandler.isMemoryMapped() ? "on" : "off") + ".\n");
+                System.out.println(text);
+            } else if (userInput.equals("Group commit") || userInput.equals("3")) {
+                getGroupCommitSize();
+                System.out.println(text);
+            } else if (userInput.equals("Compressed") || userInput.equals("4")) {
+                FileHandler.setCompressed(!FileHandler.isCompressed());
+                System.out.println("Compressed reads of the index file are " + (FileHandler.isCompressed() ? "on" : "off") + ".");
+                if (CompressedIndex.size() > 0) {
+                    System.out.println("The compressed copy holds " + CompressedIndex.size() + " bytes, the index file " + new File(FileHandler.getIndexfilePath()).length() + " bytes.");
+                }
+                System.out.println();
+                System.out.println(text);
+            } else if (userInput.equals("Quantized MBRs") || userInput.equals("5")) {
+                quantizedMBRs = !quantizedMBRs;
+                System.out.println("The internal nodes of the next built tree store their rectangles as " + (quantizedMBRs ? "floats" : "doubles") + ".\n");
+                System.out.println(text);
+            } else if (userInput.equals("Columnar leaves") || userInput.equals("6")) {
+                columnarLeaves = !columnarLeaves;
+                System.out.println("The leaves of the next built tree store their entries " + (columnarLeaves ? "as columns of LATs, LONs and record ids" : "one after the other") + ".\n");
+                System.out.println(text);
+            } else if (userInput.equals("Overlap candidates") || userInput.equals("7")) {
+                getOverlapCandidates();
+                System.out.println(text);
+            } else if (userInput.equals("Split strategy") || userInput.equals("8")) {
+                getSplitStrategy();
+                System.out.println("The overflowing nodes of the next built tree are split with the " + splitStrategy.getName() + " split.\n");
+                System.out.println(text);
             }
             System.out.print("Input: ");
             userInput = scanner.nextLine();
-        } while ((!userInput.equals("ESC") && !userInput.equals("2")));
+        } while ((!userInput.equals("ESC") && !userInput.equals("9")));
         System.out.println();
         userInput = "";
         menu();
@@ -192,62 +282,68 @@ public class UserInterface {
     }
 
     private void buildMenu() {
-        System.out.println("Options (type option or number):\n1) Point by point,\n2) Bottom-up,\n3) ESC\n" + "to build the tree inserting the entries one by one, using the bottom-up approach or return to the " + "Start menu respectively");
+        System.out.println("Options (type option or number):\n1) Point by point,\n2) Bottom-up,\n3) STR,\n4) External bottom-up,\n5) ESC\n" + "to build the tree inserting the entries one by one, using the bottom-up approach along the Hilbert curve, using the " + "bottom-up approach with Sort-Tile-Recursive packing, using the bottom-up approach with an external sort for data " + "sets larger than the memory or return to the Start menu respectively");
         userInput = "";
         do {
             System.out.print("Input: ");
             userInput = scanner.nextLine();
-        } while (!userInput.equals("1") && !userInput.equals("2") && !userInput.equals("3") && !userInput.equals("Point by point") && !userInput.equals("Bottom-up") && !userInput.equals("ESC"));
+        } while (!userInput.equals("1") && !userInput.equals("2") && !userInput.equals("3") && !userInput.equals("4") && !userInput.equals("5") && !userInput.equals("Point by point") && !userInput.equals("Bottom-up") && !userInput.equals("STR") && !userInput.equals("External bottom-up") && !userInput.equals("ESC"));
         System.out.println();
         if (userInput.equals("1") || userInput.equals("Point by point")) {
-            System.out.println("Parsing data...");
-            long start = System.currentTimeMillis();
-            FileHandler.createDataFile(dimensions);
-            System.out.println("Tree is building...");
-            FileHandler.createIndexFile(true);
-            FileHandler.readIndexFile();
-            long end = System.currentTimeMillis();
-            double elapsedTime = (double) (end - start) / 1000;
-            System.out.println("Total elapsed time :" + elapsedTime + " seconds\n");
-            System.out.println("Tree structure is located in treeOutput.txt\n");
-            isBuilt = true;
-            treeOptionsMenu();
-        } else if (userInput.equals("2") || userInput.equals("Bottom-up")) {
-            System.out.println("Parsing data...");
-            long start = System.currentTimeMillis();
-            FileHandler.createDataFile(dimensions);
-            System.out.println("Tree is building...");
-            FileHandler.createIndexFile(false);
-            BottomUp bottomUp = new BottomUp();
-            bottomUp.construct();
-            FileHandler.readIndexFile();
-            long end = System.currentTimeMillis();
-            double elapsedTime = (double) (end - start) / 1000;
-            System.out.println("Total elapsed time :" + elapsedTime + " seconds\n");
-            System.out.println("Tree structure is located in treeOutput.txt\n");
-            isBuilt = true;
-            treeOptionsMenu();
+            buildTree(() -> FileHandler.createIndexFile(true));
+        } else if (userInput.equals("2") || userInput.equals("Bottom-up") || userInput.equals("3") || userInput.equals("STR")) {
+            boolean str = userInput.equals("3") || userInput.equals("STR");
+            buildTree(() -> {
+                FileHandler.createIndexFile(false);
+                new BottomUp(str).construct();
+            });
+        } else if (userInput.equals("4") || userInput.equals("External bottom-up")) {
+            buildTree(() -> {
+                FileHandler.createIndexFile(false);
+                ExternalBulkLoad.construct();
+            });
         } else {
             startMenu();
         }
     }
 
+    private void buildTree(Runnable construction) {
+        System.out.println("Parsing data...");
+        long start = System.currentTimeMillis();
+        FileHandler.createDataFile(dimensions);
+        System.out.println("Tree is building...");
+        FileHandler.setQuantizedMBRs(quantizedMBRs);
+        FileHandler.setColumnarLeaves(columnarLeaves);
+        FileHandler.setSplitStrategy(splitStrategy);
+        construction.run();
+        CompressedIndex.update();
+        FileHandler.readIndexFile();
+        long end = System.currentTimeMillis();
+        double elapsedTime = (double) (end - start) / 1000;
+        System.out.println("Total elapsed time :" + elapsedTime + " seconds\n");
+        System.out.println("Tree structure is located in treeOutput.txt\n");
+        isBuilt = true;
+        treeOptionsMenu();
+    }
+
     private void treeOptionsMenu() {
-        System.out.println("Options (type option or number):\n1) Insert,\n2) Delete,\n3) Range Query,\n4) K-nn Query,\n" + "5) Skyline query,\n6) Linear search Range Query, \n7) Linear search K-nn Query, \n8) ESC");
+        System.out.println("Options (type option or number):\n1) Insert,\n2) Delete,\n3) Range Query,\n4) K-nn Query,\n" + "5) Skyline query,\n6) Linear search Range Query, \n7) Linear search K-nn Query, \n8) Bulk insert, \n9) ESC");
         userInput = "";
         do {
             System.out.print("Input: ");
             userInput = scanner.nextLine();
-        } while (!userInput.equals("1") && !userInput.equals("2") && !userInput.equals("3") && !userInput.equals("4") && !userInput.equals("5") && !userInput.equals("6") && !userInput.equals("7") && !userInput.equals("8") && !userInput.equals("Insert") && !userInput.equals("Delete") && !userInput.equals("Range Query") && !userInput.equals("K-nn Query") && !userInput.equals("Skyline Query") && !userInput.equals("Linear search Range Query") && !userInput.equals("Linear search K-nn Query") && !userInput.equals("ESC"));
+        } while (!userInput.equals("1") && !userInput.equals("2") && !userInput.equals("3") && !userInput.equals("4") && !userInput.equals("5") && !userInput.equals("6") && !userInput.equals("7") && !userInput.equals("8") && !userInput.equals("9") && !userInput.equals("Insert") && !userInput.equals("Delete") && !userInput.equals("Range Query") && !userInput.equals("K-nn Query") && !userInput.equals("Skyline Query") && !userInput.equals("Linear search Range Query") && !userInput.equals("Linear search K-nn Query") && !userInput.equals("Bulk insert") && !userInput.equals("ESC"));
         System.out.println();
         switch (userInput) {
             case "1", "Insert" -> {
                 insertMenu();
+                CompressedIndex.update();
                 FileHandler.readIndexFile();
             }
             case "2", "Delete" -> {
-                ArrayList<Double> coords = getPointFromUser();
-                Delete.delete(coords.get(0), coords.get(1));
+                double[] coords = getPointFromUser();
+                Delete.delete(coords[0], coords[1]);
+                CompressedIndex.update();
                 FileHandler.readIndexFile();
             }
             case "3", "Range Query" -> {
@@ -270,6 +366,11 @@ public class UserInterface {
                 LinearSearchKnnQuery knnQuery = new LinearSearchKnnQuery(getK(), getPointFromUser());
                 knnQuery.print();
             }
+            case "8", "Bulk insert" -> {
+                bulkInsertMenu();
+                CompressedIndex.update();
+                FileHandler.readIndexFile();
+            }
             default -> startMenu();
         }
         System.out.print("\nPress ENTER to continue");
@@ -278,7 +379,7 @@ public class UserInterface {
     }
 
     private void insertMenu() {
-        ArrayList<Double> coords = getPointFromUser();
+        double[] coords = getPointFromUser();
         long nodeId = 0;
         String name;
         System.out.print("Insert the new node Id (SEE FROM treeOutput.txt): ");
@@ -300,10 +401,30 @@ public class UserInterface {
         name = scanner.nextLine();
         Insert.datafileRecordInsert(new Record(coords, nodeId, name));
         if (name.isEmpty()) {
-            System.out.println("The node with LAT: " + coords.get(0) + ", LON: " + coords.get(1) + " and ID: " + nodeId + " was successfully inserted.");
+            System.out.println("The node with LAT: " + coords[0] + ", LON: " + coords[1] + " and ID: " + nodeId + " was successfully inserted.");
         } else {
-            System.out.println("The node with LAT: " + coords.get(0) + ", LON: " + coords.get(1) + " ,ID: " + nodeId + " and Name: " + name + " was successfully inserted.");
+            System.out.println("The node with LAT: " + coords[0] + ", LON: " + coords[1] + " ,ID: " + nodeId + " and Name: " + name + " was successfully inserted.");
+        }
+    }
+
+    private void bulkInsertMenu() {
+        System.out.print("Insert the path of the .osm or .pbf file with the new nodes: ");
+        String path = scanner.nextLine();
+        if (!new File(path).isFile()) {
+            System.out.println("The file " + path + " does not exist.");
+            return;
+        }
+        ArrayList<Record> batch = new ArrayList<>();
+        try {
+            FileHandler.readOsmfile(path, batch::add);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
         }
+        long start = System.currentTimeMillis();
+        BulkInsert.insert(batch);
+        double elapsedTime = (double) (System.currentTimeMillis() - start) / 1000;
+        System.out.println(batch.size() + " nodes were inserted in " + elapsedTime + " seconds.");
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * This class implements the redo write-ahead log of the index file. Every insert or delete of the tree runs as one
+ * transaction between begin and commit. While a transaction runs, the BufferPool does not write the blocks to the index
+ * file, it keeps them as dirty pages and passes every write to the log. On commit the writes of the transaction are
+ * appended to the log file as one entry, and only after the log has been forced to the disk are the dirty pages written
+ * to the index file. So the index file never holds a write whose transaction is not in the log.
+ * <p>
+ * An entry holds a sequence number, the number of writes, the length of the writes and then every write as its byte
+ * position in the index file, its length and its bytes, followed by a CRC32 checksum of the entry. When the files are
+ * opened again, recover applies every complete entry of the log to the index file and ignores a torn entry at the end,
+ * so a split or a delete that was interrupted is either applied as a whole or not at all.
+ * <p>
+ * With group commit several transactions share one force of the log. The dirty pages of the transactions of a group
+ * are kept in the BufferPool until the group is complete or sync is called, so the ingest throughput grows with the size
+ * of the group, at the cost of losing the last transactions of an unfinished group in a crash. Once the log grows past
+ * the checkpoint size, the index file is forced to the disk and the log is emptied. The same checkpoint is taken when
+ * the program exits outside a transaction, so a clean restart finds an empty log and replays nothing.
+ */
+public class WriteAheadLog {
+    private static final String WalPath = "indexfile.wal";
+    private static final int entryHeaderSize = Long.BYTES + 2 * Integer.BYTES;
+    private static final int writeHeaderSize = Long.BYTES + Integer.BYTES;
+    private static final long checkpointSize = 16L * 1024 * 1024; // 16MB
+    private static final ArrayList<Long> positions = new ArrayList<>();
+    private static final ArrayList<byte[]> writes = new ArrayList<>();
+    private static int depth = 0;
+    private static int writesLength = 0;
+    private static long nextSequenceNumber = 0;
+    private static int groupCommitSize = 1;
+    private static int pendingCommits = 0;
+    private static FileChannel channel = null;
+
+    /**
+     * This method starts a transaction. Transactions can be nested, for example by the reinsertion of a delete, in
+     * which case only the outermost commit ends the transaction.
+     */
+    public static void begin() {
+        depth++;
+    }
+
+    /**
+     * This method ends the transaction. If it is the outermost one, its writes are appended to the log as one entry.
+     * The log is forced and the dirty pages are written to the index file once the group of the transaction is
+     * complete. If an exception occurs during this process, it is caught and the stack trace is printed.
+     */
+    public static void commit() {
+        if (depth == 0 || --depth > 0) return;
+        try {
+            if (!writes.isEmpty()) {
+                appendEntry();
+                pendingCommits++;
+            }
+            if (pendingCommits >= groupCommitSize) sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method checks if a transaction is running, in which case the writes of the BufferPool are logged.
+     *
+     * @return true if a transaction is running
+     */
+    public static boolean isActive() {
+        return depth > 0;
+    }
+
+    /**
+     * This method adds a write of the index file to the running transaction.
+     *
+     * @param position the byte position of the write in the index file
+     * @param data     the bytes of the write
+     */
+    public static void log(long position, byte[] data) {
+        positions.add(position);
+        writes.add(data.clone());
+        writesLength += writeHeaderSize + data.length;
+    }
+
+    /**
+     * This method forces the committed entries of the log to the disk and then writes the dirty pages of the BufferPool
+     * to the index file. If the log has grown past the checkpoint size, a checkpoint is taken. If an exception occurs
+     * during this process, it is caught and the stack trace is printed.
+     */
+    public static void sync() {
+        try {
+            if (pendingCommits > 0) {
+                getChannel().force(false);
+                pendingCommits = 0;
+            }
+            BufferPool.flushDirtyPages();
+            if (channel != null && channel.size() > checkpointSize) checkpoint();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method takes a checkpoint. The committed transactions are synced, the index file is forced to the disk and
+     * the log is emptied, because every entry of it is in the index file from now on.
+     *
+     * @throws IOException if the log or the index file cannot be forced
+     */
+    public static void checkpoint() throws IOException {
+        if (pendingCommits > 0) {
+            getChannel().force(false);
+            pendingCommits = 0;
+        }
+        BufferPool.flushDirtyPages();
+        BufferPool.force();
+        getChannel().truncate(0);
+        getChannel().force(true);
+    }
+
+    /**
+     * This method is called when the program exits. Outside a transaction a checkpoint is taken, so the index file holds
+     * every committed transaction and the log is empty. If a transaction still runs, its dirty pages must not reach the
+     * index file, so only the log is forced and the committed transactions of the unfinished group are replayed by the
+     * recovery on the next start. If an exception occurs during this process, it is caught and the stack trace is
+     * printed.
+     */
+    public static void close() {
+        try {
+            if (isActive()) {
+                if (pendingCommits > 0) getChannel().force(false);
+            } else if (channel != null) {
+                checkpoint();
+            } else {
+                BufferPool.flushDirtyPages();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method applies the complete entries of the log to the index file. An entry that is cut short or has a wrong
+     * checksum ends the recovery, because it belongs to a transaction whose commit was interrupted. The index file is
+     * forced to the disk and the log is emptied afterwards. It has to be called before the superblock of the index file
+     * is read, while the BufferPool is empty.
+     *
+     * @return the number of transactions that were applied
+     * @throws IOException if the log cannot be read or the index file cannot be written
+     */
+    public static int recover() throws IOException {
+        reset();
+        Path path = Path.of(WalPath);
+        if (!Files.exists(path) || Files.size(path) == 0) return 0;
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+        int noOfTransactions = 0;
+        try (RandomAccessFile indexfile = new RandomAccessFile(FileHandler.getIndexfilePath(), "rw")) {
+            while (log.remaining() >= entryHeaderSize + Integer.BYTES) {
+                int start = log.position();
+                long sequenceNumber = log.getLong();
+                int noOfWrites = log.getInt();
+                int length = log.getInt();
+                if (noOfWrites < 0 || length < 0 || log.remaining() < length + Integer.BYTES) break;
+                CRC32 crc = new CRC32();
+                crc.update(log.array(), start, entryHeaderSize + length);
+                if ((int) crc.getValue() != log.getInt(log.position() + length)) break;
+                for (int i = 0; i < noOfWrites; i++) {
+                    long position = log.getLong();
+                    byte[] data = new byte[log.getInt()];
+                    log.get(data);
+                    indexfile.seek(position);
+                    indexfile.write(data);
+                }
+                log.getInt();
+                nextSequenceNumber = sequenceNumber + 1;
+                noOfTransactions++;
+            }
+            indexfile.getFD().sync();
+        }
+        getChannel().truncate(0);
+        getChannel().force(true);
+        return noOfTransactions;
+    }
+
+    /**
+     * This method empties the log for a new index file. The transactions of the old index file are dropped.
+     *
+     * @throws IOException if the log cannot be truncated
+     */
+    public static void create() throws IOException {
+        reset();
+        getChannel().truncate(0);
+        nextSequenceNumber = 0;
+    }
+
+    /**
+     * This method drops the running transaction and the pending commits and closes the log file.
+     */
+    public static void reset() {
+        positions.clear();
+        writes.clear();
+        writesLength = 0;
+        depth = 0;
+        pendingCommits = 0;
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * This method sets the number of transactions that share one force of the log. The committed transactions of the
+     * current group are synced first.
+     *
+     * @param size the number of transactions of a group, at least 1
+     */
+    public static void setGroupCommitSize(int size) {
+        sync();
+        groupCommitSize = Math.max(1, size);
+    }
+
+    public static int getGroupCommitSize() {
+        return groupCommitSize;
+    }
+
+    public static boolean hasPendingCommits() {
+        return pendingCommits > 0;
+    }
+
+    /**
+     * This method appends the writes of the running transaction to the log as one entry with its checksum.
+     *
+     * @throws IOException if the entry cannot be written to the log
+     */
+    private static void appendEntry() throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(entryHeaderSize + writesLength + Integer.BYTES);
+        entry.putLong(nextSequenceNumber++);
+        entry.putInt(writes.size());
+        entry.putInt(writesLength);
+        for (int i = 0; i < writes.size(); i++) {
+            entry.putLong(positions.get(i));
+            entry.putInt(writes.get(i).length);
+            entry.put(writes.get(i));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc.getValue());
+        entry.flip();
+        FileChannel log = getChannel();
+        log.position(log.size());
+        while (entry.hasRemaining()) log.write(entry);
+        positions.clear();
+        writes.clear();
+        writesLength = 0;
+    }
+
+    private static FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(Path.of(WalPath), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+}
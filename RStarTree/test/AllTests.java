@@ -0,0 +1,52 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * This class runs every test in its own JVM and its own temporary directory, because the files of the index have
+ * fixed names in the working directory and the state of the FileHandler is static. The tests are compiled with the
+ * sources, whose string literals are UTF-8, and run from the directory of the classes:
+ * <pre>
+ * javac -encoding UTF-8 -d classes RStarTree/src/*.java RStarTree/test/*.java
+ * java -cp classes AllTests
+ * </pre>
+ * The exit code is the number of tests that failed.
+ */
+public class AllTests {
+    private static final String[] tests = {
+            "BufferPoolTest",
+            "WriteAheadLogTest",
+            "SuperblockTest",
+            "DatafilePageTest",
+            "DeleteTest",
+            "RStarSplitTest",
+            "SplitDistributionsTest",
+            "SplitStrategyTest"
+    };
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = new File(System.getProperty("java.class.path")).getAbsolutePath();
+        int noOfFailures = 0;
+        for (String test : args.length > 0 ? args : tests) {
+            Path directory = Files.createTempDirectory("rstartree-" + test);
+            try {
+                Process process = new ProcessBuilder(java, "-cp", classPath, test).directory(directory.toFile()).inheritIO().start();
+                if (process.waitFor() != 0) {
+                    System.out.println(test + " FAILED");
+                    noOfFailures++;
+                }
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+        System.out.println(noOfFailures == 0 ? "All tests passed" : noOfFailures + " tests failed");
+        System.exit(noOfFailures);
+    }
+
+}
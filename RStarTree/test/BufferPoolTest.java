@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class tests that the dirty pages of the BufferPool stay inside its memory budget. A pool of eight frames takes
+ * whole and partial writes of many more blocks, so dirty frames are evicted and written back, and every block has to
+ * read back with its last write, from the pool and from the index file. Inside a transaction the dirty frames must not
+ * be evicted, so the index file may not change before the commit, however many other blocks are read.
+ */
+public class BufferPoolTest {
+    private static final Path IndexfilePath = Path.of(FileHandler.getIndexfilePath());
+    private static final int blockSize = 512;
+    private static final int noOfFrames = 8;
+    private static final int noOfBlocks = 64;
+
+    public static void main(String[] args) throws IOException {
+        FileHandler.setBlockSize(blockSize);
+        BufferPool.setMemoryBudget((long) noOfFrames * blockSize);
+        Random random = new Random(3);
+        byte[][] expected = new byte[noOfBlocks][blockSize];
+        for (int i = 0; i < 2000; i++) {
+            int blockId = random.nextInt(noOfBlocks);
+            if (i % 3 == 0) {
+                random.nextBytes(expected[blockId]);
+                BufferPool.writeBlock(blockId, expected[blockId]);
+            } else {
+                byte[] data = new byte[8];
+                random.nextBytes(data);
+                int offset = random.nextInt(blockSize - data.length);
+                System.arraycopy(data, 0, expected[blockId], offset, data.length);
+                BufferPool.write((long) blockId * blockSize + offset, data);
+            }
+            TestSupport.check(noOfDirtyBlocks() <= noOfFrames, "dirty blocks after write " + i + ": " + noOfDirtyBlocks());
+        }
+        checkBlocks(expected, "the writes");
+        BufferPool.flush();
+        checkIndexfile(expected, "the flush");
+
+        WriteAheadLog.setGroupCommitSize(1);
+        byte[] beforeCommit = Files.readAllBytes(IndexfilePath);
+        WriteAheadLog.begin();
+        for (int blockId = 0; blockId < noOfFrames / 2; blockId++) {
+            random.nextBytes(expected[blockId]);
+            BufferPool.writeBlock(blockId, expected[blockId]);
+        }
+        for (int blockId = noOfFrames; blockId < noOfBlocks; blockId++) {
+            BufferPool.readBlock(blockId);
+        }
+        for (int blockId = 0; blockId < noOfFrames / 2; blockId++) {
+            TestSupport.check(BufferPool.isDirty(blockId), "block " + blockId + " of the transaction is still dirty");
+        }
+        TestSupport.check(Arrays.equals(beforeCommit, Files.readAllBytes(IndexfilePath)), "the index file does not change before the commit");
+        WriteAheadLog.commit();
+        checkIndexfile(expected, "the commit");
+        checkBlocks(expected, "the commit");
+        System.out.println("BufferPoolTest passed");
+    }
+
+    private static int noOfDirtyBlocks() {
+        int noOfDirtyBlocks = 0;
+        for (int blockId = 0; blockId < noOfBlocks; blockId++) {
+            if (BufferPool.isDirty(blockId)) noOfDirtyBlocks++;
+        }
+        return noOfDirtyBlocks;
+    }
+
+    private static void checkBlocks(byte[][] expected, String after) throws IOException {
+        for (int blockId = 0; blockId < noOfBlocks; blockId++) {
+            TestSupport.check(Arrays.equals(expected[blockId], BufferPool.readBlock(blockId)), "block " + blockId + " from the pool after " + after);
+        }
+    }
+
+    private static void checkIndexfile(byte[][] expected, String after) throws IOException {
+        byte[] indexfile = Arrays.copyOf(Files.readAllBytes(IndexfilePath), noOfBlocks * blockSize);
+        for (int blockId = 0; blockId < noOfBlocks; blockId++) {
+            byte[] block = Arrays.copyOfRange(indexfile, blockId * blockSize, (blockId + 1) * blockSize);
+            TestSupport.check(Arrays.equals(expected[blockId], block), "block " + blockId + " in the index file after " + after);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * This class tests the slotted pages of the data file. A page is filled until a record no longer fits and read back
+ * from a copy of its bytes, and a data file built from an .osm file is read back record by record, by a scan of its
+ * pages and by the locations of the records.
+ */
+public class DatafilePageTest {
+    private static final int pageSize = 256;
+
+    public static void main(String[] args) throws IOException {
+        FileHandler.setDimensions(2);
+        checkFill();
+        checkNames();
+        checkDatafile();
+        System.out.println("DatafilePageTest passed");
+    }
+
+    /**
+     * This method fills an empty page with records without a name and checks that fits agrees with the free space up
+     * to the last byte.
+     */
+    private static void checkFill() {
+        DatafilePage page = new DatafilePage().wrap(new byte[pageSize]).init();
+        TestSupport.checkEquals(0, page.noOfSlots(), "slots of an empty page");
+        TestSupport.checkEquals(pageSize - DatafilePage.headerSize, page.freeSpace(), "free space of an empty page");
+        int recordSize = DatafilePage.recordSize(2, 0) + DatafilePage.slotSize;
+        int noOfRecords = 0;
+        while (page.fits(0)) {
+            TestSupport.checkEquals(noOfRecords, page.add(noOfRecords, new double[]{noOfRecords, -noOfRecords}, null), "slot of the record");
+            noOfRecords++;
+        }
+        TestSupport.checkEquals((pageSize - DatafilePage.headerSize) / recordSize, noOfRecords, "records of a full page");
+        TestSupport.checkEquals(pageSize - DatafilePage.headerSize - noOfRecords * recordSize, page.freeSpace(), "free space of a full page");
+        for (int slot = 0; slot < noOfRecords; slot++) {
+            TestSupport.checkEquals((long) slot, page.nodeId(slot), "node id of slot " + slot);
+            TestSupport.checkEquals((double) slot, page.coordinate(slot, 0), "LAT of slot " + slot);
+            TestSupport.checkEquals((double) -slot, page.coordinate(slot, 1), "LON of slot " + slot);
+            TestSupport.checkEquals(null, page.name(slot), "name of slot " + slot);
+        }
+        // a name that takes exactly the free space fits, one byte more does not
+        page = new DatafilePage().wrap(new byte[pageSize]).init();
+        int nameLength = page.freeSpace() - recordSize;
+        TestSupport.check(page.fits(nameLength), "a record of the exact free space fits");
+        TestSupport.check(!page.fits(nameLength + 1), "a record one byte larger than the free space does not fit");
+        page.add(-1, new double[]{0.5, 0.25}, "n".repeat(nameLength).getBytes(StandardCharsets.UTF_8));
+        TestSupport.checkEquals(0, page.freeSpace(), "free space of a page filled to the last byte");
+        TestSupport.checkEquals("n".repeat(nameLength), page.name(0), "name of the record of the exact free space");
+    }
+
+    /**
+     * This method checks that names of any bytes, also the ones an old delimited data file could not hold, are read
+     * back from a copy of the page.
+     */
+    private static void checkNames() {
+        String[] names = {"Ορεστιάδα", "a,b;c\nd\te", "", "\u0000#ÿ", "x".repeat(100)};
+        byte[] block = new byte[pageSize * 2];
+        DatafilePage page = new DatafilePage().wrap(block).init();
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            TestSupport.check(page.fits(name.length), "the name " + i + " fits");
+            page.add(100 + i, new double[]{41.5 + i, 26.5 - i}, name.length > 0 ? name : null);
+        }
+        DatafilePage copy = new DatafilePage().wrap(block.clone());
+        TestSupport.checkEquals(names.length, copy.noOfSlots(), "slots of the copy");
+        for (int i = 0; i < names.length; i++) {
+            TestSupport.checkEquals(100L + i, copy.nodeId(i), "node id of slot " + i);
+            TestSupport.checkEquals(41.5 + i, copy.coordinate(i, 0), "LAT of slot " + i);
+            TestSupport.checkEquals(26.5 - i, copy.coordinate(i, 1), "LON of slot " + i);
+            TestSupport.checkEquals(names[i].isEmpty() ? null : names[i], copy.name(i), "name of slot " + i);
+        }
+    }
+
+    /**
+     * This method builds a data file of a few blocks and checks that its records come back in the order of the .osm
+     * file, from the scan of the data file and from the locations in the record table.
+     *
+     * @throws IOException if a record cannot be fetched
+     */
+    private static void checkDatafile() throws IOException {
+        ArrayList<Record> expected = TestSupport.writeOsmfile(5000, 31);
+        FileHandler.setOsmfilePath(TestSupport.OsmfilePath);
+        FileHandler.createDataFile(2);
+        ArrayList<Record> records = FileHandler.getDatafileRecords();
+        TestSupport.checkEquals(expected.size(), records.size(), "records of the data file");
+        TestSupport.check(FileHandler.getNoOfDatafileBlocks() > 2, "the records take several pages");
+        for (int i = 0; i < expected.size(); i++) {
+            checkRecord(expected.get(i), records.get(i), i);
+            checkRecord(expected.get(i), DatafileReader.fetch(records.get(i).getRecordLocation()), i);
+        }
+    }
+
+    private static void checkRecord(Record expected, Record actual, int i) {
+        TestSupport.checkEquals(expected.getNodeId(), actual.getNodeId(), "node id of record " + i);
+        TestSupport.checkEquals(expected.getCoords()[0], actual.getLAT(), "LAT of record " + i);
+        TestSupport.checkEquals(expected.getCoords()[1], actual.getLON(), "LON of record " + i);
+        TestSupport.checkEquals(expected.getName(), actual.getName(), "name of record " + i);
+    }
+
+}
@@ -0,0 +1,34 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+/**
+ * This class tests the delete of points. Every third record of a tree of small blocks is deleted, so many leaves
+ * underflow, are removed from the tree and have their records reinserted. After every batch of deletes the range
+ * queries have to find the records of the data file that were not deleted, and the blocks of the removed leaves have to
+ * be in the chain of free blocks.
+ */
+public class DeleteTest {
+    private static final int noOfNodes = 1500;
+
+    public static void main(String[] args) throws IOException {
+        FileHandler.setDimensions(2);
+        ArrayList<Record> records = TestSupport.buildIndex(512, noOfNodes, 11);
+        double[] range = {TestSupport.minLAT, TestSupport.minLON, TestSupport.maxLAT, TestSupport.maxLON};
+        TreeSet<String> expected = TestSupport.linearSearch(range);
+        TestSupport.checkEquals(expected, TestSupport.rangeQuery(range), "range query of the built tree");
+        for (int i = 0; i < records.size(); i += 3) {
+            double[] coords = records.get(i).getCoords();
+            Delete.delete(coords[0], coords[1]);
+            expected.remove(coords[0] + "," + coords[1]);
+            TestSupport.checkEquals(0, TestSupport.rangeQuery(TestSupport.around(coords)).size(), "records at the deleted point " + i);
+            if (i % 150 == 0) {
+                TestSupport.checkEquals(expected, TestSupport.rangeQuery(range), "range query after " + (i / 3 + 1) + " deletes");
+            }
+        }
+        TestSupport.checkEquals(expected, TestSupport.rangeQuery(range), "range query after the deletes");
+        TestSupport.check(FileHandler.getNoOfFreeBlocks() > 0, "the blocks of the removed leaves are free");
+        System.out.println("DeleteTest passed");
+    }
+
+}
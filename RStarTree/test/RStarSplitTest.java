@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class tests that the RStarSplit chooses the same distributions as the split of the Split before the split
+ * strategies, which sorted a copy of the entries with Rectangle.tempSort dimension by dimension, the lower bound before
+ * the upper bound, each sort continuing from the one before it. The entries lie on a coarse grid, so many keys and many
+ * margins are equal and the order of the sorts decides the split. Both the root, whose margins are not 0, and the other
+ * nodes, whose margins are all 0, are split.
+ */
+public class RStarSplitTest {
+    private static final int maxEntries = 20;
+    private static final int noOfTrials = 2000;
+
+    public static void main(String[] args) {
+        FileHandler.setDimensions(2);
+        FileHandler.setRootMBR(new double[]{0, 0, 6, 6});
+        Random random = new Random(5);
+        RStarSplit split = new RStarSplit();
+        for (int trial = 0; trial < noOfTrials; trial++) {
+            boolean leaf = trial % 2 == 0;
+            int blockId = trial % 4 < 2 ? -1 : 7;
+            ArrayList<double[]> entries = new ArrayList<>();
+            for (int i = 0; i <= maxEntries; i++) {
+                double lat = random.nextInt(4);
+                double lon = random.nextInt(4);
+                entries.add(leaf ? new double[]{lat, lon, lat, lon} : new double[]{lat, lon, lat + random.nextInt(3), lon + random.nextInt(3)});
+            }
+            int[] order = new int[entries.size()];
+            int splitIndex = split.distribute(entries, leaf, maxEntries, blockId, order);
+            int[] expectedOrder = new int[entries.size()];
+            int expectedSplitIndex = oldSplit(entries, leaf, blockId, expectedOrder);
+            TestSupport.checkEquals(expectedSplitIndex, splitIndex, "split index of trial " + trial);
+            TestSupport.check(Arrays.equals(expectedOrder, order), "order of trial " + trial + ": expected " + Arrays.toString(expectedOrder) + " but was " + Arrays.toString(order));
+        }
+        System.out.println("RStarSplitTest passed");
+    }
+
+    /**
+     * This method is the loop of the split before the split strategies. A leaf was sorted once per dimension by its
+     * coordinates, an internal node once per dimension and bound.
+     *
+     * @param entries the rectangles of the M+1 entries
+     * @param leaf    true if the entries are the points of a leaf
+     * @param blockId the block id of the parent of the split node
+     * @param order   the array that receives the indexes of the entries
+     * @return the number of entries of the first group
+     */
+    private static int oldSplit(ArrayList<double[]> entries, boolean leaf, int blockId, int[] order) {
+        int dimensions = FileHandler.getDimensions();
+        ArrayList<double[]> duplicate = new ArrayList<>(entries);
+        ArrayList<Integer> duplicateIDs = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            duplicateIDs.add(i);
+        }
+        double marginValue = Double.MAX_VALUE;
+        int splitIndex = 0;
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = 0; j < (leaf ? 1 : dimensions); j++) {
+                Rectangle.tempSort(duplicate, i == 0 ? 0 : 1, j, duplicateIDs);
+                SplitDistributions distributions = SplitDistributions.ofRectangles(duplicate, maxEntries, blockId);
+                if (distributions.getMarginValue() < marginValue) {
+                    marginValue = distributions.getMarginValue();
+                    splitIndex = distributions.getSplitIndex();
+                    for (int k = 0; k < order.length; k++) {
+                        order[k] = duplicateIDs.get(k);
+                    }
+                }
+            }
+        }
+        return splitIndex;
+    }
+
+}
@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * This class is a microbenchmark of the evaluation of the split distributions. For the node capacities of a range of
+ * block sizes it sorts M+1 random rectangles by their lower bound and evaluates the distributions of the sort order
+ * once with the prefix and suffix sweep of SplitDistributions and once the way the split did before, with the MBRs of
+ * both groups of every distribution calculated from their entries. It checks that both give the same margin and the
+ * same split index and prints the best time of one evaluation of each out of a number of repetitions. The evaluation
+ * of every distribution is the one of SplitDistributionsTest, which checks the sweep. The benchmark is compiled with
+ * the tests but is not one of AllTests. It runs without an index file, the rounds are the number of random nodes of
+ * every block size:
+ * <pre>
+ * java -cp classes SplitDistributionsBenchmark [rounds]
+ * </pre>
+ */
+public class SplitDistributionsBenchmark {
+    private static final int[] blockSizes = {512, 1024, 4096, 8192, 32768};
+    private static final int repetitions = 10;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int dimensions = 2;
+        FileHandler.setDimensions(dimensions);
+        Random random = new Random(7);
+        System.out.printf("%8s %6s %14s %14s %8s%n", "block", "M", "recompute us", "sweep us", "speedup");
+        for (int blockSize : blockSizes) {
+            int maxEntries = (blockSize - 3 * Integer.BYTES) / NodeView.internalEntrySize(dimensions);
+            ArrayList<ArrayList<double[]>> nodes = new ArrayList<>();
+            for (int r = 0; r < rounds; r++) {
+                nodes.add(randomNode(random, maxEntries + 1, dimensions));
+            }
+            for (ArrayList<double[]> node : nodes) {
+                FileHandler.setRootMBR(Split.calculateMBROfRectangles(node));
+                // the margin is only measured from the root MBR for a split of the root, block id -1 in the split
+                SplitDistributions distributions = SplitDistributions.ofRectangles(node, maxEntries, -1);
+                double[] recomputed = SplitDistributionsTest.recompute(node, maxEntries, -1);
+                if (distributions.getMarginValue() != recomputed[0] || distributions.getSplitIndex() != (int) recomputed[1]) {
+                    throw new IllegalStateException("the sweep and the recomputation disagree for M = " + maxEntries);
+                }
+            }
+            // the first repetitions warm up both evaluations, the best of all is reported
+            double recomputeTime = Double.MAX_VALUE;
+            double sweepTime = Double.MAX_VALUE;
+            for (int repetition = 0; repetition < repetitions; repetition++) {
+                recomputeTime = Math.min(recomputeTime, time(nodes, maxEntries, false));
+                sweepTime = Math.min(sweepTime, time(nodes, maxEntries, true));
+            }
+            System.out.printf("%8d %6d %14.2f %14.2f %7.1fx%n", blockSize, maxEntries, recomputeTime, sweepTime, recomputeTime / sweepTime);
+        }
+    }
+
+    /**
+     * This method returns the given number of random rectangles in the unit square, sorted by their lower bound in the
+     * first dimension.
+     *
+     * @param random     the source of the coordinates
+     * @param size       the number of rectangles
+     * @param dimensions the dimensions
+     * @return the sorted rectangles
+     */
+    private static ArrayList<double[]> randomNode(Random random, int size, int dimensions) {
+        ArrayList<double[]> rectangles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double[] rectangle = new double[2 * dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                rectangle[d] = random.nextDouble();
+                rectangle[d + dimensions] = rectangle[d] + 0.05 * random.nextDouble();
+            }
+            rectangles.add(rectangle);
+        }
+        Rectangle.tempSort(rectangles, 0, 0, new ArrayList<>(Collections.nCopies(size, 0)));
+        return rectangles;
+    }
+
+    /**
+     * This method returns the average time in microseconds of one evaluation of the distributions of the given nodes.
+     *
+     * @param nodes      the sorted entries of the nodes
+     * @param maxEntries the maximum number of entries of a node
+     * @param sweep      true for the sweep, false for the recomputation of every distribution
+     * @return the average time of one evaluation in microseconds
+     */
+    private static double time(ArrayList<ArrayList<double[]>> nodes, int maxEntries, boolean sweep) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (ArrayList<double[]> node : nodes) {
+            if (sweep) checksum += SplitDistributions.ofRectangles(node, maxEntries, 0).getSplitIndex();
+            else checksum += (long) SplitDistributionsTest.recompute(node, maxEntries, 0)[1];
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum < 0) System.out.println(checksum);
+        return elapsed / 1000.0 / nodes.size();
+    }
+
+}
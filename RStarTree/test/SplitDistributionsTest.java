@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * This class tests that the prefix and suffix sweep of SplitDistributions evaluates the distributions of a sort order
+ * the way the split did before the sweep, with the MBRs of both groups of every distribution calculated from their
+ * entries. For random rectangles, random points and points on a coarse grid, whose equal overlaps and areas leave the
+ * choice to the tie breaks, the sweep has to give the same margin and the same split index, overlap and area of the
+ * chosen distribution, for the root and for the other nodes and for the node capacities of a range of block sizes.
+ */
+public class SplitDistributionsTest {
+    private static final int[] blockSizes = {128, 512, 1024, 4096};
+    private static final int noOfTrials = 200;
+
+    public static void main(String[] args) {
+        int dimensions = 2;
+        FileHandler.setDimensions(dimensions);
+        Random random = new Random(7);
+        for (int blockSize : blockSizes) {
+            int maxEntries = (blockSize - 3 * Integer.BYTES) / NodeView.internalEntrySize(dimensions);
+            for (int trial = 0; trial < noOfTrials; trial++) {
+                ArrayList<double[]> entries = new ArrayList<>(maxEntries + 1);
+                for (int i = 0; i <= maxEntries; i++) {
+                    double lat, lon;
+                    if (trial % 3 == 2) {
+                        lat = random.nextInt(5);
+                        lon = random.nextInt(5);
+                    } else {
+                        lat = random.nextDouble();
+                        lon = random.nextDouble();
+                    }
+                    double width = trial % 3 == 0 ? 0.05 * random.nextDouble() : 0;
+                    entries.add(new double[]{lat, lon, lat + width, lon + width});
+                }
+                if (trial % 2 == 0) {
+                    Rectangle.tempSort(entries, 0, trial % 4 == 0 ? 0 : 1, new ArrayList<>(Collections.nCopies(entries.size(), 0)));
+                }
+                FileHandler.setRootMBR(Split.calculateMBROfRectangles(entries));
+                for (int blockId : new int[]{-1, 5}) {
+                    String name = "trial " + trial + " with M=" + maxEntries + ", parent " + blockId;
+                    SplitDistributions distributions = SplitDistributions.ofRectangles(entries, maxEntries, blockId);
+                    double[] expected = recompute(entries, maxEntries, blockId);
+                    TestSupport.checkEquals(expected[0], distributions.getMarginValue(), "margin of " + name);
+                    TestSupport.checkEquals((int) expected[1], distributions.getSplitIndex(), "split index of " + name);
+                    TestSupport.checkEquals(expected[2], distributions.getOverlap(), "overlap of " + name);
+                    TestSupport.checkEquals(expected[3], distributions.getArea(), "area of " + name);
+                }
+            }
+        }
+        System.out.println("SplitDistributionsTest passed");
+    }
+
+    /**
+     * This method evaluates the distributions of the given sorted entries the way the split did before the sweep: the
+     * MBRs of both groups of every distribution are calculated from their entries.
+     *
+     * @param entries    the sorted entries
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id that decides the margin
+     * @return the margin of the sort order and the split index, the overlap and the area of the chosen distribution
+     */
+    static double[] recompute(ArrayList<double[]> entries, int maxEntries, int blockId) {
+        double m = Split.getM();
+        double marginValue = 0;
+        double area = 0;
+        double minOverlap = Double.MAX_VALUE;
+        int result = 0;
+        for (int k = 1; k < maxEntries - Math.floor(2 * m * maxEntries) + 2; k++) {
+            int splitIndex = (int) Math.floor(m * maxEntries - 1) + k;
+            double[] firstMBR = Split.calculateMBROfRectangles(new ArrayList<>(entries.subList(0, splitIndex)));
+            double[] secondMBR = Split.calculateMBROfRectangles(new ArrayList<>(entries.subList(splitIndex, entries.size())));
+            marginValue += SplitDistributions.calcMargin(firstMBR, blockId);
+            marginValue += SplitDistributions.calcMargin(secondMBR, blockId);
+            double overlap = Split.calcOverlap(firstMBR, secondMBR);
+            if (overlap < minOverlap) {
+                area = Geometry.area(firstMBR) + Geometry.area(secondMBR) - overlap;
+                minOverlap = overlap;
+                result = splitIndex;
+            } else if (overlap == minOverlap) {
+                double b = Geometry.area(firstMBR) + Geometry.area(secondMBR) - overlap;
+                if (b < area) {
+                    area = b;
+                    result = splitIndex;
+                }
+            }
+        }
+        return new double[]{marginValue, result, minOverlap, area};
+    }
+
+}
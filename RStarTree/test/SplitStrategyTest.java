@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class tests the split strategies. Every strategy distributes fixed sets of M+1 entries, random rectangles,
+ * random points, equal points and a cluster with one far entry, and each distribution has to keep every entry exactly
+ * once and fill both groups to the minimum. Two clearly separated clusters have to be split into the clusters by every
+ * strategy, and the weighting of the revised R* split has to move the split index toward the side the node grows to.
+ */
+public class SplitStrategyTest {
+    private static final int[] maxEntries = {4, 10, 20, 51};
+
+    public static void main(String[] args) {
+        FileHandler.setDimensions(2);
+        FileHandler.setRootMBR(new double[]{0, 0, 100, 100});
+        checkById();
+        for (int id = SplitStrategy.linearId; id <= SplitStrategy.revisedRStarId; id++) {
+            SplitStrategy strategy = SplitStrategy.byId(id);
+            for (int max : maxEntries) {
+                for (int blockId : new int[]{-1, 3}) {
+                    Random random = new Random(max);
+                    for (int trial = 0; trial < 50; trial++) {
+                        checkDistribution(strategy, randomRectangles(random, max + 1), false, max, blockId);
+                        checkDistribution(strategy, randomPoints(random, max + 1), true, max, blockId);
+                    }
+                    ArrayList<double[]> equal = new ArrayList<>();
+                    ArrayList<double[]> farEntry = new ArrayList<>();
+                    for (int i = 0; i < max; i++) {
+                        equal.add(point(5, 5));
+                        farEntry.add(point(5 + i * 1e-3, 5));
+                    }
+                    equal.add(point(5, 5));
+                    farEntry.add(point(90, 90));
+                    checkDistribution(strategy, equal, true, max, blockId);
+                    checkDistribution(strategy, farEntry, true, max, blockId);
+                }
+            }
+            checkClusters(strategy);
+        }
+        checkRevisedRStarWeighting();
+        System.out.println("SplitStrategyTest passed");
+    }
+
+    /**
+     * This method checks that every id returns its strategy and that an unknown id returns the R* split, and which
+     * strategies reinsert on an overflow.
+     */
+    private static void checkById() {
+        Class<?>[] classes = {LinearSplit.class, QuadraticSplit.class, RStarSplit.class, RevisedRStarSplit.class};
+        for (int id = SplitStrategy.linearId; id <= SplitStrategy.revisedRStarId; id++) {
+            SplitStrategy strategy = SplitStrategy.byId(id);
+            TestSupport.checkEquals(classes[id], strategy.getClass(), "strategy of id " + id);
+            TestSupport.checkEquals(id, strategy.getId(), "id of " + strategy.getName());
+            TestSupport.checkEquals(id == SplitStrategy.rStarId, strategy.reinsertsOnOverflow(), "reinsertion of " + strategy.getName());
+        }
+        TestSupport.checkEquals(RStarSplit.class, SplitStrategy.byId(-1).getClass(), "strategy of an unknown id");
+        TestSupport.checkEquals(RStarSplit.class, SplitStrategy.byId(99).getClass(), "strategy of an unknown id");
+    }
+
+    /**
+     * This method distributes the entries and checks that the order holds every entry once and that both groups hold
+     * at least the minimum number of entries.
+     *
+     * @param strategy   the split strategy
+     * @param entries    the rectangles of the M+1 entries
+     * @param leaf       true if the entries are points
+     * @param maxEntries the maximum number of entries of the node
+     * @param blockId    the block id of the parent of the split node
+     * @return the order of the entries
+     */
+    private static int[] checkDistribution(SplitStrategy strategy, ArrayList<double[]> entries, boolean leaf, int maxEntries, int blockId) {
+        String name = strategy.getName() + " with M=" + maxEntries + ", leaf " + leaf + ", parent " + blockId;
+        int[] order = new int[entries.size()];
+        Arrays.fill(order, -1);
+        int firstSize = strategy.distribute(entries, leaf, maxEntries, blockId, order);
+        int minEntries = SplitStrategy.minEntries(maxEntries);
+        TestSupport.check(firstSize >= minEntries, name + ": first group of " + firstSize + " entries, minimum " + minEntries);
+        TestSupport.check(entries.size() - firstSize >= minEntries, name + ": second group of " + (entries.size() - firstSize) + " entries, minimum " + minEntries);
+        boolean[] seen = new boolean[entries.size()];
+        for (int index : order) {
+            TestSupport.check(index >= 0 && index < entries.size() && !seen[index], name + ": order " + Arrays.toString(order));
+            seen[index] = true;
+        }
+        return order;
+    }
+
+    /**
+     * This method checks that two separated clusters, the second one a little smaller, become the two groups.
+     *
+     * @param strategy the split strategy
+     */
+    private static void checkClusters(SplitStrategy strategy) {
+        Random random = new Random(17);
+        ArrayList<double[]> entries = new ArrayList<>();
+        boolean[] inFirstCluster = new boolean[11];
+        for (int i = 0; i < 11; i++) {
+            inFirstCluster[i] = i % 2 == 0;
+            double offset = inFirstCluster[i] ? 10 : 60;
+            entries.add(point(offset + random.nextDouble() * 5, offset + random.nextDouble() * 5));
+        }
+        int[] order = new int[entries.size()];
+        int firstSize = strategy.distribute(entries, true, 10, 3, order);
+        TestSupport.check(firstSize == 5 || firstSize == 6, strategy.getName() + ": the groups are the clusters, first group " + firstSize);
+        boolean firstCluster = inFirstCluster[order[0]];
+        for (int i = 0; i < order.length; i++) {
+            TestSupport.check((inFirstCluster[order[i]] == firstCluster) == (i < firstSize), strategy.getName() + ": entry " + order[i] + " in the group of its cluster");
+        }
+    }
+
+    /**
+     * This method checks the weighting of the revised R* split on M=21 points on a line, whose overlap-free
+     * distributions all have the same perimeter, so the weight alone picks the split index. The Gaussian is centered
+     * on the balanced split of 11 entries when the new entry falls inside the node, and shifted by
+     * (1 - 2m/(M+1)) times the growth of the node over its extent, about 1/7, when the new entry extends the node to
+     * one side. The split index is the one closest to the shifted center, 13 for a node that grows up and 9 for one
+     * that grows down.
+     */
+    private static void checkRevisedRStarWeighting() {
+        double[] newEntries = {10.5, 42, -22};
+        int[] expectedSplitIndexes = {11, 13, 9};
+        RevisedRStarSplit strategy = new RevisedRStarSplit();
+        for (int c = 0; c < newEntries.length; c++) {
+            ArrayList<double[]> entries = new ArrayList<>();
+            for (int i = 0; i <= 20; i++) {
+                entries.add(point(i, 0));
+            }
+            entries.add(point(newEntries[c], 0));
+            int[] order = checkDistribution(strategy, entries, true, 21, 3);
+            int splitIndex = strategy.distribute(entries, true, 21, 3, order);
+            TestSupport.checkEquals(expectedSplitIndexes[c], splitIndex, "split index of the revised R* split with the new entry at " + newEntries[c]);
+            for (int i = 1; i < order.length; i++) {
+                TestSupport.check(entries.get(order[i - 1])[0] <= entries.get(order[i])[0], "the revised R* split distributes the points along the line");
+            }
+        }
+    }
+
+    private static ArrayList<double[]> randomRectangles(Random random, int size) {
+        ArrayList<double[]> rectangles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double lat = random.nextDouble() * 90;
+            double lon = random.nextDouble() * 90;
+            rectangles.add(new double[]{lat, lon, lat + random.nextDouble() * 10, lon + random.nextDouble() * 10});
+        }
+        return rectangles;
+    }
+
+    private static ArrayList<double[]> randomPoints(Random random, int size) {
+        ArrayList<double[]> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(point(random.nextDouble() * 100, random.nextDouble() * 100));
+        }
+        return points;
+    }
+
+    private static double[] point(double lat, double lon) {
+        return new double[]{lat, lon, lat, lon};
+    }
+
+}
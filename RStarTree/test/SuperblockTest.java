@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * This class tests that the superblock of the index file and the chain of free blocks survive a restart. The state
+ * of the FileHandler is overwritten before the files are opened again, so every value that is checked afterwards was
+ * read from the index file.
+ */
+public class SuperblockTest {
+    private static final int blockSize = 1024;
+    private static final int versionOffset = 4 * Integer.BYTES;
+
+    public static void main(String[] args) throws IOException {
+        FileHandler.setSplitStrategy(new QuadraticSplit());
+        FileHandler.setQuantizedMBRs(true);
+        FileHandler.setColumnarLeaves(true);
+        TestSupport.buildIndex(blockSize, 800, 23);
+
+        // three blocks past the last block of the tree are freed, the last one freed is the head of the chain
+        int firstFree = FileHandler.getNoOfIndexfileBlocks() + 1;
+        FileHandler.setNoOfIndexfileBlocks(firstFree + 2);
+        for (int i = 0; i < 3; i++) {
+            FileHandler.freeIndexBlock(firstFree + i);
+        }
+        BufferPool.flush();
+        int noOfBlocks = FileHandler.getNoOfIndexfileBlocks();
+        int leafLevel = FileHandler.getLeafLevel();
+        int root = FileHandler.getRoot();
+        double[] rootMBR = FileHandler.getRootMBR().clone();
+        long generation = FileHandler.getGeneration();
+
+        reopen();
+        TestSupport.checkEquals(blockSize, FileHandler.getBlockSize(), "block size");
+        TestSupport.checkEquals(noOfBlocks, FileHandler.getNoOfIndexfileBlocks(), "number of blocks");
+        TestSupport.checkEquals(leafLevel, FileHandler.getLeafLevel(), "leaf level");
+        TestSupport.checkEquals(root, FileHandler.getRoot(), "root");
+        TestSupport.check(Arrays.equals(rootMBR, FileHandler.getRootMBR()), "root MBR " + Arrays.toString(FileHandler.getRootMBR()));
+        TestSupport.checkEquals(generation, FileHandler.getGeneration(), "generation");
+        TestSupport.check(FileHandler.isQuantizedMBRs(), "quantized MBRs flag");
+        TestSupport.check(FileHandler.isColumnarLeaves(), "columnar leaves flag");
+        TestSupport.checkEquals(SplitStrategy.quadraticId, FileHandler.getSplitStrategy().getId(), "split strategy");
+        checkFreeChain(firstFree + 2, firstFree + 1, firstFree);
+        TestSupport.checkQueries();
+
+        // taking the head of the chain moves the head to the next free block, also after a restart
+        TestSupport.checkEquals(firstFree + 2, FileHandler.takeFreeIndexBlock(), "taken free block");
+        BufferPool.flush();
+        reopen();
+        checkFreeChain(firstFree + 1, firstFree);
+
+        // an index file of a newer version is refused
+        BufferPool.reset();
+        try (RandomAccessFile file = new RandomAccessFile(FileHandler.getIndexfilePath(), "rw")) {
+            file.seek(versionOffset);
+            file.writeInt(Superblock.version + 1);
+        }
+        try {
+            Superblock.readIndexfile();
+            throw new AssertionError("an index file of a newer version was opened");
+        } catch (IOException e) {
+            TestSupport.check(e.getMessage().contains("version"), "message " + e.getMessage());
+        }
+        System.out.println("SuperblockTest passed");
+    }
+
+    /**
+     * This method drops the pool, overwrites the state the superblock restores and opens the files again.
+     */
+    private static void reopen() {
+        BufferPool.reset();
+        FileHandler.setBlockSize(32768);
+        FileHandler.setNoOfIndexfileBlocks(0);
+        FileHandler.setLeafLevel(-1);
+        FileHandler.setRoot(-1);
+        FileHandler.setRootMBR(new double[4]);
+        FileHandler.setFreeList(0, 0);
+        FileHandler.setGeneration(-1);
+        FileHandler.setQuantizedMBRs(false);
+        FileHandler.setColumnarLeaves(false);
+        FileHandler.setSplitStrategy(new RStarSplit());
+        FileHandler.retrieveOldFileInfo();
+    }
+
+    /**
+     * This method walks the chain of free blocks from its head and checks that it holds the given blocks in their
+     * order, each one marked as free.
+     *
+     * @param expected the ids of the free blocks from the head of the chain
+     * @throws IOException if a block cannot be read
+     */
+    private static void checkFreeChain(int... expected) throws IOException {
+        TestSupport.checkEquals(expected.length, FileHandler.getNoOfFreeBlocks(), "number of free blocks");
+        int blockId = FileHandler.getFreeListHead();
+        for (int id : expected) {
+            TestSupport.checkEquals(id, blockId, "free block");
+            TestSupport.checkEquals(Superblock.freeBlockLevel, BufferPool.readInt((long) blockId * blockSize), "level of free block " + blockId);
+            blockId = BufferPool.readInt((long) blockId * blockSize + 2 * Integer.BYTES);
+        }
+        TestSupport.checkEquals(0, blockId, "end of the chain");
+    }
+
+}
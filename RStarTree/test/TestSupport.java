@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * This class holds the checks and the fixtures that the tests share. A test is a class with a main method that throws
+ * an AssertionError when a check fails. The tests write the data file and the index file into the working directory,
+ * so AllTests runs every test in a temporary directory of its own.
+ */
+public class TestSupport {
+    public static final String OsmfilePath = "test.osm";
+    public static final double minLAT = 41.44;
+    public static final double maxLAT = 41.53;
+    public static final double minLON = 26.48;
+    public static final double maxLON = 26.60;
+
+    /**
+     * This method checks a condition of a test.
+     *
+     * @param condition the condition that has to hold
+     * @param message   the message of the failure
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /**
+     * This method checks that a value of a test equals the expected one.
+     *
+     * @param expected the expected value
+     * @param actual   the value of the test
+     * @param message  the message of the failure
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * This method writes an .osm file of random nodes inside the bounds of the tests. Every third node has an English
+     * name, some of them with characters outside ASCII and characters that have to be escaped in XML.
+     *
+     * @param noOfNodes the number of nodes
+     * @param seed      the seed of the random coordinates
+     * @return the records of the nodes in the order of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static ArrayList<Record> writeOsmfile(int noOfNodes, long seed) throws IOException {
+        Random random = new Random(seed);
+        ArrayList<Record> records = new ArrayList<>(noOfNodes);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(OsmfilePath), StandardCharsets.UTF_8))) {
+            writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.println("<osm version=\"0.6\">");
+            for (int i = 0; i < noOfNodes; i++) {
+                double[] coords = {minLAT + random.nextDouble() * (maxLAT - minLAT), minLON + random.nextDouble() * (maxLON - minLON)};
+                String name = i % 3 == 0 ? (i % 2 == 0 ? "Node " + i : "Κόμβος " + i + " & <" + i + ">") : "";
+                long nodeId = 1000L + i;
+                writer.print(" <node id=\"" + nodeId + "\" lat=\"" + coords[0] + "\" lon=\"" + coords[1] + "\"");
+                if (name.isEmpty()) {
+                    writer.println("/>");
+                } else {
+                    writer.println(">");
+                    writer.println("  <tag k=\"name:en\" v=\"" + name.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;") + "\"/>");
+                    writer.println(" </node>");
+                }
+                records.add(new Record(coords, nodeId, name));
+            }
+            writer.println("</osm>");
+        }
+        return records;
+    }
+
+    /**
+     * This method builds the data file and the index file of the given nodes one insert after the other, with the
+     * given block size and the split strategy and node format flags that are set in the FileHandler.
+     *
+     * @param blockSize the block size of the index file
+     * @param noOfNodes the number of nodes
+     * @param seed      the seed of the random coordinates
+     * @return the records of the nodes in the order of the file
+     * @throws IOException if the .osm file cannot be written
+     */
+    public static ArrayList<Record> buildIndex(int blockSize, int noOfNodes, long seed) throws IOException {
+        ArrayList<Record> records = writeOsmfile(noOfNodes, seed);
+        FileHandler.setOsmfilePath(OsmfilePath);
+        FileHandler.setBlockSize(blockSize);
+        FileHandler.createDataFile(2);
+        FileHandler.createIndexFile(true);
+        return records;
+    }
+
+    /**
+     * This method returns the coordinates of the records of the tree inside a range, found with a range query.
+     *
+     * @param range the lower and the upper bounds of the range
+     * @return the coordinates of the records as "LAT,LON" strings
+     */
+    public static TreeSet<String> rangeQuery(double[] range) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (Record record : new RangeQuery(new Rectangle(range)).result) keys.add(key(record));
+        return keys;
+    }
+
+    /**
+     * This method returns the coordinates of the records of the data file inside a range, found with a linear search.
+     *
+     * @param range the lower and the upper bounds of the range
+     * @return the coordinates of the records as "LAT,LON" strings
+     */
+    public static TreeSet<String> linearSearch(double[] range) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (Record record : new LinearSearchRangeQuery(new Rectangle(range)).result) keys.add(key(record));
+        return keys;
+    }
+
+    /**
+     * This method checks that range queries over the whole bounds and over a part of them find the same records as the
+     * linear search of the data file.
+     */
+    public static void checkQueries() {
+        double[][] ranges = {{minLAT, minLON, maxLAT, maxLON}, {41.47, 26.50, 41.50, 26.55}};
+        for (double[] range : ranges) {
+            checkEquals(linearSearch(range), rangeQuery(range), "range query " + Arrays.toString(range));
+        }
+    }
+
+    /**
+     * This method returns a range around a point, small enough to hold only the records at the point.
+     *
+     * @param coords the coordinates of the point
+     * @return the range around the point
+     */
+    public static double[] around(double[] coords) {
+        return new double[]{coords[0] - 1e-9, coords[1] - 1e-9, coords[0] + 1e-9, coords[1] + 1e-9};
+    }
+
+    public static String key(Record record) {
+        return record.getLAT() + "," + record.getLON();
+    }
+
+}
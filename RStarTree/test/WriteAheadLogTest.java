@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * This class tests the recovery of the WriteAheadLog. Two inserts are committed and the index file is put back to its
+ * bytes before them, which is the state of a crash after the log was forced and before the dirty pages reached the
+ * index file. Opening the files again has to replay the log into the index file, up to the last complete entry when
+ * the tail of the log is torn or fails its checksum.
+ */
+public class WriteAheadLogTest {
+    private static final Path IndexfilePath = Path.of(FileHandler.getIndexfilePath());
+    private static final Path WalPath = Path.of("indexfile.wal");
+    private static final int entryHeaderSize = Long.BYTES + 2 * Integer.BYTES;
+    private static final double[] firstCoords = {41.4912345, 26.5412345};
+    private static final double[] secondCoords = {41.4687654, 26.5187654};
+    private static final double[] thirdCoords = {41.5123456, 26.5823456};
+
+    public static void main(String[] args) throws IOException {
+        TestSupport.buildIndex(1024, 600, 11);
+        WriteAheadLog.setGroupCommitSize(1);
+        WriteAheadLog.checkpoint();
+        byte[] beforeInserts = Files.readAllBytes(IndexfilePath);
+        Insert.datafileRecordInsert(new Record(firstCoords, 1L, "First"));
+        byte[] afterFirst = Files.readAllBytes(IndexfilePath);
+        byte[] firstLog = Files.readAllBytes(WalPath);
+        Insert.datafileRecordInsert(new Record(secondCoords, 2L, "Second"));
+        byte[] afterSecond = Files.readAllBytes(IndexfilePath);
+        byte[] log = Files.readAllBytes(WalPath);
+        TestSupport.check(firstLog.length > 0 && log.length > firstLog.length, "every commit appends an entry to the log");
+
+        // the log is complete, both inserts are replayed
+        crash(beforeInserts, log);
+        TestSupport.checkEquals(2, WriteAheadLog.recover(), "recovered transactions of a complete log");
+        checkReopened(afterSecond, true);
+
+        // the second entry is cut in the middle of its writes
+        crash(beforeInserts, Arrays.copyOf(log, firstLog.length + (log.length - firstLog.length) / 2));
+        TestSupport.checkEquals(1, WriteAheadLog.recover(), "recovered transactions of a torn log");
+        checkReopened(afterFirst, false);
+
+        // the second entry is cut inside its header
+        crash(beforeInserts, Arrays.copyOf(log, firstLog.length + entryHeaderSize - 1));
+        TestSupport.checkEquals(1, WriteAheadLog.recover(), "recovered transactions of a log torn in a header");
+        checkReopened(afterFirst, false);
+
+        // a byte of the second entry is flipped, so its checksum fails
+        byte[] corrupted = log.clone();
+        corrupted[firstLog.length + entryHeaderSize + Long.BYTES + Integer.BYTES] ^= 0x5A;
+        crash(beforeInserts, corrupted);
+        TestSupport.checkEquals(1, WriteAheadLog.recover(), "recovered transactions of a log with a bad checksum");
+        checkReopened(afterFirst, false);
+
+        // the recovery empties the log, a restart replays nothing
+        BufferPool.reset();
+        TestSupport.checkEquals(0L, Files.size(WalPath), "log size after the recovery");
+        TestSupport.checkEquals(0, WriteAheadLog.recover(), "recovered transactions of an empty log");
+
+        // a clean exit takes a checkpoint, so the committed transactions are in the index file and the log is empty
+        FileHandler.retrieveOldFileInfo();
+        WriteAheadLog.setGroupCommitSize(4);
+        Insert.datafileRecordInsert(new Record(thirdCoords, 3L, "Third"));
+        TestSupport.check(WriteAheadLog.hasPendingCommits(), "the commit waits for its group");
+        WriteAheadLog.close();
+        TestSupport.checkEquals(0L, Files.size(WalPath), "log size after a clean exit");
+        BufferPool.reset();
+        FileHandler.retrieveOldFileInfo();
+        TestSupport.checkEquals(1, TestSupport.rangeQuery(TestSupport.around(thirdCoords)).size(), "records of the insert before a clean exit");
+        // the data file still holds the record of the second insert, whose transaction was lost with the torn log
+        double[] bounds = {TestSupport.minLAT, TestSupport.minLON, TestSupport.maxLAT, TestSupport.maxLON};
+        TreeSet<String> expected = TestSupport.linearSearch(bounds);
+        expected.remove(secondCoords[0] + "," + secondCoords[1]);
+        TestSupport.check(expected.equals(TestSupport.rangeQuery(bounds)), "the tree holds every record of the data file but the lost one");
+        System.out.println("WriteAheadLogTest passed");
+    }
+
+    /**
+     * This method puts the files in the state of a crash. The pool is dropped without writing, the index file gets its
+     * old bytes and the log the given bytes.
+     *
+     * @param indexfile the bytes of the index file at the crash
+     * @param log       the bytes of the log at the crash
+     * @throws IOException if the files cannot be written
+     */
+    private static void crash(byte[] indexfile, byte[] log) throws IOException {
+        TestSupport.check(!BufferPool.isDirty(0) && !WriteAheadLog.hasPendingCommits(), "no write is waiting at the crash");
+        BufferPool.reset();
+        WriteAheadLog.reset();
+        Files.write(IndexfilePath, indexfile);
+        Files.write(WalPath, log);
+    }
+
+    /**
+     * This method checks the index file after a recovery and opens the files again to query the tree.
+     *
+     * @param expected        the bytes the index file had after the last recovered commit
+     * @param secondRecovered true if the second insert is expected in the tree
+     * @throws IOException if the index file cannot be read
+     */
+    private static void checkReopened(byte[] expected, boolean secondRecovered) throws IOException {
+        TestSupport.check(Arrays.equals(expected, Files.readAllBytes(IndexfilePath)), "the recovered index file equals the index file after the commit");
+        FileHandler.retrieveOldFileInfo();
+        TestSupport.checkEquals(1, TestSupport.rangeQuery(TestSupport.around(firstCoords)).size(), "records of the first insert");
+        TestSupport.checkEquals(secondRecovered ? 1 : 0, TestSupport.rangeQuery(TestSupport.around(secondCoords)).size(), "records of the second insert");
+        if (secondRecovered) TestSupport.checkQueries();
+    }
+
+}